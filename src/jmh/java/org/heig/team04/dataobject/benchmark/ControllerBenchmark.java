@@ -0,0 +1,119 @@
+package org.heig.team04.dataobject.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.heig.team04.dataobject.InMemoryS3Client;
+import org.heig.team04.dataobject.config.DataObjectProperties;
+import org.heig.team04.dataobject.controller.AppController;
+import org.heig.team04.dataobject.service.ServiceAwsImpl;
+import org.heig.team04.dataobject.service.cache.MetadataCache;
+import org.heig.team04.dataobject.service.exceptions.ServiceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * End-to-end benchmark of the request handling of AppController, from the servlet request to the response body,
+ * for small and large payloads. The service runs against an in-process stand-in of the S3 service.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerBenchmark {
+    private static final String BUCKET = "benchmark.team04.diduno.education";
+    private static final String OBJECT = BUCKET + "/testObject";
+
+    // 4 KiB fits in the content cache, 16 MiB is uploaded in several parts and streamed
+    @Param({"4096", "16777216"})
+    public int payloadSize;
+
+    private InMemoryS3Client s3;
+    private ServiceAwsImpl service;
+    private MockMvc mvc;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() throws ServiceException {
+        DataObjectProperties properties = new DataObjectProperties();
+        properties.getCache().setDiskMaxSize(DataSize.ofBytes(0));
+
+        s3 = new InMemoryS3Client();
+        service = new ServiceAwsImpl(properties,
+                new MetadataCache(properties.getCache().getMetadataMaxEntries(), properties.getCache().getMetadataTtl()),
+                s3, ServiceBenchmark.presigner());
+        mvc = MockMvcBuilders.standaloneSetup(new AppController(service, properties, new ObjectMapper().findAndRegisterModules())).build();
+
+        payload = new byte[payloadSize];
+        service.create(OBJECT, payload);
+        s3.takeCalls();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public int upload(S3Calls calls) throws Exception {
+        MockHttpServletResponse response = mvc.perform(put("/data-object")
+                        .param("uri", OBJECT)
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(payload))
+                .andReturn().getResponse();
+        calls.record(s3);
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int download(S3Calls calls) throws Exception {
+        MvcResult result = mvc.perform(get("/data-object/download").param("uri", OBJECT)).andReturn();
+        // The body is streamed asynchronously, wait for it to be written
+        result.getAsyncResult();
+        calls.record(s3);
+        return result.getResponse().getContentLength();
+    }
+
+    @Benchmark
+    public int downloadNotModified(S3Calls calls) throws Exception {
+        MockHttpServletResponse response = mvc.perform(get("/data-object/download")
+                        .param("uri", OBJECT)
+                        .header("If-None-Match", service.stat(OBJECT).eTag()))
+                .andReturn().getResponse();
+        calls.record(s3);
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int content(S3Calls calls) throws Exception {
+        MockHttpServletResponse response = mvc.perform(get("/data-object/content").param("uri", OBJECT))
+                .andReturn().getResponse();
+        calls.record(s3);
+        return response.getStatus();
+    }
+}
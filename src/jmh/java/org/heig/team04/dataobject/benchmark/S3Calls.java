@@ -0,0 +1,37 @@
+package org.heig.team04.dataobject.benchmark;
+
+import org.heig.team04.dataobject.InMemoryS3Client;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counters reported next to the timings of a benchmark: the number of operations and of S3 requests they sent.
+ * Their ratio is the number of S3 calls per operation.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class S3Calls {
+    public long operations;
+    public long s3Calls;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        operations = 0;
+        s3Calls = 0;
+    }
+
+    /**
+     * Record one operation and the S3 requests it sent.
+     * @param s3 the stand-in that received the requests
+     */
+    public void record(InMemoryS3Client s3) {
+        operations++;
+        s3Calls += s3.takeCalls();
+    }
+}
@@ -0,0 +1,203 @@
+package org.heig.team04.dataobject.benchmark;
+
+import org.heig.team04.dataobject.InMemoryS3Client;
+import org.heig.team04.dataobject.config.DataObjectProperties;
+import org.heig.team04.dataobject.service.ListEntry;
+import org.heig.team04.dataobject.service.ObjectStream;
+import org.heig.team04.dataobject.service.PublishResult;
+import org.heig.team04.dataobject.service.ResourceInfo;
+import org.heig.team04.dataobject.service.ServiceAwsImpl;
+import org.heig.team04.dataobject.service.cache.MetadataCache;
+import org.heig.team04.dataobject.service.exceptions.ServiceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark of every operation of the service, run against an in-process stand-in of the S3 service.
+ * The S3 requests sent by each operation are counted, and with the gc profiler the bytes allocated per operation.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceBenchmark {
+    private static final String BUCKET = "benchmark.team04.diduno.education";
+    private static final String OBJECT = BUCKET + "/testObject";
+    private static final int FOLDER_SIZE = 100;
+
+    @Param({"true", "false"})
+    public boolean contentCache;
+
+    @Param({"4096"})
+    public int objectSize;
+
+    private InMemoryS3Client s3;
+    private ServiceAwsImpl service;
+    private byte[] content;
+    // A content of the same size differing from the stored one, so that the update is not left out
+    private byte[] otherContent;
+    private List<String> folderUris;
+    private final AtomicLong keys = new AtomicLong();
+    private final AtomicLong updates = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() throws ServiceException {
+        DataObjectProperties properties = new DataObjectProperties();
+        properties.getCache().setDiskMaxSize(DataSize.ofBytes(0));
+        if (!contentCache) {
+            properties.getCache().setContentMaxSize(DataSize.ofBytes(0));
+        }
+
+        s3 = new InMemoryS3Client();
+        service = new ServiceAwsImpl(properties,
+                new MetadataCache(properties.getCache().getMetadataMaxEntries(), properties.getCache().getMetadataTtl()),
+                s3, presigner());
+
+        content = new byte[objectSize];
+        otherContent = new byte[objectSize];
+        otherContent[0] = 1;
+        service.create(OBJECT, content);
+        folderUris = IntStream.range(0, FOLDER_SIZE).mapToObj(i -> BUCKET + "/testFolder/testObject" + i).toList();
+        for (String uri : folderUris) {
+            service.create(uri, content);
+        }
+        s3.takeCalls();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    static S3Presigner presigner() {
+        // Signing is done locally, the credentials are never sent anywhere
+        return S3Presigner.builder()
+                .region(Region.EU_WEST_2)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("benchmark", "benchmark")))
+                .build();
+    }
+
+    @Benchmark
+    public boolean exists(S3Calls calls) throws ServiceException {
+        boolean exists = service.exists(OBJECT);
+        calls.record(s3);
+        return exists;
+    }
+
+    @Benchmark
+    public ResourceInfo stat(S3Calls calls) throws ServiceException {
+        ResourceInfo info = service.stat(OBJECT);
+        calls.record(s3);
+        return info;
+    }
+
+    @Benchmark
+    public byte[] read(S3Calls calls) throws ServiceException {
+        byte[] read = service.read(OBJECT);
+        calls.record(s3);
+        return read;
+    }
+
+    @Benchmark
+    public byte[] readRange(S3Calls calls) throws ServiceException {
+        byte[] read = service.read(OBJECT, 0, 1023);
+        calls.record(s3);
+        return read;
+    }
+
+    @Benchmark
+    public long readStream(S3Calls calls) throws ServiceException, IOException {
+        long read;
+        try (ObjectStream object = service.readStream(OBJECT)) {
+            read = object.content().transferTo(OutputStream.nullOutputStream());
+        }
+        calls.record(s3);
+        return read;
+    }
+
+    @Benchmark
+    public boolean update(S3Calls calls) throws ServiceException {
+        // The two contents alternate, each update changes the object
+        boolean updated = service.update(OBJECT, updates.incrementAndGet() % 2 == 0 ? content : otherContent);
+        calls.record(s3);
+        return updated;
+    }
+
+    @Benchmark
+    public boolean updateUnchanged(S3Calls calls) throws ServiceException {
+        boolean updated = service.update(OBJECT, content);
+        calls.record(s3);
+        return updated;
+    }
+
+    @Benchmark
+    public boolean createAndDelete(S3Calls calls) throws ServiceException {
+        String uri = BUCKET + "/created/testObject" + keys.incrementAndGet();
+        boolean done = service.create(uri, content) && service.delete(uri, false);
+        calls.record(s3);
+        return done;
+    }
+
+    @Benchmark
+    public String publish(S3Calls calls) throws ServiceException {
+        String link = service.publish(OBJECT, 1800);
+        calls.record(s3);
+        return link;
+    }
+
+    @Benchmark
+    public Map<String, PublishResult> publishFolder(S3Calls calls) {
+        Map<String, PublishResult> links = service.publish(folderUris, 1800);
+        calls.record(s3);
+        return links;
+    }
+
+    @Benchmark
+    public long listFolder(S3Calls calls) throws ServiceException {
+        long count;
+        try (Stream<ListEntry> entries = service.list(BUCKET + "/testFolder", false, null)) {
+            count = entries.count();
+        }
+        calls.record(s3);
+        return count;
+    }
+
+    @Benchmark
+    public boolean moveFolder(S3Calls calls) throws ServiceException {
+        // Moved back and forth, so every invocation moves the same folder
+        boolean moved = service.move(BUCKET + "/testFolder", BUCKET + "/movedFolder", true)
+                && service.move(BUCKET + "/movedFolder", BUCKET + "/testFolder", true);
+        calls.record(s3);
+        return moved;
+    }
+}
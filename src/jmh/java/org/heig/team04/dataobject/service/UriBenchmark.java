@@ -0,0 +1,41 @@
+package org.heig.team04.dataobject.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the parsing of the resource URIs, done at least once by every operation of the service.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UriBenchmark {
+    @Param({
+            "amt.team04.diduno.education",
+            "amt.team04.diduno.education/testObject",
+            "amt.team04.diduno.education/testFolder/sub/testObject.jpg",
+            "amt.team04.diduno.education/testFolder/sub/"
+    })
+    public String uri;
+
+    @Benchmark
+    public String[] splitUri() {
+        return ServiceAwsImpl.splitUri(uri);
+    }
+}
@@ -0,0 +1,27 @@
+package org.heig.team04.dataobject.config;
+
+import org.heig.team04.dataobject.service.cache.MetadataCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Beans shared by the implementations of the data object service.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+@Configuration
+public class DataObjectConfig {
+
+    /**
+     * The metadata cache is shared so that a write through one service is seen by the others.
+     * @param properties the configuration properties of the service
+     * @return the metadata cache
+     */
+    @Bean
+    public MetadataCache metadataCache(DataObjectProperties properties) {
+        return new MetadataCache(
+                properties.getCache().getMetadataMaxEntries(),
+                properties.getCache().getMetadataTtl());
+    }
+}
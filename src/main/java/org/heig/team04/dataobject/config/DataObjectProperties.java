@@ -0,0 +1,384 @@
+package org.heig.team04.dataobject.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties of the data object service, bound from the "data-object" prefix.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+@Component
+@ConfigurationProperties(prefix = "data-object")
+public class DataObjectProperties {
+    private int ioThreads = 16;
+    private final Cache cache = new Cache();
+    private final Upload upload = new Upload();
+    private final Archive archive = new Archive();
+    private final Compression compression = new Compression();
+    private final Dedup dedup = new Dedup();
+    private final Http http = new Http();
+    private final Local local = new Local();
+    private final SlowLog slowLog = new SlowLog();
+
+    public int getIoThreads() {
+        return this.ioThreads;
+    }
+
+    public void setIoThreads(int ioThreads) {
+        this.ioThreads = ioThreads;
+    }
+
+    public Cache getCache() {
+        return this.cache;
+    }
+
+    public Upload getUpload() {
+        return this.upload;
+    }
+
+    public Archive getArchive() {
+        return this.archive;
+    }
+
+    public Compression getCompression() {
+        return this.compression;
+    }
+
+    public Dedup getDedup() {
+        return this.dedup;
+    }
+
+    public Http getHttp() {
+        return this.http;
+    }
+
+    public Local getLocal() {
+        return this.local;
+    }
+
+    public SlowLog getSlowLog() {
+        return this.slowLog;
+    }
+
+    /**
+     * Settings of the in-process caches placed in front of the S3 service.
+     */
+    public static class Cache {
+        private int metadataMaxEntries = 10_000;
+        private Duration metadataTtl = Duration.ofSeconds(30);
+        private int presignedUrlMaxEntries = 10_000;
+        private double presignedUrlMinRemainingRatio = 0.5;
+        private DataSize contentMaxSize = DataSize.ofMegabytes(64);
+        private DataSize contentMaxObjectSize = DataSize.ofMegabytes(1);
+        private Duration contentRevalidateAfter = Duration.ofSeconds(5);
+        private boolean contentOffHeap = false;
+        private Path diskDirectory = Path.of(System.getProperty("java.io.tmpdir"), "data-object");
+        private DataSize diskMaxSize = DataSize.ofGigabytes(1);
+
+        public int getMetadataMaxEntries() {
+            return this.metadataMaxEntries;
+        }
+
+        public void setMetadataMaxEntries(int metadataMaxEntries) {
+            this.metadataMaxEntries = metadataMaxEntries;
+        }
+
+        public Duration getMetadataTtl() {
+            return this.metadataTtl;
+        }
+
+        public void setMetadataTtl(Duration metadataTtl) {
+            this.metadataTtl = metadataTtl;
+        }
+
+        public int getPresignedUrlMaxEntries() {
+            return this.presignedUrlMaxEntries;
+        }
+
+        public void setPresignedUrlMaxEntries(int presignedUrlMaxEntries) {
+            this.presignedUrlMaxEntries = presignedUrlMaxEntries;
+        }
+
+        public double getPresignedUrlMinRemainingRatio() {
+            return this.presignedUrlMinRemainingRatio;
+        }
+
+        public void setPresignedUrlMinRemainingRatio(double presignedUrlMinRemainingRatio) {
+            this.presignedUrlMinRemainingRatio = presignedUrlMinRemainingRatio;
+        }
+
+        public DataSize getContentMaxSize() {
+            return this.contentMaxSize;
+        }
+
+        public void setContentMaxSize(DataSize contentMaxSize) {
+            this.contentMaxSize = contentMaxSize;
+        }
+
+        public DataSize getContentMaxObjectSize() {
+            return this.contentMaxObjectSize;
+        }
+
+        public void setContentMaxObjectSize(DataSize contentMaxObjectSize) {
+            this.contentMaxObjectSize = contentMaxObjectSize;
+        }
+
+        public Duration getContentRevalidateAfter() {
+            return this.contentRevalidateAfter;
+        }
+
+        public void setContentRevalidateAfter(Duration contentRevalidateAfter) {
+            this.contentRevalidateAfter = contentRevalidateAfter;
+        }
+
+        public boolean isContentOffHeap() {
+            return this.contentOffHeap;
+        }
+
+        public void setContentOffHeap(boolean contentOffHeap) {
+            this.contentOffHeap = contentOffHeap;
+        }
+
+        public Path getDiskDirectory() {
+            return this.diskDirectory;
+        }
+
+        public void setDiskDirectory(Path diskDirectory) {
+            this.diskDirectory = diskDirectory;
+        }
+
+        public DataSize getDiskMaxSize() {
+            return this.diskMaxSize;
+        }
+
+        public void setDiskMaxSize(DataSize diskMaxSize) {
+            this.diskMaxSize = diskMaxSize;
+        }
+    }
+
+    /**
+     * Settings of the streamed uploads to the S3 service.
+     */
+    public static class Upload {
+        private DataSize partSize = DataSize.ofMegabytes(8);
+        private int maxInFlightParts = 4;
+        private DataSize copyPartSize = DataSize.ofMegabytes(512);
+        private Duration urlConnectTimeout = Duration.ofSeconds(10);
+        private Duration urlReadTimeout = Duration.ofSeconds(30);
+
+        public DataSize getPartSize() {
+            return this.partSize;
+        }
+
+        public void setPartSize(DataSize partSize) {
+            this.partSize = partSize;
+        }
+
+        public int getMaxInFlightParts() {
+            return this.maxInFlightParts;
+        }
+
+        public void setMaxInFlightParts(int maxInFlightParts) {
+            this.maxInFlightParts = maxInFlightParts;
+        }
+
+        public DataSize getCopyPartSize() {
+            return this.copyPartSize;
+        }
+
+        public void setCopyPartSize(DataSize copyPartSize) {
+            this.copyPartSize = copyPartSize;
+        }
+
+        public Duration getUrlConnectTimeout() {
+            return this.urlConnectTimeout;
+        }
+
+        public void setUrlConnectTimeout(Duration urlConnectTimeout) {
+            this.urlConnectTimeout = urlConnectTimeout;
+        }
+
+        public Duration getUrlReadTimeout() {
+            return this.urlReadTimeout;
+        }
+
+        public void setUrlReadTimeout(Duration urlReadTimeout) {
+            this.urlReadTimeout = urlReadTimeout;
+        }
+    }
+
+    /**
+     * Settings of the bulk uploads and downloads of the objects of an archive.
+     */
+    public static class Archive {
+        private int parallelism = 16;
+        private DataSize maxBufferedEntrySize = DataSize.ofMegabytes(8);
+        private int prefetch = 4;
+
+        public int getParallelism() {
+            return this.parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public DataSize getMaxBufferedEntrySize() {
+            return this.maxBufferedEntrySize;
+        }
+
+        public void setMaxBufferedEntrySize(DataSize maxBufferedEntrySize) {
+            this.maxBufferedEntrySize = maxBufferedEntrySize;
+        }
+
+        public int getPrefetch() {
+            return this.prefetch;
+        }
+
+        public void setPrefetch(int prefetch) {
+            this.prefetch = prefetch;
+        }
+    }
+
+    /**
+     * Settings of the compression of the objects written to the S3 service, off until a prefix is given.
+     * A prefix is a bucket or a folder, written "bucket" or "bucket/folder", and covers all the objects under it.
+     * The in-memory and local filesystem implementations of the service never compress.
+     */
+    public static class Compression {
+        private List<String> prefixes = new ArrayList<>();
+        private DataSize minSize = DataSize.ofKilobytes(1);
+
+        public List<String> getPrefixes() {
+            return this.prefixes;
+        }
+
+        public void setPrefixes(List<String> prefixes) {
+            this.prefixes = prefixes;
+        }
+
+        public DataSize getMinSize() {
+            return this.minSize;
+        }
+
+        public void setMinSize(DataSize minSize) {
+            this.minSize = minSize;
+        }
+    }
+
+    /**
+     * Settings of the deduplication of the objects written to the S3 service, off until prefixes and an index bucket are given.
+     * A prefix is a bucket or a folder, written "bucket" or "bucket/folder", and covers all the objects under it.
+     * The index bucket holds, for every content written under the prefixes, where an object with that content is stored.
+     */
+    public static class Dedup {
+        private List<String> prefixes = new ArrayList<>();
+        private String indexBucket;
+
+        public List<String> getPrefixes() {
+            return this.prefixes;
+        }
+
+        public void setPrefixes(List<String> prefixes) {
+            this.prefixes = prefixes;
+        }
+
+        public String getIndexBucket() {
+            return this.indexBucket;
+        }
+
+        public void setIndexBucket(String indexBucket) {
+            this.indexBucket = indexBucket;
+        }
+    }
+
+    /**
+     * Settings of the HTTP responses of the controllers.
+     */
+    public static class Http {
+        private String cacheControl = "no-cache";
+        private boolean s3CostHeaders = true;
+        private int maxLinks = 1000;
+
+        public String getCacheControl() {
+            return this.cacheControl;
+        }
+
+        public void setCacheControl(String cacheControl) {
+            this.cacheControl = cacheControl;
+        }
+
+        public boolean isS3CostHeaders() {
+            return this.s3CostHeaders;
+        }
+
+        public void setS3CostHeaders(boolean s3CostHeaders) {
+            this.s3CostHeaders = s3CostHeaders;
+        }
+
+        public int getMaxLinks() {
+            return this.maxLinks;
+        }
+
+        public void setMaxLinks(int maxLinks) {
+            this.maxLinks = maxLinks;
+        }
+    }
+
+    /**
+     * Settings of the in-memory and local filesystem implementations of the service,
+     * selected by the "memory" and "filesystem" profiles.
+     */
+    public static class Local {
+        private Path rootDirectory = Path.of(System.getProperty("java.io.tmpdir"), "data-object-store");
+        private String linkBaseUrl = "/data-object/download?uri=";
+
+        public Path getRootDirectory() {
+            return this.rootDirectory;
+        }
+
+        public void setRootDirectory(Path rootDirectory) {
+            this.rootDirectory = rootDirectory;
+        }
+
+        public String getLinkBaseUrl() {
+            return this.linkBaseUrl;
+        }
+
+        public void setLinkBaseUrl(String linkBaseUrl) {
+            this.linkBaseUrl = linkBaseUrl;
+        }
+    }
+
+    /**
+     * Thresholds over which an HTTP request is written to the slow request log, with the S3 requests it caused.
+     */
+    public static class SlowLog {
+        private Duration threshold = Duration.ofSeconds(2);
+        private int s3Requests = 100;
+
+        public Duration getThreshold() {
+            return this.threshold;
+        }
+
+        public void setThreshold(Duration threshold) {
+            this.threshold = threshold;
+        }
+
+        public int getS3Requests() {
+            return this.s3Requests;
+        }
+
+        public void setS3Requests(int s3Requests) {
+            this.s3Requests = s3Requests;
+        }
+    }
+}
@@ -1,12 +1,39 @@
 package org.heig.team04.dataobject.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.heig.team04.dataobject.config.DataObjectProperties;
 import org.heig.team04.dataobject.dto.SourceDTO;
+import org.heig.team04.dataobject.service.ListEntry;
+import org.heig.team04.dataobject.service.ObjectStream;
+import org.heig.team04.dataobject.service.PublishResult;
+import org.heig.team04.dataobject.service.ResourceInfo;
 import org.heig.team04.dataobject.service.ServiceInterface;
+import org.heig.team04.dataobject.service.cache.FileContent;
 import org.heig.team04.dataobject.service.exceptions.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * This class is the controller of the application.
@@ -17,11 +44,27 @@ import java.util.Arrays;
 @RestController
 @RequestMapping("/data-object")
 public class AppController {
+    // Size of the buffer used to copy object content to the response
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    // Media type of the listings, one JSON document per line
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    // Longest time to live of a presigned URL accepted by the S3 service, 7 days
+    static final int MAX_LINK_TTL = 7 * 24 * 60 * 60;
+
     // The service of the application
     private final ServiceInterface service;
+    // The Cache-Control header sent with the contents
+    private final String cacheControl;
+    // The mapper writing the lines of the listings
+    private final ObjectMapper mapper;
+    // The maximum number of URIs published by one request
+    private final int maxLinks;
 
-    public AppController(ServiceInterface service) {
+    public AppController(ServiceInterface service, DataObjectProperties properties, ObjectMapper mapper) {
         this.service = service;
+        this.cacheControl = properties.getHttp().getCacheControl();
+        this.mapper = mapper;
+        this.maxLinks = properties.getHttp().getMaxLinks();
     }
 
     @PostMapping("")
@@ -48,11 +91,45 @@ public class AppController {
         }
     }
 
+    @PostMapping(value = "", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<String> create(@RequestParam String uri, InputStream content) {
+        boolean success;
+        try {
+            success = service.create(uri, content);
+        } catch (AlreadyExistsException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (ExternalServiceException e) {
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        }
+
+        if (success) {
+            return ResponseEntity.ok("Object created");
+        } else {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @PostMapping(value = "", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<String> create(@RequestParam String uri, @RequestPart MultipartFile file) {
+        try (InputStream content = file.getInputStream()) {
+            return create(uri, content);
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/content")
-    public ResponseEntity<String> read(@RequestParam String uri) {
+    public ResponseEntity<String> read(@RequestParam String uri, @RequestHeader HttpHeaders headers) {
+        ResourceInfo info;
         byte[] content;
 
         try {
+            // The validators are checked on the metadata alone, the content is only read if it changed
+            info = service.stat(uri);
+            if (isNotModified(headers, info)) {
+                return notModified(info);
+            }
+
             content = service.read(uri);
         } catch (NotFoundException | NotAnObjectException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -60,31 +137,347 @@ public class AppController {
             return ResponseEntity.internalServerError().body(e.getMessage());
         }
 
-        return ResponseEntity.ok().body(Arrays.toString(content));
+        return ResponseEntity.ok()
+                .headers(validators(info))
+                .body(Arrays.toString(content));
+    }
+
+    @GetMapping("/download")
+    public ResponseEntity<StreamingResponseBody> download(@RequestParam String uri, @RequestHeader HttpHeaders headers) {
+        ResourceInfo info;
+        try {
+            info = service.stat(uri);
+        } catch (NotFoundException | NotAnObjectException e) {
+            return ResponseEntity.badRequest().body(message(e.getMessage()));
+        } catch (ExternalServiceException e) {
+            return ResponseEntity.internalServerError().body(message(e.getMessage()));
+        }
+
+        if (isNotModified(headers, info)) {
+            return notModified(info);
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = headers.getRange();
+        } catch (IllegalArgumentException e) {
+            // A malformed Range header is ignored, the whole object is sent
+            ranges = List.of();
+        }
+
+        boolean acceptsGzip = acceptsGzip(headers);
+        if (!ranges.isEmpty() && isRangeCurrent(headers, info)) {
+            return downloadRanges(uri, info, ranges, acceptsGzip);
+        }
+
+        return downloadWhole(uri, info, acceptsGzip);
+    }
+
+    /**
+     * Send the whole content of an object.
+     * An object stored compressed is sent as it is to a client accepting gzip, and decompressed while it is sent to the others,
+     * without a Content-Length when its uncompressed length is unknown.
+     * @param uri the URI of the object
+     * @param info the metadata of the object
+     * @param acceptsGzip true if the client accepts a gzip content
+     * @return the content of the object
+     */
+    private ResponseEntity<StreamingResponseBody> downloadWhole(String uri, ResourceInfo info, boolean acceptsGzip) {
+        ObjectStream object;
+
+        try {
+            object = acceptsGzip ? service.readEncoded(uri) : service.readStream(uri);
+        } catch (NotFoundException | NotAnObjectException e) {
+            return ResponseEntity.badRequest().body(message(e.getMessage()));
+        } catch (ExternalServiceException e) {
+            return ResponseEntity.internalServerError().body(message(e.getMessage()));
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .headers(validators(info))
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentType(mediaTypeOf(object.contentType()));
+        if (object.contentLength() >= 0) {
+            response.contentLength(object.contentLength());
+        }
+        return encoded(response, object).body(copyOf(object));
+    }
+
+    /**
+     * Send only the requested ranges of an object, each one read with a ranged GET on S3.
+     * A single range is sent as is, several ranges as a multipart/byteranges body.
+     * The ranges of an object stored compressed are ranges of its compressed content: a single one is sent compressed
+     * to a client accepting gzip, otherwise the whole object is sent instead.
+     * @param uri the URI of the object
+     * @param info the metadata of the object
+     * @param ranges the requested ranges
+     * @param acceptsGzip true if the client accepts a gzip content
+     * @return a partial content response, a range not satisfiable response, or the whole object
+     */
+    private ResponseEntity<StreamingResponseBody> downloadRanges(String uri, ResourceInfo info, List<HttpRange> ranges, boolean acceptsGzip) {
+        // The bounds of the ranges are checked against the size of the content they refer to, the compressed one if the object is
+        if (info.isCompressed() && (ranges.size() > 1 || !acceptsGzip)) {
+            return downloadWhole(uri, info, acceptsGzip);
+        }
+        long size = info.size();
+
+        List<long[]> bounds = new ArrayList<>(ranges.size());
+        try {
+            for (HttpRange range : ranges) {
+                bounds.add(new long[]{range.getRangeStart(size), range.getRangeEnd(size)});
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                    .build();
+        }
+
+        // The first range is opened now, so that errors are still reported with a status code
+        ObjectStream first;
+        try {
+            first = service.readStream(uri, bounds.get(0)[0], bounds.get(0)[1]);
+        } catch (NotFoundException | NotAnObjectException e) {
+            return ResponseEntity.badRequest().body(message(e.getMessage()));
+        } catch (ExternalServiceException e) {
+            return ResponseEntity.internalServerError().body(message(e.getMessage()));
+        }
+
+        if (first.contentEncoding() != null && (bounds.size() > 1 || !acceptsGzip)) {
+            try {
+                first.close();
+            } catch (IOException e) {
+                // The range is not sent, the whole object is read again
+            }
+            return downloadWhole(uri, info, acceptsGzip);
+        }
+
+        if (bounds.size() == 1) {
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .headers(validators(info))
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .header(HttpHeaders.CONTENT_RANGE, contentRange(bounds.get(0), size))
+                    .contentLength(first.contentLength())
+                    .contentType(mediaTypeOf(first.contentType()));
+            return encoded(response, first).body(copyOf(first));
+        }
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        String partType = first.contentType();
+        StreamingResponseBody body = out -> {
+            for (int i = 0; i < bounds.size(); i++) {
+                long[] bound = bounds.get(i);
+                ObjectStream part = i == 0 ? first : openRange(uri, bound);
+                String partHeaders = "\r\n--" + boundary + "\r\n"
+                        + HttpHeaders.CONTENT_TYPE + ": " + partType + "\r\n"
+                        + HttpHeaders.CONTENT_RANGE + ": " + contentRange(bound, size) + "\r\n\r\n";
+                out.write(partHeaders.getBytes(StandardCharsets.US_ASCII));
+                copy(part, out);
+            }
+            out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        };
+
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .headers(validators(info))
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary))
+                .body(body);
+    }
+
+    /**
+     * Check if the client accepts a gzip content, from the Accept-Encoding header of the request.
+     * An encoding given a zero quality is refused, and the wildcard accepts gzip unless gzip is refused by name.
+     * @param headers the headers of the request
+     * @return true if a gzip content can be sent
+     */
+    private static boolean acceptsGzip(HttpHeaders headers) {
+        boolean wildcard = false;
+        for (String coding : headers.getValuesAsList(HttpHeaders.ACCEPT_ENCODING)) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase();
+            boolean accepted = true;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        accepted = Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        accepted = false;
+                    }
+                }
+            }
+
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                return accepted;
+            }
+            wildcard |= name.equals("*") && accepted;
+        }
+        return wildcard;
+    }
+
+    /**
+     * Add the encoding of a content to its response, which varies with the Accept-Encoding header of the request.
+     * A content sent compressed gets a weak ETag, since it is not byte for byte the one sent to the other clients.
+     * @param response the response sending the content
+     * @param object the content
+     * @return the response
+     */
+    private static ResponseEntity.BodyBuilder encoded(ResponseEntity.BodyBuilder response, ObjectStream object) {
+        response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (object.contentEncoding() == null) {
+            return response.eTag(object.eTag());
+        }
+
+        return response.header(HttpHeaders.CONTENT_ENCODING, object.contentEncoding())
+                .eTag(object.eTag() != null ? "W/" + object.eTag() : null);
+    }
+
+    /**
+     * Open a range of an object while the response is already being written.
+     */
+    private ObjectStream openRange(String uri, long[] bound) throws IOException {
+        try {
+            return service.readStream(uri, bound[0], bound[1]);
+        } catch (ServiceException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Check the If-None-Match and If-Modified-Since headers of the request against the metadata of an object.
+     * If-Modified-Since is only considered without If-None-Match, and ETags are compared weakly, as for a GET.
+     * Unlike WebRequest.checkNotModified, nothing is written to the response, which gets its validators from the entity.
+     * @param headers the headers of the request
+     * @param info the metadata of the object
+     * @return true if the client already has the current version of the object
+     */
+    private static boolean isNotModified(HttpHeaders headers, ResourceInfo info) {
+        List<String> ifNoneMatch = headers.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            // An object without an ETag can't be compared, it is always sent
+            if (info.eTag() == null) {
+                return false;
+            }
+            String eTag = weak(info.eTag());
+            return ifNoneMatch.stream().anyMatch(tag -> tag.equals("*") || weak(tag).equals(eTag));
+        }
+
+        long ifModifiedSince = headers.getIfModifiedSince();
+        return ifModifiedSince != -1 && info.lastModified() != null
+                && info.lastModified().getEpochSecond() <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * Check the If-Range header of the request against the metadata of an object, so that ranges of another version are not sent.
+     * An ETag is compared strongly, and a date only matches the exact Last-Modified date of the object.
+     * @param headers the headers of the request
+     * @param info the metadata of the object
+     * @return true if the requested ranges can be sent, false if the whole object must be sent instead
+     */
+    private static boolean isRangeCurrent(HttpHeaders headers, ResourceInfo info) {
+        String ifRange = headers.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(info.eTag());
+        }
+
+        try {
+            long date = headers.getFirstDate(HttpHeaders.IF_RANGE);
+            return info.lastModified() != null && info.lastModified().getEpochSecond() == date / 1000;
+        } catch (IllegalArgumentException e) {
+            // A malformed If-Range header matches no version
+            return false;
+        }
+    }
+
+    private static String weak(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
+
+    private <T> ResponseEntity<T> notModified(ResourceInfo info) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .headers(validators(info))
+                .build();
+    }
+
+    /**
+     * Build the validators and the caching policy sent with the content of an object.
+     * @param info the metadata of the object
+     * @return the ETag, Last-Modified and Cache-Control headers
+     */
+    private HttpHeaders validators(ResourceInfo info) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(info.eTag());
+        if (info.lastModified() != null) {
+            headers.setLastModified(info.lastModified());
+        }
+        headers.setCacheControl(cacheControl);
+        return headers;
+    }
+
+    private static String contentRange(long[] bound, long size) {
+        return "bytes " + bound[0] + "-" + bound[1] + "/" + size;
     }
 
     @PutMapping("")
     public ResponseEntity<String> update(@RequestParam String uri, @RequestBody SourceDTO source) {
-        boolean success;
+        boolean updated;
         try {
             if (source.getUrl().equals("")) {
-                success = service.update(uri, source.getContent());
+                updated = service.update(uri, source.getContent());
             } else {
-                success = service.update(uri, source.getUrl());
+                updated = service.update(uri, source.getUrl());
             }
         } catch (NotFoundException | NotAnObjectException | InvalidURLException | URLNotAccessibleException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (ConcurrentUpdateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (ExternalServiceException e) {
             return ResponseEntity.internalServerError().body(e.getMessage());
         }
 
-        if (success) {
-            return ResponseEntity.ok("Object updated");
-        } else {
-            return ResponseEntity.internalServerError().build();
+        // An object already holding the content is left as it is
+        return ResponseEntity.ok(updated ? "Object updated" : "Object unchanged");
+    }
+
+    @PutMapping(value = "", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<String> update(@RequestParam String uri, InputStream content) {
+        boolean updated;
+        try {
+            updated = service.update(uri, content);
+        } catch (NotFoundException | NotAnObjectException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (ConcurrentUpdateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (ExternalServiceException e) {
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        }
+
+        // An object already holding the content is left as it is
+        return ResponseEntity.ok(updated ? "Object updated" : "Object unchanged");
+    }
+
+    @PutMapping(value = "", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<String> update(@RequestParam String uri, @RequestPart MultipartFile file) {
+        try (InputStream content = file.getInputStream()) {
+            return update(uri, content);
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(e.getMessage());
         }
     }
 
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<String> uploadTooLarge(MaxUploadSizeExceededException e) {
+        // Only the multipart uploads are spooled by the container and limited, a raw stream is not
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body("File too large for a multipart upload, send it as " + MediaType.APPLICATION_OCTET_STREAM_VALUE);
+    }
+
     @DeleteMapping("")
     public ResponseEntity<String> delete(@RequestParam String uri, @RequestParam(defaultValue = "false") boolean recursive) {
         boolean success;
@@ -103,8 +496,48 @@ public class AppController {
         }
     }
 
+    @PostMapping("/copy")
+    public ResponseEntity<String> copy(@RequestParam String uri, @RequestParam String target, @RequestParam(defaultValue = "false") boolean recursive) {
+        boolean success;
+        try {
+            success = service.copy(uri, target, recursive);
+        } catch (NotFoundException | AlreadyExistsException | CopyCollectionNoRecursiveException | CopyIntoItselfException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (ExternalServiceException e) {
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        }
+
+        if (success) {
+            return ResponseEntity.ok("Object copied");
+        } else {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @PostMapping("/move")
+    public ResponseEntity<String> move(@RequestParam String uri, @RequestParam String target, @RequestParam(defaultValue = "false") boolean recursive) {
+        boolean success;
+        try {
+            success = service.move(uri, target, recursive);
+        } catch (NotFoundException | AlreadyExistsException | CopyCollectionNoRecursiveException | CopyIntoItselfException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (ExternalServiceException e) {
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        }
+
+        if (success) {
+            return ResponseEntity.ok("Object moved");
+        } else {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @GetMapping("/link")
     public ResponseEntity<String> publish(@RequestParam String uri, @RequestParam(defaultValue = "1800") int ttl) {
+        if (!isValidTtl(ttl)) {
+            return ResponseEntity.badRequest().body("Invalid ttl: " + ttl);
+        }
+
         String link = "";
         try {
             link = service.publish(uri, ttl);
@@ -116,6 +549,115 @@ public class AppController {
         return ResponseEntity.ok(link);
     }
 
+    @PostMapping("/links")
+    public ResponseEntity<?> publish(@RequestBody(required = false) List<String> uris, @RequestParam(defaultValue = "1800") int ttl) {
+        if (!isValidTtl(ttl)) {
+            return ResponseEntity.badRequest().body("Invalid ttl: " + ttl);
+        }
+        if (uris == null || uris.contains(null)) {
+            return ResponseEntity.badRequest().body("Invalid URIs: a list of URIs is expected");
+        }
+        if (uris.size() > maxLinks) {
+            return ResponseEntity.badRequest().body("Too many URIs: " + uris.size() + ", at most " + maxLinks);
+        }
+
+        return ResponseEntity.ok(service.publish(uris, ttl));
+    }
+
+    /**
+     * @param ttl the time to live of a presigned URL in seconds
+     * @return true if the S3 service can sign a URL valid for that time
+     */
+    static boolean isValidTtl(int ttl) {
+        return ttl > 0 && ttl <= MAX_LINK_TTL;
+    }
+
+    /**
+     * List a bucket or folder as NDJSON, one entry per line, written as the pages of the listing are fetched.
+     * When the listing stops before its end, at the limit or on an error, its last line holds a cursor to resume it from.
+     * @param uri the URI of the bucket or folder
+     * @param recursive true to list every object under the collection, false to list only its direct objects and folders
+     * @param cursor the cursor returned by a previous listing, to resume it
+     * @param limit the maximum number of entries to list, 0 for all of them
+     * @return the streamed listing
+     */
+    @GetMapping("/list")
+    public ResponseEntity<StreamingResponseBody> list(@RequestParam String uri, @RequestParam(defaultValue = "false") boolean recursive,
+                                                      @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "0") int limit) {
+        if (limit < 0) {
+            return ResponseEntity.badRequest().body(message("Invalid limit: " + limit));
+        }
+
+        String startAfter;
+        try {
+            startAfter = cursor != null ? new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(message("Invalid cursor: " + cursor));
+        }
+
+        Stream<ListEntry> entries;
+        try {
+            entries = service.list(uri, recursive, startAfter);
+        } catch (NotFoundException | NotACollectionException e) {
+            return ResponseEntity.badRequest().body(message(e.getMessage()));
+        } catch (ExternalServiceException e) {
+            return ResponseEntity.internalServerError().body(message(e.getMessage()));
+        }
+
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(out -> writeListing(entries, startAfter, limit, out));
+    }
+
+    /**
+     * Write the entries of a listing to the response, one JSON line each, then close the listing.
+     * @param entries the entries of the listing
+     * @param startAfter the position the listing started after, null for its start
+     * @param limit the maximum number of entries to write, 0 for all of them
+     * @param out the output to write to
+     * @throws IOException if an error occurs while writing the output
+     */
+    private void writeListing(Stream<ListEntry> entries, String startAfter, int limit, OutputStream out) throws IOException {
+        try (entries) {
+            Iterator<ListEntry> iterator = entries.iterator();
+            String position = startAfter;
+            int count = 0;
+            try {
+                while (iterator.hasNext()) {
+                    if (limit > 0 && count == limit) {
+                        writeLine(out, Map.of("cursor", cursorOf(position)));
+                        return;
+                    }
+
+                    ListEntry entry = iterator.next();
+                    writeLine(out, entry);
+                    position = entry.position();
+                    count++;
+                }
+            } catch (RuntimeException e) {
+                // The status is already sent, the error ends the listing instead
+                Map<String, String> error = new LinkedHashMap<>();
+                error.put("error", e.getMessage());
+                if (position != null) {
+                    error.put("cursor", cursorOf(position));
+                }
+                writeLine(out, error);
+            }
+        }
+    }
+
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(mapper.writeValueAsBytes(value));
+        out.write('\n');
+    }
+
+    /**
+     * Encode the position of the last listed entry as an opaque cursor.
+     */
+    private static String cursorOf(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
     @GetMapping("")
     public ResponseEntity<String> exists(@RequestParam String uri) {
         boolean exists;
@@ -126,4 +668,47 @@ public class AppController {
         }
         return ResponseEntity.ok(String.valueOf(exists));
     }
+
+    /**
+     * Stream the content of an object to the response with a fixed-size buffer, then close it.
+     * @param object the object to stream
+     * @return the body writing the object
+     */
+    private static StreamingResponseBody copyOf(ObjectStream object) {
+        return out -> copy(object, out);
+    }
+
+    /**
+     * Copy the content of an object to the given output, then close it.
+     * @param object the object to copy
+     * @param out the output to write to
+     * @throws IOException if an error occurs while reading the object or writing the output
+     */
+    private static void copy(ObjectStream object, OutputStream out) throws IOException {
+        try (object) {
+            // A content cached on disk is sent by its file channel
+            if (object.content() instanceof FileContent file) {
+                file.transferTo(out);
+                return;
+            }
+
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            int read;
+            while ((read = object.content().read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private static StreamingResponseBody message(String message) {
+        return out -> out.write(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MediaType mediaTypeOf(String contentType) {
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
 }
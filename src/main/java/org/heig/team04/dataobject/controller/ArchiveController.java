@@ -0,0 +1,98 @@
+package org.heig.team04.dataobject.controller;
+
+import org.heig.team04.dataobject.service.ArchiveExporter;
+import org.heig.team04.dataobject.service.ArchiveFormat;
+import org.heig.team04.dataobject.service.ArchiveImporter;
+import org.heig.team04.dataobject.service.ImportResult;
+import org.heig.team04.dataobject.service.ListEntry;
+import org.heig.team04.dataobject.service.exceptions.*;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * This class is the controller of the bulk operations of the application, which carry many objects in one archive.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see AppController
+ */
+@RestController
+@RequestMapping("/data-object")
+public class ArchiveController {
+    // The importer creating the objects of the uploaded archives
+    private final ArchiveImporter importer;
+    // The exporter writing the objects of the downloaded archives
+    private final ArchiveExporter exporter;
+
+    public ArchiveController(ArchiveImporter importer, ArchiveExporter exporter) {
+        this.importer = importer;
+        this.exporter = exporter;
+    }
+
+    /**
+     * Create an object under the given URI for every file of the archive sent as the body of the request.
+     * The archive is unpacked as it is received, and its files uploaded while the next ones are read.
+     * @param uri the URI of the bucket or folder receiving the files
+     * @param contentType the media type of the archive: a tar, a gzipped tar or a zip
+     * @param content the archive
+     * @return the result of every file, under the URI of its object
+     */
+    @PostMapping(value = "/bulk", consumes = {"application/x-tar", "application/gzip", "application/x-gzip", "application/x-gtar",
+            "application/zip", "application/x-zip-compressed"})
+    public ResponseEntity<Map<String, ImportResult>> importArchive(@RequestParam String uri, @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                                   InputStream content) {
+        ArchiveFormat format = ArchiveFormat.fromMediaType(contentType.getType() + "/" + contentType.getSubtype());
+        try {
+            return ResponseEntity.ok(importer.importArchive(uri, content, format));
+        } catch (InvalidArchiveException e) {
+            return ResponseEntity.badRequest().body(Map.of(uri, ImportResult.failure(e.getMessage())));
+        }
+    }
+
+    /**
+     * Download all the objects of a bucket or folder as an archive, written as the objects are listed and read.
+     * An error once the archive has started leaves it unfinished, which its reader detects.
+     * @param uri the URI of the bucket or folder
+     * @param format the extension of the archive: tar, tar.gz or zip
+     * @return the streamed archive
+     */
+    @GetMapping("/archive")
+    public ResponseEntity<StreamingResponseBody> exportArchive(@RequestParam String uri, @RequestParam(defaultValue = "zip") String format) {
+        ArchiveFormat archiveFormat = ArchiveFormat.fromExtension(format);
+        if (archiveFormat == null) {
+            return ResponseEntity.badRequest().body(message("Invalid archive format: " + format));
+        }
+
+        Stream<ListEntry> entries;
+        try {
+            entries = exporter.list(uri);
+        } catch (NotFoundException | NotACollectionException e) {
+            return ResponseEntity.badRequest().body(message(e.getMessage()));
+        } catch (ExternalServiceException e) {
+            return ResponseEntity.internalServerError().body(message(e.getMessage()));
+        }
+
+        // The archive is named after the collection
+        String path = uri.endsWith("/") ? uri.substring(0, uri.length() - 1) : uri;
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(archiveFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(name + "." + archiveFormat.getExtension(), StandardCharsets.UTF_8).build().toString())
+                .body(out -> exporter.write(uri, entries, archiveFormat, out));
+    }
+
+    private static StreamingResponseBody message(String message) {
+        return out -> out.write(message.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,111 @@
+package org.heig.team04.dataobject.controller;
+
+import org.heig.team04.dataobject.dto.SourceDTO;
+import org.heig.team04.dataobject.service.AsyncServiceInterface;
+import org.heig.team04.dataobject.service.exceptions.*;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * This class is the non-blocking controller of the application.
+ * It exposes the same endpoints as AppController under /async, but returns deferred results:
+ * the request thread is released while the S3 requests are outstanding.
+ * Only the S3 service has a non-blocking implementation, so these endpoints do not exist under the "memory" and "filesystem" profiles.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see AppController
+ */
+@RestController
+@RequestMapping("/async/data-object")
+@Profile("!memory & !filesystem")
+public class AsyncAppController {
+    // The non-blocking service of the application
+    private final AsyncServiceInterface service;
+
+    public AsyncAppController(AsyncServiceInterface service) {
+        this.service = service;
+    }
+
+    @PostMapping("")
+    public CompletableFuture<ResponseEntity<String>> create(@RequestParam String uri, @RequestBody SourceDTO source) {
+        CompletableFuture<Boolean> creation = source.getUrl().equals("")
+                ? service.create(uri, source.getContent())
+                : service.create(uri, source.getUrl());
+
+        return creation
+                .thenApply(success -> success
+                        ? ResponseEntity.ok("Object created")
+                        : ResponseEntity.internalServerError().<String>build())
+                .exceptionally(AsyncAppController::toErrorResponse);
+    }
+
+    @GetMapping("/content")
+    public CompletableFuture<ResponseEntity<String>> read(@RequestParam String uri) {
+        return service.read(uri)
+                .thenApply(content -> ResponseEntity.ok().body(Arrays.toString(content)))
+                .exceptionally(AsyncAppController::toErrorResponse);
+    }
+
+    @PutMapping("")
+    public CompletableFuture<ResponseEntity<String>> update(@RequestParam String uri, @RequestBody SourceDTO source) {
+        CompletableFuture<Boolean> update = source.getUrl().equals("")
+                ? service.update(uri, source.getContent())
+                : service.update(uri, source.getUrl());
+
+        // An object already holding the content is left as it is
+        return update
+                .thenApply(updated -> ResponseEntity.ok(updated ? "Object updated" : "Object unchanged"))
+                .exceptionally(AsyncAppController::toErrorResponse);
+    }
+
+    @DeleteMapping("")
+    public CompletableFuture<ResponseEntity<String>> delete(@RequestParam String uri, @RequestParam(defaultValue = "false") boolean recursive) {
+        return service.delete(uri, recursive)
+                .thenApply(success -> success
+                        ? ResponseEntity.ok("Object deleted")
+                        : ResponseEntity.internalServerError().<String>build())
+                .exceptionally(AsyncAppController::toErrorResponse);
+    }
+
+    @GetMapping("/link")
+    public CompletableFuture<ResponseEntity<String>> publish(@RequestParam String uri, @RequestParam(defaultValue = "1800") int ttl) {
+        if (!AppController.isValidTtl(ttl)) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Invalid ttl: " + ttl));
+        }
+        return service.publish(uri, ttl)
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(AsyncAppController::toErrorResponse);
+    }
+
+    @GetMapping("")
+    public CompletableFuture<ResponseEntity<String>> exists(@RequestParam String uri) {
+        return service.exists(uri)
+                .thenApply(exists -> ResponseEntity.ok(String.valueOf(exists)))
+                .exceptionally(AsyncAppController::toErrorResponse);
+    }
+
+    /**
+     * Map the failure of a service future to the response AppController gives for the same exception.
+     * @param e the exception the future failed with
+     * @return a conflict for the concurrent updates, a bad request for the other client errors, an internal server error otherwise
+     */
+    private static ResponseEntity<String> toErrorResponse(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+
+        if (cause instanceof ConcurrentUpdateException) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(cause.getMessage());
+        }
+        if (cause instanceof ServiceException && !(cause instanceof ExternalServiceException)) {
+            return ResponseEntity.badRequest().body(cause.getMessage());
+        }
+        return ResponseEntity.internalServerError().body(cause.getMessage());
+    }
+}
@@ -0,0 +1,213 @@
+package org.heig.team04.dataobject.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The service operation in progress on the current thread, which the S3 requests it sends are attributed to.
+ * It is carried over to the tasks the operation submits to an executor wrapped by {@link #propagating}.
+ * Scopes nest: an HTTP request is the scope of the operations it calls, and is charged with their S3 requests too.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public final class OperationScope implements AutoCloseable {
+    private static final ThreadLocal<OperationScope> CURRENT = new ThreadLocal<>();
+    private final String operation;
+    private final OperationScope previous;
+    private final AtomicInteger s3Requests = new AtomicInteger();
+    private final AtomicLong s3Nanos = new AtomicLong();
+    private final AtomicLong s3BytesSent = new AtomicLong();
+    private final AtomicLong s3BytesReceived = new AtomicLong();
+    private final Map<String, S3Calls> s3Breakdown = new ConcurrentHashMap<>();
+
+    /**
+     * The S3 requests of a scope with the same API and status.
+     */
+    public static class S3Calls {
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+
+        public int count() {
+            return count.get();
+        }
+
+        public long nanos() {
+            return nanos.get();
+        }
+
+        /**
+         * @return the bytes of content sent and received by the requests
+         */
+        public long bytes() {
+            return bytes.get();
+        }
+    }
+
+    private OperationScope(String operation, OperationScope previous) {
+        this.operation = operation;
+        this.previous = previous;
+    }
+
+    /**
+     * Start an operation on the current thread, until the scope is closed.
+     * @param operation the name of the operation
+     * @return the scope of the operation
+     */
+    public static OperationScope open(String operation) {
+        OperationScope scope = new OperationScope(operation, CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * @return the operation in progress on the current thread, null if there is none
+     */
+    public static OperationScope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Count an S3 request sent by the operation, and by the scopes it is nested in.
+     * @param api the name of the S3 API
+     * @param status the HTTP status of the response, or the kind of error without one
+     * @param nanos the duration of the request
+     * @param bytesSent the bytes of content sent
+     * @param bytesReceived the bytes of content received
+     */
+    public void recordS3Request(String api, String status, long nanos, long bytesSent, long bytesReceived) {
+        for (OperationScope scope = this; scope != null; scope = scope.previous) {
+            scope.s3Requests.incrementAndGet();
+            scope.s3Nanos.addAndGet(nanos);
+            scope.s3BytesSent.addAndGet(bytesSent);
+            scope.s3BytesReceived.addAndGet(bytesReceived);
+
+            S3Calls calls = scope.s3Breakdown.computeIfAbsent(api + " " + status, call -> new S3Calls());
+            calls.count.incrementAndGet();
+            calls.nanos.addAndGet(nanos);
+            calls.bytes.addAndGet(bytesSent + bytesReceived);
+        }
+    }
+
+    public String operation() {
+        return operation;
+    }
+
+    /**
+     * @return the number of S3 requests sent by the operation so far
+     */
+    public int s3Requests() {
+        return s3Requests.get();
+    }
+
+    /**
+     * @return the time spent in the S3 requests of the operation so far, summed over the concurrent ones
+     */
+    public long s3Nanos() {
+        return s3Nanos.get();
+    }
+
+    public long s3BytesSent() {
+        return s3BytesSent.get();
+    }
+
+    public long s3BytesReceived() {
+        return s3BytesReceived.get();
+    }
+
+    /**
+     * @return the S3 requests of the operation so far, by API and status, such as "ListObjectsV2 200"
+     */
+    public Map<String, S3Calls> s3Breakdown() {
+        return Map.copyOf(s3Breakdown);
+    }
+
+    /**
+     * End the operation on the current thread, giving it back the operation that was in progress before.
+     */
+    @Override
+    public void close() {
+        if (CURRENT.get() == this) {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Wrap an executor so that its tasks run in the operation that submitted them.
+     * @param executor the executor
+     * @return the wrapped executor, which shuts down the given one
+     */
+    public static ExecutorService propagating(ExecutorService executor) {
+        return new PropagatingExecutorService(executor);
+    }
+
+    /**
+     * Executor service running its tasks in the scope captured when they were submitted.
+     */
+    private static class PropagatingExecutorService extends AbstractExecutorService {
+        private final ExecutorService executor;
+
+        PropagatingExecutorService(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            OperationScope scope = CURRENT.get();
+            if (scope == null) {
+                executor.execute(command);
+                return;
+            }
+
+            executor.execute(() -> {
+                OperationScope replaced = CURRENT.get();
+                CURRENT.set(scope);
+                try {
+                    command.run();
+                } finally {
+                    if (replaced != null) {
+                        CURRENT.set(replaced);
+                    } else {
+                        CURRENT.remove();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            executor.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return executor.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return executor.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return executor.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return executor.awaitTermination(timeout, unit);
+        }
+    }
+}
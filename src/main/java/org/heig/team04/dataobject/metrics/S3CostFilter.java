@@ -0,0 +1,186 @@
+package org.heig.team04.dataobject.metrics;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.heig.team04.dataobject.config.DataObjectProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Filter charging every HTTP request with the S3 requests of the service operations it calls.
+ * The totals are sent in the X-S3-Calls, X-S3-Time, X-S3-Bytes-Sent and X-S3-Bytes-Received response headers,
+ * as they are when the response is committed: the S3 requests sent while a streamed body is written come too late.
+ * A request over the duration or S3 request thresholds is written to the slow request log with its S3 requests
+ * by API and status.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see OperationScope
+ */
+@Component
+public class S3CostFilter extends OncePerRequestFilter {
+    private static final Logger SLOW_LOG = LoggerFactory.getLogger("org.heig.team04.dataobject.SlowRequests");
+    private final boolean costHeaders; // Whether the totals are sent in the response headers
+    private final long thresholdNanos; // Duration over which a request is slow
+    private final int s3RequestsThreshold; // Number of S3 requests over which a request is slow
+
+    /**
+     * Constructor for the S3CostFilter class.
+     * @param properties the configuration properties of the service
+     */
+    public S3CostFilter(DataObjectProperties properties) {
+        costHeaders = properties.getHttp().isS3CostHeaders();
+        thresholdNanos = properties.getSlowLog().getThreshold().toNanos();
+        s3RequestsThreshold = properties.getSlowLog().getS3Requests();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        long start = System.nanoTime();
+        OperationScope scope = OperationScope.open(request.getMethod() + " " + request.getRequestURI());
+        CostHeadersResponse wrapped = costHeaders ? new CostHeadersResponse(response, scope) : null;
+
+        try {
+            chain.doFilter(request, wrapped != null ? wrapped : response);
+        } finally {
+            scope.close();
+            if (wrapped != null) {
+                wrapped.addCostHeaders();
+            }
+
+            // An asynchronous request is only over once its response has been written
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        logIfSlow(request, response, scope, System.nanoTime() - start);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        // Completed afterwards
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        // Completed afterwards
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                        // Nothing to do
+                    }
+                });
+            } else {
+                logIfSlow(request, response, scope, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Write a request to the slow request log if it is over one of the thresholds.
+     * @param request the request
+     * @param response the response
+     * @param scope the scope of the request
+     * @param nanos the duration of the request
+     */
+    private void logIfSlow(HttpServletRequest request, HttpServletResponse response, OperationScope scope, long nanos) {
+        if (nanos < thresholdNanos && scope.s3Requests() < s3RequestsThreshold) {
+            return;
+        }
+
+        String query = request.getQueryString();
+        SLOW_LOG.warn("method={} path={} query=\"{}\" status={} durationMs={} s3Calls={} s3TimeMs={} s3BytesSent={} s3BytesReceived={} s3Breakdown=[{}]",
+                request.getMethod(), request.getRequestURI(), query != null ? query : "", response.getStatus(),
+                TimeUnit.NANOSECONDS.toMillis(nanos), scope.s3Requests(), TimeUnit.NANOSECONDS.toMillis(scope.s3Nanos()),
+                scope.s3BytesSent(), scope.s3BytesReceived(), breakdown(scope));
+    }
+
+    /**
+     * Format the S3 requests of a scope, as "API status: count calls, time, bytes" entries sorted by API.
+     */
+    private static String breakdown(OperationScope scope) {
+        Map<String, OperationScope.S3Calls> calls = new TreeMap<>(scope.s3Breakdown());
+        return calls.entrySet().stream()
+                .map(call -> call.getKey() + ": " + call.getValue().count() + " calls "
+                        + TimeUnit.NANOSECONDS.toMillis(call.getValue().nanos()) + "ms "
+                        + call.getValue().bytes() + "B")
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Response adding the totals of the S3 requests to its headers just before it is committed.
+     */
+    private static class CostHeadersResponse extends HttpServletResponseWrapper {
+        private final OperationScope scope;
+        private boolean added;
+
+        CostHeadersResponse(HttpServletResponse response, OperationScope scope) {
+            super(response);
+            this.scope = scope;
+        }
+
+        void addCostHeaders() {
+            if (added || isCommitted()) {
+                return;
+            }
+            added = true;
+
+            setHeader("X-S3-Calls", String.valueOf(scope.s3Requests()));
+            setHeader("X-S3-Time", String.valueOf(TimeUnit.NANOSECONDS.toMillis(scope.s3Nanos())));
+            setHeader("X-S3-Bytes-Sent", String.valueOf(scope.s3BytesSent()));
+            setHeader("X-S3-Bytes-Received", String.valueOf(scope.s3BytesReceived()));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addCostHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addCostHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addCostHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addCostHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addCostHeaders();
+            super.sendError(sc);
+        }
+    }
+}
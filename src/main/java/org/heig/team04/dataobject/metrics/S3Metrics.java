@@ -0,0 +1,115 @@
+package org.heig.team04.dataobject.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.http.SdkHttpRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interceptor of the S3 clients recording every S3 request: its latency by API and status,
+ * and the bytes of content it sent and received.
+ * A request sent by a service operation is also counted in its {@link OperationScope}.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+@Component
+public class S3Metrics implements ExecutionInterceptor {
+    private static final ExecutionAttribute<Long> START = new ExecutionAttribute<>("DataObjectS3MetricsStart");
+    private static final ExecutionAttribute<OperationScope> SCOPE = new ExecutionAttribute<>("DataObjectS3MetricsScope");
+    private final MeterRegistry registry;
+
+    /**
+     * Constructor for the S3Metrics class.
+     * @param registry the registry the meters are published to
+     */
+    public S3Metrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes attributes) {
+        // Called on the thread sending the request, which knows the operation in progress
+        attributes.putAttribute(START, System.nanoTime());
+        OperationScope scope = OperationScope.current();
+        if (scope != null) {
+            attributes.putAttribute(SCOPE, scope);
+        }
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes attributes) {
+        String api = attributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+
+        // A HEAD response announces the length of a content it does not carry
+        SdkHttpRequest request = context.httpRequest();
+        long sent = contentLength(request.firstMatchingHeader("Content-Length").orElse(null));
+        long received = request.method() != SdkHttpMethod.HEAD
+                ? contentLength(context.httpResponse().firstMatchingHeader("Content-Length").orElse(null))
+                : 0;
+
+        record(api, String.valueOf(context.httpResponse().statusCode()), attributes, sent, received);
+        addBytes(api, "sent", sent);
+        addBytes(api, "received", received);
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes attributes) {
+        String api = attributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+        String status = context.httpResponse()
+                .map(response -> String.valueOf(response.statusCode()))
+                .orElseGet(() -> context.exception() instanceof SdkServiceException e
+                        ? String.valueOf(e.statusCode())
+                        : context.exception().getClass().getSimpleName());
+        record(api, status, attributes, 0, 0);
+    }
+
+    private void record(String api, String status, ExecutionAttributes attributes, long sent, long received) {
+        Long start = attributes.getAttribute(START);
+        long nanos = start != null ? System.nanoTime() - start : 0;
+
+        Timer.builder("data-object.s3.requests")
+                .description("Requests sent to the S3 service")
+                .tag("api", String.valueOf(api))
+                .tag("status", status)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+
+        OperationScope scope = attributes.getAttribute(SCOPE);
+        if (scope != null) {
+            scope.recordS3Request(String.valueOf(api), status, nanos, sent, received);
+        }
+    }
+
+    private void addBytes(String api, String direction, long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+
+        Counter.builder("data-object.s3.bytes")
+                .description("Bytes of content exchanged with the S3 service")
+                .baseUnit("bytes")
+                .tag("api", String.valueOf(api))
+                .tag("direction", direction)
+                .register(registry)
+                .increment(bytes);
+    }
+
+    private static long contentLength(String header) {
+        try {
+            return header != null ? Long.parseLong(header) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.heig.team04.dataobject.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aspect recording the latency and the errors of every operation of the services,
+ * along with the number of S3 requests each blocking operation needed.
+ * It applies to the calls made through the service interfaces, not to the calls of a service to itself.
+ * The time of an operation returning a stream does not include the reading of the stream.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see OperationScope
+ */
+@Aspect
+@Component
+public class ServiceMetrics {
+    private final MeterRegistry registry;
+
+    /**
+     * Constructor for the ServiceMetrics class.
+     * @param registry the registry the meters are published to
+     */
+    public ServiceMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Time an operation of the blocking service, and count the S3 requests it sends.
+     * @param call the call of the operation
+     * @return the result of the operation
+     * @throws Throwable the error of the operation
+     */
+    @Around("execution(* org.heig.team04.dataobject.service.ServiceInterface.*(..))")
+    public Object timeOperation(ProceedingJoinPoint call) throws Throwable {
+        String operation = call.getSignature().getName();
+        String service = call.getTarget().getClass().getSimpleName();
+        Throwable error = null;
+        long start = System.nanoTime();
+
+        try (OperationScope scope = OperationScope.open(operation)) {
+            try {
+                return call.proceed();
+            } catch (Throwable e) {
+                error = e;
+                throw e;
+            } finally {
+                record(service, operation, System.nanoTime() - start, error);
+                DistributionSummary.builder("data-object.operation.s3.requests")
+                        .description("S3 requests sent by a service operation")
+                        .tag("service", service)
+                        .tag("operation", operation)
+                        .register(registry)
+                        .record(scope.s3Requests());
+            }
+        }
+    }
+
+    /**
+     * Time an operation of the non-blocking service until its result completes.
+     * Its S3 requests are not counted per operation: they are mostly sent from the threads of the S3 client.
+     * @param call the call of the operation
+     * @return the result of the operation
+     * @throws Throwable the error of the operation
+     */
+    @Around("execution(* org.heig.team04.dataobject.service.AsyncServiceInterface.*(..))")
+    public Object timeAsyncOperation(ProceedingJoinPoint call) throws Throwable {
+        String operation = call.getSignature().getName();
+        String service = call.getTarget().getClass().getSimpleName();
+        long start = System.nanoTime();
+
+        Object result;
+        try {
+            result = call.proceed();
+        } catch (Throwable e) {
+            record(service, operation, System.nanoTime() - start, e);
+            throw e;
+        }
+
+        if (result instanceof CompletableFuture<?> future) {
+            future.whenComplete((value, error) -> record(service, operation, System.nanoTime() - start,
+                    error instanceof CompletionException && error.getCause() != null ? error.getCause() : error));
+        } else {
+            record(service, operation, System.nanoTime() - start, null);
+        }
+        return result;
+    }
+
+    private void record(String service, String operation, long nanos, Throwable error) {
+        String exception = error != null ? error.getClass().getSimpleName() : "none";
+
+        Timer.builder("data-object.operation")
+                .description("Operations of the data object service")
+                .tag("service", service)
+                .tag("operation", operation)
+                .tag("exception", exception)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+
+        if (error != null) {
+            Counter.builder("data-object.errors")
+                    .description("Operations of the data object service that failed, by exception")
+                    .tag("service", service)
+                    .tag("operation", operation)
+                    .tag("exception", exception)
+                    .register(registry)
+                    .increment();
+        }
+    }
+}
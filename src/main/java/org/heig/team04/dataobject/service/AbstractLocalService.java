@@ -0,0 +1,198 @@
+package org.heig.team04.dataobject.service;
+
+import org.heig.team04.dataobject.config.DataObjectProperties;
+import org.heig.team04.dataobject.service.exceptions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Operations shared by the implementations of the service that keep the objects in the process or on a local disk.
+ * They have the same bucket, folder and object semantics as the S3 service: a bucket is created by its first object,
+ * a folder exists as long as it holds an object, and an object is replaced as a whole.
+ * The links they publish point to the download endpoint of this application and do not expire.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see ServiceMemoryImpl
+ * @see ServiceFileSystemImpl
+ */
+abstract class AbstractLocalService implements ServiceInterface {
+    private final String linkBaseUrl; // Prefix of the published links
+    private final int urlConnectTimeout; // Connect timeout of the source URLs in milliseconds
+    private final int urlReadTimeout; // Read timeout of the source URLs in milliseconds
+
+    /**
+     * Constructor for the AbstractLocalService class.
+     * @param properties the configuration properties of the service
+     */
+    protected AbstractLocalService(DataObjectProperties properties) {
+        linkBaseUrl = properties.getLocal().getLinkBaseUrl();
+        urlConnectTimeout = (int) properties.getUpload().getUrlConnectTimeout().toMillis();
+        urlReadTimeout = (int) properties.getUpload().getUrlReadTimeout().toMillis();
+    }
+
+    /**
+     * Get the media type of an object from its name.
+     * @param key the path to the object
+     * @return the media type of the object
+     */
+    static String contentTypeOf(String key) {
+        String guessedType = URLConnection.guessContentTypeFromName(key);
+        return guessedType != null ? guessedType : "application/octet-stream";
+    }
+
+    /**
+     * Check the bounds of a range.
+     * @param start the position of the first byte
+     * @param end the position of the last byte, inclusive
+     */
+    static void checkRange(long start, long end) {
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Invalid range: " + start + "-" + end);
+        }
+    }
+
+    /**
+     * Check that a resource is a collection that can be listed.
+     * @param resourceUri the URI of the resource
+     * @param info the resolved resource
+     * @throws NotFoundException if the resource does not exist
+     * @throws NotACollectionException if the resource is an object
+     */
+    static void checkForList(String resourceUri, ResourceInfo info) throws NotFoundException, NotACollectionException {
+        if (!info.exists()) {
+            throw new NotFoundException(resourceUri);
+        }
+        if (!info.type().isCollection()) {
+            throw new NotACollectionException(resourceUri);
+        }
+    }
+
+    /**
+     * Turn a lazy listing into a stream, which only advances the listing as it is consumed.
+     * @param entries the entries of the listing, in the order of the keys
+     * @return the stream of the entries
+     */
+    static Stream<ListEntry> streamOf(Iterator<ListEntry> entries) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(entries, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Open a stream on the content of a file at the given URL, with the configured timeouts
+     * @param fileUrl URL of the file
+     * @return Content of the file, remembering the error of a failed read, to be closed by the caller
+     * @throws InvalidURLException if the URL is invalid
+     * @throws URLNotAccessibleException if an error occurs while connecting to the URL
+     */
+    private SourceInputStream openURL(String fileUrl) throws InvalidURLException, URLNotAccessibleException {
+        try {
+            URLConnection connection = new URL(fileUrl).openConnection();
+            connection.setConnectTimeout(urlConnectTimeout);
+            connection.setReadTimeout(urlReadTimeout);
+            return new SourceInputStream(connection.getInputStream());
+        } catch (MalformedURLException e) {
+            throw new InvalidURLException(fileUrl, e);
+        } catch (Exception e) {
+            throw new URLNotAccessibleException(fileUrl, e);
+        }
+    }
+
+    @Override
+    public boolean create(String resourceUri, String fileUrl) throws InvalidURLException, URLNotAccessibleException, AlreadyExistsException, ExternalServiceException {
+        SourceInputStream content = openURL(fileUrl);
+        try (content) {
+            return create(resourceUri, content);
+        } catch (ExternalServiceException e) {
+            // A failed read of the file is an error of its URL, not of the storage
+            if (content.failure() != null) {
+                throw new URLNotAccessibleException(fileUrl, content.failure());
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new URLNotAccessibleException(fileUrl, e);
+        }
+    }
+
+    @Override
+    public boolean update(String resourceUri, String fileUrl) throws NotFoundException, NotAnObjectException, ConcurrentUpdateException, InvalidURLException, URLNotAccessibleException, ExternalServiceException {
+        SourceInputStream content = openURL(fileUrl);
+        try (content) {
+            return update(resourceUri, content);
+        } catch (ExternalServiceException e) {
+            // A failed read of the file is an error of its URL, not of the storage
+            if (content.failure() != null) {
+                throw new URLNotAccessibleException(fileUrl, content.failure());
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new URLNotAccessibleException(fileUrl, e);
+        }
+    }
+
+    /**
+     * Open a stream on the content of the object at the given URI, which is never stored encoded.
+     * @param resourceUri The URI of the object.
+     * @return ObjectStream The content of the object, to be closed by the caller.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotAnObjectException If the URI points to a collection.
+     * @throws ExternalServiceException If an internal error occurs with the storage.
+     */
+    @Override
+    public ObjectStream readEncoded(String resourceUri) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+        return readStream(resourceUri);
+    }
+
+    @Override
+    public byte[] read(String resourceUri, long start, long end) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+        try (ObjectStream range = readStream(resourceUri, start, end)) {
+            return range.content().readAllBytes();
+        } catch (IOException e) {
+            throw new ExternalServiceException(e);
+        }
+    }
+
+    /**
+     * Get a link to the object at the given URI, served by the download endpoint of this application.
+     * The link does not expire, the time to live is only accepted for compatibility.
+     * @param resourceUri The URI of the object.
+     * @param ttl The time to live of the URL in seconds.
+     * @return String The link to the object.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotAnObjectException If the URI points to a collection.
+     * @throws ExternalServiceException If an internal error occurs with the storage.
+     */
+    @Override
+    public String publish(String resourceUri, int ttl) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+        stat(resourceUri);
+        return linkBaseUrl + URLEncoder.encode(resourceUri, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Map<String, PublishResult> publish(List<String> resourceUris, int ttl) {
+        // Every URI is resolved locally, there is nothing to batch
+        Map<String, PublishResult> results = new LinkedHashMap<>();
+        for (String resourceUri : resourceUris) {
+            try {
+                results.putIfAbsent(resourceUri, PublishResult.success(publish(resourceUri, ttl)));
+            } catch (ServiceException e) {
+                results.putIfAbsent(resourceUri, PublishResult.failure(e.getMessage()));
+            }
+        }
+        return results;
+    }
+}
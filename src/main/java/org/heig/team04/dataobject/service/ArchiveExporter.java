@@ -0,0 +1,247 @@
+package org.heig.team04.dataobject.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.heig.team04.dataobject.config.DataObjectProperties;
+import org.heig.team04.dataobject.metrics.OperationScope;
+import org.heig.team04.dataobject.service.exceptions.ExternalServiceException;
+import org.heig.team04.dataobject.service.exceptions.NotACollectionException;
+import org.heig.team04.dataobject.service.exceptions.NotAnObjectException;
+import org.heig.team04.dataobject.service.exceptions.NotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Writes all the objects of a bucket or folder as an archive, listed and read while the archive is written.
+ * The next objects of the listing are fetched by the executor while an earlier one is written, at most prefetch of them:
+ * a small object is read in memory, a bigger one only opened, and streamed to the archive when its turn comes.
+ * An object whose length is not known, such as a compressed object stored without its uncompressed length, is read in memory
+ * if it turns out to be small, and written to a temporary file otherwise, since an entry is given its size before its content.
+ * The memory held is bounded by prefetch times the biggest buffered object, whatever the size of the collection.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+@Component
+public class ArchiveExporter {
+    private final ServiceInterface service; // The service reading the objects
+    private final ExecutorService executor; // Executor of the reads of the next objects
+    private final int prefetch; // Maximum number of objects fetched ahead of the one being written, per archive
+    private final int maxBufferedEntrySize; // Size over which an object is streamed instead of buffered
+
+    /**
+     * An object fetched ahead of its turn, with the entry of the listing it was found by.
+     */
+    private record Fetched(ListEntry entry, ObjectStream object) {
+    }
+
+    /**
+     * Constructor for the ArchiveExporter class.
+     * @param service the service reading the objects
+     * @param properties the configuration properties of the service
+     */
+    public ArchiveExporter(ServiceInterface service, DataObjectProperties properties) {
+        this.service = service;
+        prefetch = properties.getArchive().getPrefetch();
+        maxBufferedEntrySize = (int) properties.getArchive().getMaxBufferedEntrySize().toBytes();
+        // The S3 requests sent by the tasks are attributed to the operation that submitted them
+        executor = OperationScope.propagating(Executors.newFixedThreadPool(properties.getArchive().getParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "archive-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * Stop the executor of the reads when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * List the objects of the collection at the given URI, to be written as an archive.
+     * The listing is checked at once, so that a missing collection is reported before anything is written.
+     * @param resourceUri the URI of the bucket or folder
+     * @return the objects of the collection, to be given to write
+     * @throws NotFoundException if the URI doesn't exist
+     * @throws NotACollectionException if the URI points to an object
+     * @throws ExternalServiceException if an error occurs with the storage
+     */
+    public Stream<ListEntry> list(String resourceUri) throws NotFoundException, NotACollectionException, ExternalServiceException {
+        return service.list(resourceUri, true, null);
+    }
+
+    /**
+     * Write the listed objects as an archive, each named by its key relative to the collection.
+     * An object deleted since it was listed is left out.
+     * @param resourceUri the URI of the listed bucket or folder
+     * @param entries the objects of the collection, closed once written
+     * @param format the format of the archive
+     * @param out the stream receiving the archive, left open
+     * @throws IOException if an object cannot be read or the archive cannot be written, which leaves it incomplete
+     */
+    public void write(String resourceUri, Stream<ListEntry> entries, ArchiveFormat format, OutputStream out) throws IOException {
+        String prefix = resourceUri.endsWith("/") ? resourceUri : resourceUri + "/";
+        Deque<Future<Fetched>> pendingObjects = new ArrayDeque<>(prefetch);
+
+        try (entries) {
+            ArchiveOutputStream archive = format.create(new NonClosingOutputStream(out));
+            Iterator<ListEntry> iterator = entries.iterator();
+            while (pendingObjects.size() < prefetch && iterator.hasNext()) {
+                pendingObjects.add(fetch(iterator.next()));
+            }
+
+            while (!pendingObjects.isEmpty()) {
+                Fetched fetched = getFetched(pendingObjects.poll());
+                // The window is refilled before the object is written, so the next reads overlap with its writing
+                if (iterator.hasNext()) {
+                    pendingObjects.add(fetch(iterator.next()));
+                }
+                if (fetched == null) {
+                    continue;
+                }
+
+                try (ObjectStream object = fetched.object()) {
+                    String name = fetched.entry().uri().substring(prefix.length());
+                    archive.putArchiveEntry(format.entry(name, object.contentLength(), fetched.entry().lastModified()));
+                    object.content().transferTo(archive);
+                    archive.closeArchiveEntry();
+                }
+            }
+            // On an error the archive is left unfinished, so that it cannot be taken for a complete one
+            archive.finish();
+            archive.close();
+        } finally {
+            discard(pendingObjects);
+        }
+    }
+
+    /**
+     * Start fetching an object: read it in memory if it is small, or only open it.
+     * @param entry the entry of the object in the listing
+     * @return the pending object, null once fetched if it has been deleted since it was listed
+     */
+    private Future<Fetched> fetch(ListEntry entry) {
+        return executor.submit(() -> {
+            ObjectStream object;
+            try {
+                object = service.readStream(entry.uri());
+            } catch (NotFoundException | NotAnObjectException e) {
+                return null;
+            }
+            if (object.contentLength() > maxBufferedEntrySize) {
+                return new Fetched(entry, object);
+            }
+
+            try (object) {
+                // One byte more than buffered tells an object of unknown length too big to be buffered
+                byte[] head = object.content().readNBytes(maxBufferedEntrySize + 1);
+                if (head.length > maxBufferedEntrySize) {
+                    return new Fetched(entry, spool(head, object));
+                }
+                return new Fetched(entry, new ObjectStream(new ByteArrayInputStream(head), head.length, object.contentType(), object.eTag()));
+            }
+        });
+    }
+
+    /**
+     * Write an object of unknown length to a temporary file, deleted once the returned stream is closed.
+     * @param head the first bytes of the object, already read
+     * @param object the object, read to its end
+     * @return the content of the object read from the file, with its length
+     * @throws IOException if the object cannot be read or the file cannot be written
+     */
+    private static ObjectStream spool(byte[] head, ObjectStream object) throws IOException {
+        Path file = Files.createTempFile("archive-", ".part");
+        try {
+            long length;
+            try (OutputStream spooled = Files.newOutputStream(file)) {
+                spooled.write(head);
+                length = head.length + object.content().transferTo(spooled);
+            }
+            return new ObjectStream(Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE), length, object.contentType(), object.eTag());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private static Fetched getFetched(Future<Fetched> pendingObject) throws IOException {
+        try {
+            return pendingObject.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching an object");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Close the objects fetched for an archive that is not written to its end.
+     * They are waited for rather than cancelled, since a cancelled read may have opened its object already.
+     */
+    private static void discard(Deque<Future<Fetched>> pendingObjects) {
+        for (Future<Fetched> pendingObject : pendingObjects) {
+            try {
+                Fetched fetched = pendingObject.get();
+                if (fetched != null) {
+                    fetched.object().close();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pendingObject.cancel(true);
+            } catch (ExecutionException | IOException e) {
+                // Nothing left open
+            }
+        }
+    }
+
+    /**
+     * Stream finishing the archive without closing the response it is written to.
+     */
+    private static final class NonClosingOutputStream extends OutputStream {
+        private final OutputStream out;
+
+        private NonClosingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.heig.team04.dataobject.service;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Formats of the archives of the bulk endpoints, each read and written as a stream, one entry after the other.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public enum ArchiveFormat {
+    TAR("application/x-tar", "tar"),
+    TAR_GZIP("application/gzip", "tar.gz"),
+    ZIP("application/zip", "zip");
+
+    // Size of the buffer of the compression of the gzipped archives
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    private final String mediaType;
+    private final String extension;
+
+    ArchiveFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    /**
+     * @return the media type of the archives of this format
+     */
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return the extension of the names of the archives of this format, without its dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Get the format of the archives with the given extension.
+     * @param extension the extension, without its dot
+     * @return the format, null if the extension is not the one of an accepted archive
+     */
+    public static ArchiveFormat fromExtension(String extension) {
+        return switch (extension.toLowerCase()) {
+            case "tar" -> TAR;
+            case "tar.gz", "tgz" -> TAR_GZIP;
+            case "zip" -> ZIP;
+            default -> null;
+        };
+    }
+
+    /**
+     * Get the format of the archives of the given media type.
+     * @param mediaType the media type, without its parameters
+     * @return the format, null if the media type is not the one of an accepted archive
+     */
+    public static ArchiveFormat fromMediaType(String mediaType) {
+        return switch (mediaType.toLowerCase()) {
+            case "application/x-tar" -> TAR;
+            case "application/gzip", "application/x-gzip", "application/x-gtar" -> TAR_GZIP;
+            case "application/zip", "application/x-zip-compressed" -> ZIP;
+            default -> null;
+        };
+    }
+
+    /**
+     * Start reading an archive of this format.
+     * @param archive the content of the archive, closed with the returned stream
+     * @return the stream of the entries of the archive
+     * @throws IOException if the start of the archive cannot be read
+     */
+    public ArchiveInputStream open(InputStream archive) throws IOException {
+        return switch (this) {
+            case TAR -> new TarArchiveInputStream(archive, StandardCharsets.UTF_8.name());
+            case TAR_GZIP -> new TarArchiveInputStream(new GZIPInputStream(archive), StandardCharsets.UTF_8.name());
+            // A stored entry may be followed by its size, the stream only finds its end by looking for the descriptor
+            case ZIP -> new ZipArchiveInputStream(archive, StandardCharsets.UTF_8.name(), true, true);
+        };
+    }
+
+    /**
+     * Start writing an archive of this format.
+     * Tar entries have POSIX headers, and zip entries zip64 ones when needed, so entries of any name and size can be written.
+     * @param archive the stream receiving the archive, closed with the returned stream
+     * @return the stream of the entries of the archive
+     * @throws IOException if the start of the archive cannot be written
+     */
+    public ArchiveOutputStream create(OutputStream archive) throws IOException {
+        return switch (this) {
+            case TAR -> tar(archive);
+            case TAR_GZIP -> tar(new GZIPOutputStream(archive, GZIP_BUFFER_SIZE));
+            case ZIP -> new ZipArchiveOutputStream(archive);
+        };
+    }
+
+    /**
+     * Create an entry of an archive of this format.
+     * @param name the name of the entry
+     * @param size the size of the entry, which a tar entry must be given before its content
+     * @param lastModified the modification date of the entry, null if unknown
+     * @return the entry
+     */
+    public ArchiveEntry entry(String name, long size, Instant lastModified) {
+        Date modified = lastModified != null ? Date.from(lastModified) : new Date();
+        if (this == ZIP) {
+            ZipArchiveEntry entry = new ZipArchiveEntry(name);
+            entry.setSize(size);
+            entry.setTime(modified.getTime());
+            return entry;
+        }
+
+        TarArchiveEntry entry = new TarArchiveEntry(name, true);
+        entry.setSize(size);
+        entry.setModTime(modified);
+        return entry;
+    }
+
+    private static TarArchiveOutputStream tar(OutputStream archive) {
+        TarArchiveOutputStream tar = new TarArchiveOutputStream(archive, StandardCharsets.UTF_8.name());
+        tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+        tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        return tar;
+    }
+}
@@ -0,0 +1,203 @@
+package org.heig.team04.dataobject.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.utils.CloseShieldFilterInputStream;
+import org.apache.commons.compress.utils.CountingInputStream;
+import org.heig.team04.dataobject.config.DataObjectProperties;
+import org.heig.team04.dataobject.metrics.OperationScope;
+import org.heig.team04.dataobject.service.exceptions.InvalidArchiveException;
+import org.heig.team04.dataobject.service.exceptions.ServiceException;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Creates an object for every file of an archive, read as a stream while it is uploaded.
+ * The archive can only be read one entry after the other, so the content of a small entry is buffered
+ * and its object created by the executor while the next entries are read, at most parallelism at the same time.
+ * A bigger entry is streamed to the service as it is read, which uploads it in parts.
+ * The memory held is bounded by parallelism times the biggest buffered entry, whatever the size of the archive.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+@Component
+public class ArchiveImporter {
+    private final ServiceInterface service; // The service creating the objects
+    private final ExecutorService executor; // Executor of the creations of the buffered entries
+    private final int parallelism; // Maximum number of buffered entries being created at the same time
+    private final int maxBufferedEntrySize; // Size over which an entry is streamed instead of buffered
+
+    /**
+     * Constructor for the ArchiveImporter class.
+     * @param service the service creating the objects
+     * @param properties the configuration properties of the service
+     */
+    public ArchiveImporter(ServiceInterface service, DataObjectProperties properties) {
+        this.service = service;
+        parallelism = properties.getArchive().getParallelism();
+        maxBufferedEntrySize = (int) properties.getArchive().getMaxBufferedEntrySize().toBytes();
+        // The S3 requests sent by the tasks are attributed to the operation that submitted them
+        executor = OperationScope.propagating(Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "archive-io");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * Stop the executor of the creations when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Create an object under the given URI for every file of an archive.
+     * The directories of the archive are not created, they exist through their files.
+     * An entry is reported once, under the URI of its object: a later entry with the same name is skipped.
+     * If the archive is cut or corrupted after its first entry, the entries read until then are still created,
+     * and the error is reported under the given URI.
+     * @param resourceUri the URI of the bucket or folder receiving the files
+     * @param archive the content of the archive, read until its end but not closed
+     * @param format the format of the archive
+     * @return the result of every entry, in the order of the archive
+     * @throws InvalidArchiveException if not even the first entry of the archive can be read
+     */
+    public Map<String, ImportResult> importArchive(String resourceUri, InputStream archive, ArchiveFormat format) throws InvalidArchiveException {
+        String prefix = resourceUri.endsWith("/") ? resourceUri : resourceUri + "/";
+        Semaphore permits = new Semaphore(parallelism);
+        Map<String, Future<ImportResult>> pendingResults = new LinkedHashMap<>();
+        String readError = null;
+
+        boolean started = false;
+        // The archive is shielded, it is left open for the caller
+        try (ArchiveInputStream entries = format.open(new CloseShieldFilterInputStream(archive))) {
+            ArchiveEntry entry;
+            while ((entry = entries.getNextEntry()) != null) {
+                started = true;
+                if (entry.isDirectory()) {
+                    continue;
+                }
+
+                String key = keyOf(entry.getName());
+                String uri = prefix + (key != null ? key : entry.getName());
+                if (pendingResults.containsKey(uri)) {
+                    continue;
+                }
+                if (key == null) {
+                    pendingResults.put(uri, CompletableFuture.completedFuture(ImportResult.failure("Invalid entry name: " + entry.getName())));
+                    continue;
+                }
+                if ((entry instanceof TarArchiveEntry tarEntry && !tarEntry.isFile()) || !entries.canReadEntryData(entry)) {
+                    pendingResults.put(uri, CompletableFuture.completedFuture(ImportResult.failure("Unsupported entry: " + entry.getName())));
+                    continue;
+                }
+
+                byte[] head = entries.readNBytes(maxBufferedEntrySize + 1);
+                if (head.length <= maxBufferedEntrySize) {
+                    permits.acquire();
+                    pendingResults.put(uri, executor.submit(() -> {
+                        try {
+                            return create(uri, head);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                } else {
+                    // Shielded as well, the sequence closes each of its streams once read
+                    InputStream rest = new CloseShieldFilterInputStream(entries);
+                    pendingResults.put(uri, CompletableFuture.completedFuture(create(uri, new SequenceInputStream(new ByteArrayInputStream(head), rest))));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendingResults.values().forEach(pendingResult -> pendingResult.cancel(true));
+            readError = "Interrupted while unpacking the archive";
+        } catch (IOException e) {
+            InvalidArchiveException error = new InvalidArchiveException(resourceUri, e);
+            if (!started) {
+                throw error;
+            }
+            readError = error.getMessage();
+        }
+
+        Map<String, ImportResult> results = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<ImportResult>> pendingResult : pendingResults.entrySet()) {
+            results.put(pendingResult.getKey(), getResult(pendingResult.getValue()));
+        }
+        if (readError != null) {
+            results.put(resourceUri, ImportResult.failure(readError));
+        }
+        return results;
+    }
+
+    /**
+     * Get the key of the object of an entry relative to the receiving collection.
+     * The current directory and the root an archive may start its names with are dropped.
+     * @param name the name of the entry
+     * @return the key of the object, null if the name would leave the collection
+     */
+    static String keyOf(String name) {
+        String key = name.replace('\\', '/');
+        while (key.startsWith("./") || key.startsWith("/")) {
+            key = key.substring(key.indexOf('/') + 1);
+        }
+
+        for (String segment : key.split("/", -1)) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+                return null;
+            }
+        }
+        return key;
+    }
+
+    private ImportResult create(String uri, byte[] content) {
+        try {
+            service.create(uri, content);
+            return ImportResult.success(content.length);
+        } catch (ServiceException | RuntimeException e) {
+            return ImportResult.failure(e.getMessage());
+        }
+    }
+
+    private ImportResult create(String uri, InputStream content) {
+        CountingInputStream counted = new CountingInputStream(content);
+        try {
+            service.create(uri, counted);
+            return ImportResult.success(counted.getBytesRead());
+        } catch (ServiceException | RuntimeException e) {
+            return ImportResult.failure(e.getMessage());
+        }
+    }
+
+    private static ImportResult getResult(Future<ImportResult> pendingResult) {
+        try {
+            return pendingResult.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendingResult.cancel(true);
+            return ImportResult.failure("Interrupted");
+        } catch (ExecutionException e) {
+            return ImportResult.failure(e.getCause().getMessage());
+        } catch (CancellationException e) {
+            return ImportResult.failure("Cancelled");
+        }
+    }
+}
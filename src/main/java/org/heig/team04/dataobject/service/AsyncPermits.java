@@ -0,0 +1,58 @@
+package org.heig.team04.dataobject.service;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Semaphore of the non-blocking service: a permit is waited for with a future instead of a blocked thread.
+ * The waiting futures are given the released permits in the order they were requested.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+final class AsyncPermits {
+    private final ArrayDeque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+    private int available;
+
+    /**
+     * Constructor for the AsyncPermits class.
+     * @param permits the number of permits initially available
+     */
+    AsyncPermits(int permits) {
+        this.available = permits;
+    }
+
+    /**
+     * Acquire a permit, to be released once the work it guards is done.
+     * @return a future completed once the permit is acquired, already completed if one is available
+     */
+    CompletableFuture<Void> acquire() {
+        synchronized (this) {
+            if (available > 0) {
+                available--;
+                return CompletableFuture.completedFuture(null);
+            }
+
+            CompletableFuture<Void> permit = new CompletableFuture<>();
+            waiting.add(permit);
+            return permit;
+        }
+    }
+
+    /**
+     * Release a permit, handing it to the oldest waiting future if any.
+     */
+    void release() {
+        CompletableFuture<Void> next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                available++;
+                return;
+            }
+        }
+
+        // Completed outside of the lock, the work of the next holder runs in this thread
+        next.complete(null);
+    }
+}
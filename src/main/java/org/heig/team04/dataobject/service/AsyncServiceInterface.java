@@ -0,0 +1,78 @@
+package org.heig.team04.dataobject.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking service interface for the data object service.
+ * It mirrors ServiceInterface, but every operation returns immediately with a future.
+ * A failed future completes with a CompletionException whose cause is the ServiceException
+ * that the matching ServiceInterface method would have thrown.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see ServiceInterface
+ */
+public interface AsyncServiceInterface {
+    /**
+     * Create a new object at the given URI with the content of the given source.
+     * @param resourceUri The URI of the new object.
+     * @param fileUrl The URL of the source file.
+     * @return CompletableFuture True if the object was created, false otherwise.
+     */
+    CompletableFuture<Boolean> create(String resourceUri, String fileUrl);
+
+    /**
+     * Create a new object at the given URI with the given content.
+     * @param resourceUri The URI of the new object.
+     * @param fileContent The content of the new object.
+     * @return CompletableFuture True if the object was created, false otherwise.
+     */
+    CompletableFuture<Boolean> create(String resourceUri, byte[] fileContent);
+
+    /**
+     * Read the content of the object at the given URI.
+     * @param resourceUri The URI of the object.
+     * @return CompletableFuture The content of the object.
+     */
+    CompletableFuture<byte[]> read(String resourceUri);
+
+    /**
+     * Update the content of the object at the given URI with the content of the given source.
+     * @param resourceUri The URI of the object.
+     * @param fileUrl The URL of the source file.
+     * @return CompletableFuture True if the object was updated, false if it already held the content and was left as it is.
+     */
+    CompletableFuture<Boolean> update(String resourceUri, String fileUrl);
+
+    /**
+     * Update the content of the object at the given URI with the given content.
+     * @param resourceUri The URI of the object.
+     * @param fileContent The content of the object.
+     * @return CompletableFuture True if the object was updated, false if it already held the content and was left as it is.
+     */
+    CompletableFuture<Boolean> update(String resourceUri, byte[] fileContent);
+
+    /**
+     * Delete the object at the given URI.
+     * @param resourceUri The URI of the object.
+     * @param recursive True to delete a collection and all its content.
+     * @return CompletableFuture True if the object was deleted, false otherwise.
+     */
+    CompletableFuture<Boolean> delete(String resourceUri, boolean recursive);
+
+    /**
+     * Get a presigned URL to access the object at the given URI.
+     * @param resourceUri The URI of the object.
+     * @param ttl The time to live of the URL in seconds.
+     * @return CompletableFuture The presigned URL.
+     */
+    CompletableFuture<String> publish(String resourceUri, int ttl);
+
+    /**
+     * Check if the object at the given URI exists.
+     * @param resourceUri The URI of the object.
+     * @return CompletableFuture True if the object exists, false otherwise.
+     */
+    CompletableFuture<Boolean> exists(String resourceUri);
+}
@@ -0,0 +1,217 @@
+package org.heig.team04.dataobject.service;
+
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Uploads a stream of unknown length to the S3 service without holding it in memory, as StreamUploader does for the blocking service.
+ * The stream is a publisher, read only as fast as its parts are sent: a part is sent while the next one is received,
+ * and no more is requested until the previous part is sent, so at most three parts are held in memory for one upload.
+ * Streams smaller than one part are sent with a single PutObject request, bigger ones with a multipart upload.
+ * A write condition is sent with the request that makes the object visible: the PutObject or the CompleteMultipartUpload.
+ * Before that request, the ETag the content will have can be checked against the stored object, so that an unchanged
+ * content is not written again: a single part is not sent, and a multipart upload is aborted instead of being completed.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see StreamUploader
+ */
+class AsyncStreamUploader {
+    private final S3AsyncClient s3;
+    private final int partSize;
+
+    /**
+     * Constructor for the AsyncStreamUploader class.
+     * @param s3 the S3 client
+     * @param partSize the size of a part in bytes, at least 5 MiB as required by S3
+     */
+    AsyncStreamUploader(S3AsyncClient s3, int partSize) {
+        this.s3 = s3;
+        this.partSize = partSize;
+    }
+
+    /**
+     * Upload the given stream to the given location, unless the object already holds the same content.
+     * @param bucketName the name of the bucket
+     * @param key the path to the object
+     * @param content the content of the object, subscribed to once
+     * @param condition the conditional headers of the write, such as If-None-Match or If-Match
+     * @param isStored tells whether the object has the given ETag, computed for the content before it is written
+     * @return the size and ETag of the uploaded object, null if the object already holds the content and is left as it is,
+     * or a future failed with an IOException if the stream failed
+     */
+    CompletableFuture<ResourceInfo> upload(String bucketName, String key, Flow.Publisher<List<ByteBuffer>> content,
+                                           Consumer<AwsRequestOverrideConfiguration.Builder> condition,
+                                           Function<String, CompletableFuture<Boolean>> isStored) {
+        Upload upload = new Upload(bucketName, key, condition, isStored);
+        content.subscribe(upload);
+        return upload.result;
+    }
+
+    /**
+     * The upload of one stream, receiving its content part by part.
+     * The methods of a subscriber are never called concurrently, the fields are only changed by them
+     * or by the completion of the part they wait for, before more content is requested.
+     */
+    private final class Upload implements Flow.Subscriber<List<ByteBuffer>> {
+        private final String bucketName;
+        private final String key;
+        private final Consumer<AwsRequestOverrideConfiguration.Builder> condition;
+        private final Function<String, CompletableFuture<Boolean>> isStored;
+        private final CompletableFuture<ResourceInfo> result = new CompletableFuture<>();
+        private final List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private CompletableFuture<String> uploadId; // Started with the first full part, null while the content fits in one part
+        private byte[] part; // The part being received
+        private int partLength; // Number of bytes of the part received so far
+        private long size; // Number of bytes received so far
+
+        private Upload(String bucketName, String key, Consumer<AwsRequestOverrideConfiguration.Builder> condition,
+                       Function<String, CompletableFuture<Boolean>> isStored) {
+            this.bucketName = bucketName;
+            this.key = key;
+            this.condition = condition;
+            this.isStored = isStored;
+            part = new byte[partSize];
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            CompletableFuture<CompletedPart> previousPart = null;
+            for (ByteBuffer buffer : buffers) {
+                while (buffer.hasRemaining()) {
+                    int length = Math.min(buffer.remaining(), partSize - partLength);
+                    buffer.get(part, partLength, length);
+                    partLength += length;
+                    size += length;
+                    if (partLength == partSize) {
+                        previousPart = parts.isEmpty() ? null : parts.get(parts.size() - 1);
+                        sendPart();
+                    }
+                }
+            }
+
+            // The next content is only requested once the part before the one just sent is done, which bounds the parts held
+            if (previousPart == null) {
+                subscription.request(1);
+            } else {
+                previousPart.whenComplete((done, e) -> {
+                    if (e == null) {
+                        subscription.request(1);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            abort();
+            result.completeExceptionally(new IOException("Source stream failed: " + key, throwable));
+        }
+
+        @Override
+        public void onComplete() {
+            // The whole content fits in one part, no need for a multipart upload
+            if (uploadId == null) {
+                byte[] content = Arrays.copyOf(part, partLength);
+                isStored.apply(ContentETag.of(content))
+                        .thenCompose(stored -> stored
+                                ? CompletableFuture.<ResourceInfo>completedFuture(null)
+                                : s3.putObject(builder -> builder.bucket(bucketName).key(key).overrideConfiguration(condition),
+                                        AsyncRequestBody.fromBytes(content))
+                                .thenApply(response -> ResourceInfo.object(content.length, response.eTag())))
+                        .whenComplete(this::finish);
+                return;
+            }
+
+            if (partLength > 0) {
+                sendPart();
+            }
+            CompletableFuture.allOf(parts.toArray(new CompletableFuture[0]))
+                    .thenCompose(sent -> {
+                        List<CompletedPart> completedParts = parts.stream().map(CompletableFuture::join).toList();
+                        // The ETags of the parts are the MD5s of their content, which give the one of the object
+                        return isStored.apply(ContentETag.ofParts(completedParts.stream().map(CompletedPart::eTag).toList()))
+                                .thenCompose(stored -> stored ? abort().thenApply(aborted -> null) : complete(completedParts));
+                    })
+                    .whenComplete(this::finish);
+        }
+
+        /**
+         * Send the part received so far, after the previous ones, and start receiving the next one.
+         */
+        private void sendPart() {
+            if (uploadId == null) {
+                uploadId = s3.createMultipartUpload(builder -> builder.bucket(bucketName).key(key))
+                        .thenApply(response -> response.uploadId());
+            }
+
+            int partNumber = parts.size() + 1;
+            byte[] data = partLength == partSize ? part : Arrays.copyOf(part, partLength);
+            parts.add(uploadId.thenCompose(id -> s3.uploadPart(builder -> builder.bucket(bucketName).key(key)
+                            .uploadId(id).partNumber(partNumber), AsyncRequestBody.fromBytes(data)))
+                    .thenApply(response -> CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build())
+                    .whenComplete((sent, e) -> {
+                        // The stream is not read further once a part has failed
+                        if (e != null) {
+                            subscription.cancel();
+                            finish(null, e);
+                        }
+                    }));
+            part = new byte[partSize];
+            partLength = 0;
+        }
+
+        private CompletableFuture<ResourceInfo> complete(List<CompletedPart> completedParts) {
+            return uploadId.thenCompose(id -> s3.completeMultipartUpload(builder -> builder.bucket(bucketName).key(key)
+                            .uploadId(id).multipartUpload(upload -> upload.parts(completedParts))
+                            .overrideConfiguration(condition)))
+                    .thenApply(response -> ResourceInfo.object(size, response.eTag()));
+        }
+
+        /**
+         * Abort the multipart upload, if one was started, so that its parts are not kept by the S3 service.
+         */
+        private CompletableFuture<Void> abort() {
+            if (uploadId == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return uploadId.thenCompose(id -> s3.abortMultipartUpload(builder -> builder.bucket(bucketName).key(key).uploadId(id)))
+                    .handle((response, e) -> null);
+        }
+
+        private void finish(ResourceInfo info, Throwable e) {
+            if (result.isDone()) {
+                return;
+            }
+            if (e == null) {
+                result.complete(info);
+                return;
+            }
+
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            // A failed part leaves the upload incomplete, it is aborted before the failure is reported
+            abort().whenComplete((aborted, abortError) -> result.completeExceptionally(cause));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.heig.team04.dataobject.service;
+
+import org.heig.team04.dataobject.config.DataObjectProperties;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Decides which of the objects written to the S3 service are stored compressed, and compresses and decompresses them.
+ * An object is compressed with gzip if it is under one of the prefixes of the policy, at least minSize bytes long,
+ * and at least an eighth smaller once compressed, so that a content compressed already is stored as it is.
+ * A compressed object is stored with the gzip Content-Encoding and its uncompressed length in its metadata,
+ * so that it can be served compressed to the clients accepting it, and decompressed to the others.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+class CompressionPolicy {
+    // The content encoding of the compressed objects
+    static final String GZIP = "gzip";
+    // The metadata of a compressed object holding the length of its content once decompressed
+    static final String UNCOMPRESSED_LENGTH = "uncompressed-length";
+    // Size of the buffer of the decompression of the streams
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    private final KeyPrefixes prefixes;
+    private final long minSize;
+
+    /**
+     * Constructor for the CompressionPolicy class.
+     * @param properties the compression settings of the service
+     */
+    CompressionPolicy(DataObjectProperties.Compression properties) {
+        prefixes = KeyPrefixes.of(properties.getPrefixes());
+        minSize = properties.getMinSize().toBytes();
+    }
+
+    /**
+     * Compress the content of an object written at the given location, if the policy covers it.
+     * @param bucketName the name of the bucket
+     * @param key the path to the object
+     * @param content the content of the object
+     * @return the compressed content, null if the object is to be stored as it is
+     */
+    byte[] compress(String bucketName, String key, byte[] content) {
+        if (content.length < minSize || !prefixes.covers(bucketName, key)) {
+            return null;
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(content);
+        } catch (IOException e) {
+            // Not thrown by a stream in memory
+            throw new UncheckedIOException(e);
+        }
+        return compressed.size() <= content.length - content.length / 8 ? compressed.toByteArray() : null;
+    }
+
+    /**
+     * Record the encoding of a compressed content in the request storing it.
+     * @param builder the request storing the compressed content
+     * @param uncompressedLength the length of the content before its compression
+     * @return the request
+     */
+    static PutObjectRequest.Builder compressed(PutObjectRequest.Builder builder, long uncompressedLength) {
+        return builder.contentEncoding(GZIP).metadata(Map.of(UNCOMPRESSED_LENGTH, String.valueOf(uncompressedLength)));
+    }
+
+    /**
+     * @param contentEncoding the content encoding of an object, may be null
+     * @return true if the object is stored compressed with gzip
+     */
+    static boolean isCompressed(String contentEncoding) {
+        return GZIP.equalsIgnoreCase(contentEncoding) || "x-gzip".equalsIgnoreCase(contentEncoding);
+    }
+
+    /**
+     * Get the encoding of an object that the service decompresses.
+     * @param contentEncoding the content encoding of the object, may be null
+     * @return gzip if the object is stored compressed with gzip, null otherwise
+     */
+    static String encodingOf(String contentEncoding) {
+        return isCompressed(contentEncoding) ? GZIP : null;
+    }
+
+    /**
+     * Get the length of the content of a compressed object once decompressed.
+     * @param metadata the metadata of the object
+     * @return the length, -1 if the object was not compressed by this service and does not record it
+     */
+    static long uncompressedLength(Map<String, String> metadata) {
+        try {
+            return Long.parseLong(metadata.getOrDefault(UNCOMPRESSED_LENGTH, "-1"));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Get the length of the content of an object once decompressed.
+     * @param size the size of the object as it is stored
+     * @param contentEncoding the content encoding of the object, may be null
+     * @param metadata the metadata of the object
+     * @return the size if the object is not compressed, otherwise its uncompressed length, -1 if it does not record it
+     */
+    static long contentLength(long size, String contentEncoding, Map<String, String> metadata) {
+        return isCompressed(contentEncoding) ? uncompressedLength(metadata) : size;
+    }
+
+    /**
+     * Decompress the content of an object if it is stored compressed.
+     * @param content the content as it is stored
+     * @param contentEncoding the content encoding of the object, may be null
+     * @return the decompressed content
+     * @throws IOException if the content is not valid gzip
+     */
+    static byte[] decompress(byte[] content, String contentEncoding) throws IOException {
+        if (!isCompressed(contentEncoding)) {
+            return content;
+        }
+
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(content), GZIP_BUFFER_SIZE)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Decompress the content of an object while it is read, if it is stored compressed.
+     * @param content the content as it is stored, closed with the returned stream
+     * @param contentEncoding the content encoding of the object, may be null
+     * @return the decompressed content
+     * @throws IOException if the header of the content cannot be read or is not valid gzip
+     */
+    static InputStream decompress(InputStream content, String contentEncoding) throws IOException {
+        return isCompressed(contentEncoding) ? new GZIPInputStream(content, GZIP_BUFFER_SIZE) : content;
+    }
+}
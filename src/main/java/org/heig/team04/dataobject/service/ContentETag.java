@@ -0,0 +1,66 @@
+package org.heig.team04.dataobject.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Computes the ETag the S3 service gives to a content, so that a content can be compared with a stored object without reading it.
+ * The ETag of an object written with a single request is the MD5 of its content, and the one of a multipart upload
+ * the MD5 of the MD5s of its parts followed by their count, so it only matches if the object was uploaded with the same part size.
+ * An object encrypted with SSE-KMS or SSE-C has another ETag, which is never matched: its content is always written again.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+final class ContentETag {
+    private ContentETag() {
+    }
+
+    /**
+     * @param content the content of an object written with a single request
+     * @return the ETag of the object, quoted as returned by the S3 service
+     */
+    static String of(byte[] content) {
+        return "\"" + HexFormat.of().formatHex(md5().digest(content)) + "\"";
+    }
+
+    /**
+     * @param partETags the ETags of the parts of a multipart upload, in the order of the parts
+     * @return the ETag of the object once the upload is completed, null if a part has an ETag that is not an MD5
+     */
+    static String ofParts(List<String> partETags) {
+        MessageDigest digest = md5();
+        try {
+            for (String partETag : partETags) {
+                digest.update(HexFormat.of().parseHex(unquote(partETag)));
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return "\"" + HexFormat.of().formatHex(digest.digest()) + "-" + partETags.size() + "\"";
+    }
+
+    /**
+     * @param eTag the ETag of a stored object, may be null
+     * @param computed the ETag computed for a content, may be null
+     * @return true if the object holds the content
+     */
+    static boolean matches(String eTag, String computed) {
+        return eTag != null && computed != null && unquote(eTag).equalsIgnoreCase(unquote(computed));
+    }
+
+    private static String unquote(String eTag) {
+        return eTag.length() >= 2 && eTag.startsWith("\"") && eTag.endsWith("\"") ? eTag.substring(1, eTag.length() - 1) : eTag;
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports MD5
+            throw new IllegalStateException(e);
+        }
+    }
+}
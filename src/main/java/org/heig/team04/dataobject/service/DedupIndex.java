@@ -0,0 +1,155 @@
+package org.heig.team04.dataobject.service;
+
+import org.heig.team04.dataobject.config.DataObjectProperties;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.BucketAlreadyOwnedByYouException;
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Index of the contents written under the deduplicated prefixes, by their SHA-256 digest, kept in its own bucket.
+ * A content written again, under any URI, is copied by the S3 service from an object already holding it instead of being sent again.
+ * The S3 service has no links between objects, so the copy stays a plain object, read, listed, published and deleted as any other,
+ * and no reference has to be counted when an object is deleted.
+ * An entry names an object and the ETag it had when the content was written, and the copy is made only if the object still has it:
+ * an entry outdated by an update or a delete is never trusted, only replaced by the next write of the content.
+ * The index is a best effort: when it cannot be read or written, the content is sent as without it.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+class DedupIndex {
+    private final S3Client s3;
+    private final KeyPrefixes prefixes;
+    private final String indexBucket;
+
+    /**
+     * An object known to hold a content.
+     */
+    private record Entry(String eTag, long size, String bucketName, String key) {
+    }
+
+    /**
+     * Constructor for the DedupIndex class.
+     * @param s3 the S3 client
+     * @param properties the deduplication settings of the service
+     */
+    DedupIndex(S3Client s3, DataObjectProperties.Dedup properties) {
+        this.s3 = s3;
+        indexBucket = properties.getIndexBucket();
+        prefixes = KeyPrefixes.of(indexBucket != null ? properties.getPrefixes() : List.of());
+    }
+
+    /**
+     * @param bucketName the name of the bucket of the object
+     * @param key the path to the object
+     * @return true if the contents written at the given location are deduplicated
+     */
+    boolean covers(String bucketName, String key) {
+        return prefixes.covers(bucketName, key);
+    }
+
+    /**
+     * @param content the content of an object
+     * @return the key of the content in the index
+     */
+    static String digest(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Copy an object known to hold the given content to the given location, without sending the content.
+     * @param digest the digest of the content
+     * @param bucketName the name of the bucket of the new object
+     * @param key the path to the new object
+     * @param condition the conditional headers of the write, such as If-None-Match or If-Match
+     * @return the size and ETag of the copy, null if the content has to be sent because no object still holds it,
+     * or because the copy failed, which the write with the same condition reports
+     */
+    ResourceInfo copy(String digest, String bucketName, String key, Consumer<AwsRequestOverrideConfiguration.Builder> condition) {
+        Entry entry = find(digest);
+        // An object is not copied over itself, its content is written again
+        if (entry == null || (entry.bucketName().equals(bucketName) && entry.key().equals(key))) {
+            return null;
+        }
+
+        try {
+            CopyObjectResponse response = s3.copyObject(builder -> builder
+                    .sourceBucket(entry.bucketName()).sourceKey(entry.key()).copySourceIfMatch(entry.eTag())
+                    .destinationBucket(bucketName).destinationKey(key)
+                    .overrideConfiguration(condition));
+            return ResourceInfo.object(entry.size(), response.copyObjectResult().eTag());
+        } catch (SdkException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Record that the object at the given location holds the given content.
+     * @param digest the digest of the content
+     * @param bucketName the name of the bucket of the object
+     * @param key the path to the object
+     * @param size the size of the object as it is stored
+     * @param eTag the ETag of the object
+     */
+    void record(String digest, String bucketName, String key, long size, String eTag) {
+        byte[] entry = String.join("\n", eTag, String.valueOf(size), bucketName + "/" + key).getBytes(StandardCharsets.UTF_8);
+        try {
+            try {
+                s3.putObject(builder -> builder.bucket(indexBucket).key(digest), RequestBody.fromBytes(entry));
+            } catch (NoSuchBucketException e) {
+                createIndexBucket();
+                s3.putObject(builder -> builder.bucket(indexBucket).key(digest), RequestBody.fromBytes(entry));
+            }
+        } catch (SdkException e) {
+            // The content is not deduplicated until it is written again
+        }
+    }
+
+    /**
+     * Find the object known to hold the given content.
+     * @param digest the digest of the content
+     * @return the object, null if none is known or the index cannot be read
+     */
+    private Entry find(String digest) {
+        String[] fields;
+        try {
+            fields = s3.getObjectAsBytes(builder -> builder.bucket(indexBucket).key(digest)).asUtf8String().split("\n", 3);
+        } catch (SdkException e) {
+            return null;
+        }
+
+        String[] parts = fields.length == 3 ? ServiceAwsImpl.splitUri(fields[2]) : null;
+        if (parts == null || parts[1] == null) {
+            return null;
+        }
+        try {
+            return new Entry(fields[0], Long.parseLong(fields[1]), parts[0], parts[1]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void createIndexBucket() {
+        try {
+            s3.createBucket(builder -> builder.bucket(indexBucket));
+        } catch (BucketAlreadyOwnedByYouException e) {
+            // Created meanwhile by a concurrent write
+        }
+    }
+}
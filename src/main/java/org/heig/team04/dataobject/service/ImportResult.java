@@ -0,0 +1,20 @@
+package org.heig.team04.dataobject.service;
+
+/**
+ * Result of the creation of the object of one entry of an archive: either its size or the reason it was not created.
+ *
+ * @param size the size of the created object, -1 if the creation failed
+ * @param error the error message, null if the creation succeeded
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public record ImportResult(long size, String error) {
+    public static ImportResult success(long size) {
+        return new ImportResult(size, null);
+    }
+
+    public static ImportResult failure(String error) {
+        return new ImportResult(-1, error);
+    }
+}
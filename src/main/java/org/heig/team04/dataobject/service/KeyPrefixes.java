@@ -0,0 +1,44 @@
+package org.heig.team04.dataobject.service;
+
+import java.util.List;
+
+/**
+ * A set of buckets and folders, written "bucket" or "bucket/folder", covering all the objects under them.
+ *
+ * @param prefixes the prefixes of the URIs of the covered objects, each ending with a slash
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+record KeyPrefixes(List<String> prefixes) {
+    /**
+     * @param collections the URIs of the buckets and folders, with or without a trailing slash
+     * @return the set covering the objects under the given collections
+     */
+    static KeyPrefixes of(List<String> collections) {
+        return new KeyPrefixes(collections.stream()
+                .map(collection -> collection.endsWith("/") ? collection : collection + "/")
+                .toList());
+    }
+
+    /**
+     * @param bucketName the name of the bucket of the object
+     * @param key the path to the object, null for the bucket itself
+     * @return true if the object is under one of the buckets or folders
+     */
+    boolean covers(String bucketName, String key) {
+        if (key == null) {
+            return false;
+        }
+
+        String uri = bucketName + "/" + key;
+        return prefixes.stream().anyMatch(uri::startsWith);
+    }
+
+    /**
+     * @return true if no object is covered
+     */
+    boolean isEmpty() {
+        return prefixes.isEmpty();
+    }
+}
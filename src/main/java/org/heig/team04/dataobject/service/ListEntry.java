@@ -0,0 +1,35 @@
+package org.heig.team04.dataobject.service;
+
+import java.time.Instant;
+
+/**
+ * Entry of the listing of a bucket or folder: an object, or a folder directly under the listed collection.
+ *
+ * @param uri the URI of the resource
+ * @param type the type of the resource, OBJECT or FOLDER
+ * @param size the size of the object in bytes as it is stored, compressed for a compressed object, which a listing does not tell, 0 for a folder
+ * @param eTag the ETag of the object, null for a folder
+ * @param lastModified the last modification date of the object, null for a folder
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public record ListEntry(String uri, ResourceType type, long size, String eTag, Instant lastModified) {
+    public static ListEntry object(String bucketName, String key, long size, String eTag, Instant lastModified) {
+        return new ListEntry(bucketName + "/" + key, ResourceType.OBJECT, size, eTag, lastModified);
+    }
+
+    public static ListEntry folder(String bucketName, String key) {
+        return new ListEntry(bucketName + "/" + key, ResourceType.FOLDER, 0, null, null);
+    }
+
+    /**
+     * Get the position of the entry in the listing, from which a listing can resume after it.
+     * The position of a folder is its key followed by a slash, which sorts just before the keys of its objects.
+     * @return the key of the object, or the key of the folder followed by a slash
+     */
+    public String position() {
+        String key = uri.substring(uri.indexOf('/') + 1);
+        return type == ResourceType.FOLDER ? key + "/" : key;
+    }
+}
@@ -0,0 +1,146 @@
+package org.heig.team04.dataobject.service;
+
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Copies an object within the S3 service with a multipart upload whose parts are UploadPartCopy requests,
+ * which is the only way to copy an object bigger than the 5 GiB accepted by CopyObject.
+ * The content never goes through the service: every part is copied by S3 from a range of the source.
+ * Every part is copied from the version of the source that was checked, so the copy cannot mix two versions.
+ * A write condition is sent with the CompleteMultipartUpload request, which makes the copy visible.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+class MultipartCopier {
+    // Maximum number of parts of a multipart upload
+    private static final int MAX_PARTS = 10_000;
+    private final S3Client s3;
+    private final ExecutorService executor;
+    private final long partSize;
+    private final int maxInFlightParts;
+
+    /**
+     * Constructor for the MultipartCopier class.
+     * @param s3 the S3 client
+     * @param executor the executor copying the parts
+     * @param partSize the size of a part in bytes, between 5 MiB and 5 GiB as required by S3
+     * @param maxInFlightParts the maximum number of parts being copied at the same time for one copy
+     */
+    MultipartCopier(S3Client s3, ExecutorService executor, long partSize, int maxInFlightParts) {
+        this.s3 = s3;
+        this.executor = executor;
+        this.partSize = partSize;
+        this.maxInFlightParts = maxInFlightParts;
+    }
+
+    /**
+     * Copy an object to the given location.
+     * @param sourceBucket the name of the bucket of the source
+     * @param sourceKey the path to the source
+     * @param source the size and ETag of the source
+     * @param targetBucket the name of the bucket of the copy
+     * @param targetKey the path to the copy
+     * @param concurrent true to copy several parts at the same time, false to copy them one by one on the calling thread,
+     *                   as a task already running on the executor must do
+     * @param condition the conditional headers of the write, such as If-None-Match
+     * @return the size and ETag of the copy
+     */
+    ResourceInfo copy(String sourceBucket, String sourceKey, ResourceInfo source, String targetBucket, String targetKey,
+                      boolean concurrent, Consumer<AwsRequestOverrideConfiguration.Builder> condition) {
+        // The copy keeps the headers and the metadata of the source, which a multipart upload must be given
+        HeadObjectResponse head = s3.headObject(builder -> builder.bucket(sourceBucket).key(sourceKey).ifMatch(source.eTag()));
+        String uploadId = s3.createMultipartUpload(builder -> builder.bucket(targetBucket).key(targetKey)
+                .contentType(head.contentType())
+                .contentEncoding(head.contentEncoding())
+                .contentDisposition(head.contentDisposition())
+                .cacheControl(head.cacheControl())
+                .metadata(head.metadata())).uploadId();
+
+        // The parts are made bigger when the object would need more than the maximum number of parts
+        long size = head.contentLength();
+        long copyPartSize = Math.max(partSize, (size + MAX_PARTS - 1) / MAX_PARTS);
+        int partCount = (int) Math.max(1, (size + copyPartSize - 1) / copyPartSize);
+
+        Semaphore inFlight = new Semaphore(maxInFlightParts);
+        List<Future<CompletedPart>> pendingParts = new ArrayList<>();
+        try {
+            List<CompletedPart> completedParts = new ArrayList<>(partCount);
+            for (int i = 0; i < partCount; i++) {
+                int partNumber = i + 1;
+                long start = i * copyPartSize;
+                long end = Math.min(start + copyPartSize, size) - 1;
+                if (!concurrent) {
+                    completedParts.add(copyPart(sourceBucket, sourceKey, head.eTag(), targetBucket, targetKey, uploadId, partNumber, start, end));
+                    continue;
+                }
+
+                inFlight.acquire();
+                pendingParts.add(executor.submit(() -> {
+                    try {
+                        return copyPart(sourceBucket, sourceKey, head.eTag(), targetBucket, targetKey, uploadId, partNumber, start, end);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+            for (Future<CompletedPart> pendingPart : pendingParts) {
+                completedParts.add(getPart(pendingPart));
+            }
+
+            String eTag = s3.completeMultipartUpload(builder -> builder.bucket(targetBucket).key(targetKey)
+                    .uploadId(uploadId).multipartUpload(upload -> upload.parts(completedParts))
+                    .overrideConfiguration(condition)).eTag();
+            return ResourceInfo.object(size, eTag);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(targetBucket, targetKey, uploadId, pendingParts);
+            throw new IllegalStateException("Copy interrupted: " + sourceKey, e);
+        } catch (RuntimeException e) {
+            abort(targetBucket, targetKey, uploadId, pendingParts);
+            throw e;
+        }
+    }
+
+    /**
+     * Copy a range of the source as a part of the upload, if the source still has the given ETag.
+     * @param start the position of the first byte of the range
+     * @param end the position of the last byte of the range, inclusive
+     */
+    private CompletedPart copyPart(String sourceBucket, String sourceKey, String eTag, String targetBucket, String targetKey,
+                                   String uploadId, int partNumber, long start, long end) {
+        String partETag = s3.uploadPartCopy(builder -> builder
+                .sourceBucket(sourceBucket).sourceKey(sourceKey).copySourceIfMatch(eTag)
+                .copySourceRange("bytes=" + start + "-" + end)
+                .destinationBucket(targetBucket).destinationKey(targetKey)
+                .uploadId(uploadId).partNumber(partNumber)).copyPartResult().eTag();
+        return CompletedPart.builder().partNumber(partNumber).eTag(partETag).build();
+    }
+
+    private void abort(String bucketName, String key, String uploadId, List<Future<CompletedPart>> pendingParts) {
+        pendingParts.forEach(pendingPart -> pendingPart.cancel(true));
+        s3.abortMultipartUpload(builder -> builder.bucket(bucketName).key(key).uploadId(uploadId));
+    }
+
+    private static CompletedPart getPart(Future<CompletedPart> pendingPart) throws InterruptedException {
+        try {
+            return pendingPart.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.heig.team04.dataobject.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An open stream on the content of an object, along with the metadata needed to serve it.
+ * The stream must be closed by the caller to release the underlying connection.
+ *
+ * @param content the content of the object
+ * @param contentLength the number of bytes of the content, -1 if unknown
+ * @param contentType the media type of the content
+ * @param eTag the ETag of the object
+ * @param contentEncoding the encoding of the content, such as gzip, null if the content is not encoded
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public record ObjectStream(InputStream content, long contentLength, String contentType, String eTag, String contentEncoding) implements Closeable {
+    public ObjectStream(InputStream content, long contentLength, String contentType, String eTag) {
+        this(content, contentLength, contentType, eTag, null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+}
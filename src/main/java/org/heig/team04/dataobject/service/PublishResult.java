@@ -0,0 +1,20 @@
+package org.heig.team04.dataobject.service;
+
+/**
+ * Result of the publication of one URI in a batch: either a presigned URL or the reason it could not be published.
+ *
+ * @param link the presigned URL, null if the publication failed
+ * @param error the error message, null if the publication succeeded
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public record PublishResult(String link, String error) {
+    public static PublishResult success(String link) {
+        return new PublishResult(link, null);
+    }
+
+    public static PublishResult failure(String error) {
+        return new PublishResult(null, error);
+    }
+}
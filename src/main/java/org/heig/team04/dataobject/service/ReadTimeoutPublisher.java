@@ -0,0 +1,131 @@
+package org.heig.team04.dataobject.service;
+
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Body of a source URL failing when nothing is received for the read timeout while more content is requested,
+ * as the read timeout of the connections of the blocking service does.
+ * The time the subscriber takes before requesting more, such as while it sends a part, is not counted.
+ * The timeout is checked by a single task per body, scheduled again for the time left, not by a task per item.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+final class ReadTimeoutPublisher implements Flow.Publisher<List<ByteBuffer>> {
+    private final Flow.Publisher<List<ByteBuffer>> body;
+    private final long timeoutNanos;
+
+    /**
+     * Constructor for the ReadTimeoutPublisher class.
+     * @param body the body of the response, subscribed to once
+     * @param timeout the longest time to wait for content once it has been requested
+     */
+    ReadTimeoutPublisher(Flow.Publisher<List<ByteBuffer>> body, Duration timeout) {
+        this.body = body;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<ByteBuffer>> subscriber) {
+        body.subscribe(new Watch(subscriber));
+    }
+
+    /**
+     * The reading of the body by one subscriber.
+     * The signals to the subscriber are sent while holding the lock of the watch, so that a timeout is never sent during another signal.
+     */
+    private final class Watch implements Flow.Subscriber<List<ByteBuffer>>, Flow.Subscription {
+        private final Flow.Subscriber<? super List<ByteBuffer>> subscriber;
+        private Flow.Subscription subscription;
+        private long demand; // Number of items requested and not received yet
+        private long lastActivity; // Time of the last item received or of the last request if later
+        private boolean done; // Completed, failed or cancelled, no more signal is sent
+
+        private Watch(Flow.Subscriber<? super List<ByteBuffer>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public synchronized void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            lastActivity = System.nanoTime();
+            subscriber.onSubscribe(this);
+            schedule(timeoutNanos);
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                // The timeout only starts once content is requested
+                if (demand == 0) {
+                    lastActivity = System.nanoTime();
+                }
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+            subscription.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                done = true;
+            }
+            subscription.cancel();
+        }
+
+        @Override
+        public synchronized void onNext(List<ByteBuffer> item) {
+            if (done) {
+                return;
+            }
+            lastActivity = System.nanoTime();
+            if (demand != Long.MAX_VALUE) {
+                demand--;
+            }
+            subscriber.onNext(item);
+        }
+
+        @Override
+        public synchronized void onError(Throwable throwable) {
+            if (!done) {
+                done = true;
+                subscriber.onError(throwable);
+            }
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            if (!done) {
+                done = true;
+                subscriber.onComplete();
+            }
+        }
+
+        private synchronized void check() {
+            if (done) {
+                return;
+            }
+
+            long idle = System.nanoTime() - lastActivity;
+            if (demand == 0 || idle < timeoutNanos) {
+                schedule(demand == 0 ? timeoutNanos : timeoutNanos - idle);
+                return;
+            }
+
+            // The connection is released before the subscriber learns of the failure
+            done = true;
+            subscription.cancel();
+            subscriber.onError(new HttpTimeoutException("Read timed out"));
+        }
+
+        private void schedule(long delayNanos) {
+            CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(this::check);
+        }
+    }
+}
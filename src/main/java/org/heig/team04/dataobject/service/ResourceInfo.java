@@ -0,0 +1,63 @@
+package org.heig.team04.dataobject.service;
+
+import java.time.Instant;
+
+/**
+ * Result of the resolution of a URI: the kind of resource it points to and,
+ * for objects, their size, ETag and last modification date.
+ * An object stored compressed has two sizes: the one it is stored with, which is the size of the content sent compressed
+ * and the one the ranges of the object refer to, and the length of its content once decompressed, as it is read.
+ *
+ * @param type the type of the resource
+ * @param size the size of the object in bytes as it is stored, compressed for a compressed object, 0 for other resources
+ * @param eTag the ETag of the object, null for other resources
+ * @param lastModified the last modification date of the object, null for other resources or when unknown
+ * @param contentLength the length of the content of the object once decompressed, equal to its size if it is not compressed,
+ * -1 when unknown, 0 for other resources
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public record ResourceInfo(ResourceType type, long size, String eTag, Instant lastModified, long contentLength) {
+    private static final ResourceInfo BUCKET = new ResourceInfo(ResourceType.BUCKET, 0, null, null, 0);
+    private static final ResourceInfo FOLDER = new ResourceInfo(ResourceType.FOLDER, 0, null, null, 0);
+    private static final ResourceInfo MISSING = new ResourceInfo(ResourceType.MISSING, 0, null, null, 0);
+
+    public static ResourceInfo bucket() {
+        return BUCKET;
+    }
+
+    public static ResourceInfo folder() {
+        return FOLDER;
+    }
+
+    public static ResourceInfo missing() {
+        return MISSING;
+    }
+
+    public static ResourceInfo object(long size, String eTag) {
+        return new ResourceInfo(ResourceType.OBJECT, size, eTag, null, size);
+    }
+
+    public static ResourceInfo object(long size, String eTag, Instant lastModified) {
+        return new ResourceInfo(ResourceType.OBJECT, size, eTag, lastModified, size);
+    }
+
+    public static ResourceInfo object(long size, String eTag, Instant lastModified, long contentLength) {
+        return new ResourceInfo(ResourceType.OBJECT, size, eTag, lastModified, contentLength);
+    }
+
+    /**
+     * @return true if the object is known to be stored compressed, its ranges then being ranges of its compressed content
+     */
+    public boolean isCompressed() {
+        return contentLength >= 0 && contentLength != size;
+    }
+
+    /**
+     * @return true if the resource exists, false otherwise
+     */
+    public boolean exists() {
+        return type != ResourceType.MISSING;
+    }
+}
@@ -0,0 +1,21 @@
+package org.heig.team04.dataobject.service;
+
+/**
+ * Kind of resource a URI points to in the storage service.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public enum ResourceType {
+    BUCKET,
+    FOLDER,
+    OBJECT,
+    MISSING;
+
+    /**
+     * @return true if the resource is a collection (bucket or folder), false otherwise
+     */
+    public boolean isCollection() {
+        return this == BUCKET || this == FOLDER;
+    }
+}
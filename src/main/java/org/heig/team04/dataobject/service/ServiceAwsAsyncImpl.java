@@ -0,0 +1,736 @@
+package org.heig.team04.dataobject.service;
+
+import jakarta.annotation.PreDestroy;
+import org.heig.team04.dataobject.config.DataObjectProperties;
+import org.heig.team04.dataobject.metrics.S3Metrics;
+import org.heig.team04.dataobject.service.cache.MetadataCache;
+import org.heig.team04.dataobject.service.cache.PresignedUrlCache;
+import org.heig.team04.dataobject.service.exceptions.*;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+
+/**
+ * This class is the non-blocking implementation of the service layer for the AWS S3 service.
+ * It performs the same operations as ServiceAwsImpl on an S3AsyncClient, so no thread waits for the S3 service.
+ * It shares the metadata cache with ServiceAwsImpl.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see AsyncServiceInterface
+ * @see ServiceAwsImpl
+ * @see S3AsyncClient
+ */
+@Service
+@Profile("!memory & !filesystem")
+public class ServiceAwsAsyncImpl implements AsyncServiceInterface {
+    private final S3AsyncClient s3; // AWS S3 asynchronous client
+    private final S3Presigner presigner; // AWS S3 presigner
+    private final MetadataCache metadataCache; // Cache of the resource classification
+    private final PresignedUrlCache presignedUrlCache; // Cache of the presigned URLs
+    private final CompressionPolicy compression; // Policy of the compression of the written objects
+    private final HttpClient httpClient; // Client downloading the source URLs
+    private final Duration urlReadTimeout; // Longest wait for the content of a source URL
+    private final AsyncStreamUploader uploader; // Uploader of the source URLs, part by part while they are downloaded
+    private final AsyncPermits deleteBatchPermits; // Bound of the concurrent DeleteObjects requests
+
+    /**
+     * Constructor for the ServiceAwsAsyncImpl class.
+     * It creates a new S3AsyncClient object with the credentials provided by the environment variables.
+     * @param properties the configuration properties of the service
+     * @param metadataCache the cache of the resource classification
+     * @param s3Metrics the interceptor recording the S3 requests
+     */
+    public ServiceAwsAsyncImpl(DataObjectProperties properties, MetadataCache metadataCache, S3Metrics s3Metrics) {
+        s3 = S3AsyncClient.builder()
+                .region(Region.EU_WEST_2)
+                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
+                .overrideConfiguration(builder -> builder.addExecutionInterceptor(s3Metrics))
+                .build();
+        presigner = S3Presigner.builder()
+                .region(Region.EU_WEST_2)
+                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
+                .build();
+        this.metadataCache = metadataCache;
+        presignedUrlCache = new PresignedUrlCache(
+                properties.getCache().getPresignedUrlMaxEntries(),
+                properties.getCache().getPresignedUrlMinRemainingRatio());
+        metadataCache.addChangeListener(presignedUrlCache::invalidate);
+        compression = new CompressionPolicy(properties.getCompression());
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(properties.getUpload().getUrlConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        urlReadTimeout = properties.getUpload().getUrlReadTimeout();
+        uploader = new AsyncStreamUploader(s3, (int) properties.getUpload().getPartSize().toBytes());
+        deleteBatchPermits = new AsyncPermits(properties.getIoThreads());
+    }
+
+    /**
+     * Close the S3 client and its event loop when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        s3.close();
+    }
+
+    /**
+     * Resolve the resource at the given location, using the metadata cache when possible.
+     * @param bucketName the name of the bucket
+     * @param key the path to the resource, null for the bucket itself
+     * @return the resolved resource
+     */
+    private CompletableFuture<ResourceInfo> resolve(String bucketName, String key) {
+        ResourceInfo cached = metadataCache.get(bucketName, key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<ResourceInfo> resolution = key == null ? resolveBucket(bucketName) : resolveKey(bucketName, key);
+        return resolution.handle((info, e) -> {
+            if (e != null) {
+                throw failure(e);
+            }
+
+            metadataCache.put(bucketName, key, info);
+            return info;
+        });
+    }
+
+    /**
+     * Resolve a bucket with a single HeadBucket request.
+     * @param bucketName the name of the bucket
+     * @return the bucket if it exists, missing otherwise
+     */
+    private CompletableFuture<ResourceInfo> resolveBucket(String bucketName) {
+        return s3.headBucket(builder -> builder.bucket(bucketName)).handle((response, e) -> {
+            if (e == null) {
+                metadataCache.putBucket(bucketName, true);
+                return ResourceInfo.bucket();
+            }
+
+            // A bucket owned by another account is not visible to us
+            if (unwrap(e) instanceof S3Exception s3Exception && (s3Exception.statusCode() == 404 || s3Exception.statusCode() == 403)) {
+                metadataCache.putBucket(bucketName, false);
+                return ResourceInfo.missing();
+            }
+
+            throw failure(e);
+        });
+    }
+
+    /**
+     * Resolve a key with a HeadObject request, falling back to a single-key listing of the folder prefix.
+     * @param bucketName the name of the bucket
+     * @param key the path to the resource
+     * @return the object or folder if it exists, missing otherwise
+     */
+    private CompletableFuture<ResourceInfo> resolveKey(String bucketName, String key) {
+        return s3.headObject(builder -> builder.bucket(bucketName).key(key)).handle((head, e) -> {
+            if (e == null) {
+                metadataCache.putBucket(bucketName, true);
+                return CompletableFuture.completedFuture(ResourceInfo.object(head.contentLength(), head.eTag(), head.lastModified(),
+                        CompressionPolicy.contentLength(head.contentLength(), head.contentEncoding(), head.metadata())));
+            }
+
+            if (!(unwrap(e) instanceof S3Exception s3Exception && s3Exception.statusCode() == 404)) {
+                return CompletableFuture.<ResourceInfo>failedFuture(unwrap(e));
+            }
+
+            return s3.listObjectsV2(builder -> builder.bucket(bucketName).prefix(key + "/").maxKeys(1)).handle((response, listError) -> {
+                if (listError == null) {
+                    metadataCache.putBucket(bucketName, true);
+                    return response.keyCount() > 0 ? ResourceInfo.folder() : ResourceInfo.missing();
+                }
+
+                if (unwrap(listError) instanceof NoSuchBucketException) {
+                    metadataCache.putBucket(bucketName, false);
+                    return ResourceInfo.missing();
+                }
+
+                throw failure(listError);
+            });
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * Checks if the given resource URI is an existing object.
+     * @param resourceUri the URI of the resource to check
+     * @param bucketName the name of the bucket to check
+     * @param key the path to the resource to check
+     * @return the resolved object, or a future failed with NotFoundException or NotAnObjectException
+     */
+    private CompletableFuture<ResourceInfo> checkForGET(String resourceUri, String bucketName, String key) {
+        return resolve(bucketName, key).thenApply(info -> {
+            // If the URI points to a non-existing object, fail
+            if (!info.exists()) {
+                throw failure(new NotFoundException(resourceUri));
+            }
+
+            // If the URI points to a folder or bucket, fail
+            if (info.type().isCollection()) {
+                throw failure(new NotAnObjectException(resourceUri));
+            }
+
+            return info;
+        });
+    }
+
+    /**
+     * Checks if a new object can be created at the given resource URI, and creates its bucket if needed.
+     * Only what the metadata cache knows is checked here, whether an object already exists is decided by the conditional write.
+     * @param resourceUri the URI of the new object
+     * @param bucketName the name of the bucket of the new object
+     * @param key the path to the new object
+     * @return a future failed with AlreadyExistsException if the resource is known to exist
+     */
+    private CompletableFuture<Void> checkForCreate(String resourceUri, String bucketName, String key) {
+        ResourceInfo cached = metadataCache.get(bucketName, key);
+        if (cached != null && cached.exists()) {
+            return CompletableFuture.failedFuture(new AlreadyExistsException(resourceUri));
+        }
+
+        Boolean cachedBucket = metadataCache.getBucket(bucketName);
+        CompletableFuture<Boolean> bucket = cachedBucket != null
+                ? CompletableFuture.completedFuture(cachedBucket)
+                : resolve(bucketName, null).thenApply(ResourceInfo::exists);
+
+        return bucket.thenCompose(bucketExists -> {
+            if (bucketExists) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            // If bucket does not exist, create it
+            return s3.createBucket(builder -> builder.bucket(bucketName)).handle((response, e) -> {
+                if (e != null) {
+                    throw failure(e);
+                }
+
+                metadataCache.putBucket(bucketName, true);
+                return null;
+            });
+        });
+    }
+
+    /**
+     * Write the given content at the given location with a conditional request and record it in the metadata cache.
+     * The content is compressed first if the compression policy covers it.
+     * An existing object already holding the content is left as it is.
+     * @param resourceUri the URI of the object, used to report a failed condition
+     * @param bucketName the name of the bucket
+     * @param key the path to the object
+     * @param fileContent the content of the object
+     * @param eTag the ETag the object must still have, null if the object must not exist
+     * @return true once the object is written, false if it already held the content, or a future failed
+     * with AlreadyExistsException or ConcurrentUpdateException if the condition does not hold
+     */
+    private CompletableFuture<Boolean> put(String resourceUri, String bucketName, String key, byte[] fileContent, String eTag) {
+        byte[] compressed = compression.compress(bucketName, key, fileContent);
+        byte[] stored = compressed != null ? compressed : fileContent;
+        PutObjectRequest.Builder builder = PutObjectRequest.builder().bucket(bucketName).key(key)
+                .overrideConfiguration(condition -> condition.putHeader(eTag == null ? "If-None-Match" : "If-Match", eTag == null ? "*" : eTag));
+        if (compressed != null) {
+            CompressionPolicy.compressed(builder, fileContent.length);
+        }
+
+        if (eTag == null || !ContentETag.matches(eTag, ContentETag.of(stored))) {
+            return write(resourceUri, bucketName, key, builder.build(), stored, eTag);
+        }
+
+        // The ETag may come from the metadata cache, the write is only left out once the S3 service confirms it
+        return isStored(bucketName, key, eTag, ContentETag.of(stored))
+                .thenCompose(isStored -> isStored
+                        ? CompletableFuture.completedFuture(false)
+                        : write(resourceUri, bucketName, key, builder.build(), stored, eTag));
+    }
+
+    /**
+     * Send a conditional write of the content and record it in the metadata cache.
+     * The ETag of an update may come from the metadata cache, so a failed If-Match is retried once with the current ETag,
+     * as the blocking service does, unless the object already holds the content by then.
+     * @param resourceUri the URI of the object, used to report a failed condition
+     * @param bucketName the name of the bucket
+     * @param key the path to the object
+     * @param request the write request, with its condition
+     * @param stored the content as it is stored
+     * @param eTag the ETag the object must still have, null if the object must not exist
+     * @return true once the object is written, false if it already held the content, or a future failed
+     * with AlreadyExistsException or ConcurrentUpdateException if the condition does not hold
+     */
+    private CompletableFuture<Boolean> write(String resourceUri, String bucketName, String key, PutObjectRequest request, byte[] stored, String eTag) {
+        return s3.putObject(request, AsyncRequestBody.fromBytes(stored))
+                .handle((response, e) -> {
+                    if (e == null) {
+                        metadataCache.objectWritten(bucketName, key, stored.length, contentLengthOf(request, stored), response.eTag());
+                        return CompletableFuture.completedFuture(true);
+                    }
+
+                    metadataCache.invalidate(bucketName, key);
+                    if (!(unwrap(e) instanceof S3Exception s3Exception && ServiceAwsImpl.isConditionFailed(s3Exception))) {
+                        return CompletableFuture.<Boolean>failedFuture(failure(e));
+                    }
+                    if (eTag == null) {
+                        return CompletableFuture.<Boolean>failedFuture(new AlreadyExistsException(resourceUri));
+                    }
+
+                    // The cached ETag may be outdated, the write is retried once with the current one
+                    String storedETag = ContentETag.of(stored);
+                    return checkForGET(resourceUri, bucketName, key).thenCompose(current -> {
+                        if (ContentETag.matches(current.eTag(), storedETag)) {
+                            return CompletableFuture.completedFuture(false);
+                        }
+                        PutObjectRequest retry = request.toBuilder()
+                                .overrideConfiguration(condition -> condition.putHeader("If-Match", current.eTag()))
+                                .build();
+                        return rewrite(resourceUri, bucketName, key, retry, stored);
+                    });
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Send the retry of a write whose condition failed, which fails for good if the object has changed again meanwhile.
+     */
+    private CompletableFuture<Boolean> rewrite(String resourceUri, String bucketName, String key, PutObjectRequest request, byte[] stored) {
+        return s3.putObject(request, AsyncRequestBody.fromBytes(stored))
+                .handle((response, e) -> {
+                    if (e != null) {
+                        metadataCache.invalidate(bucketName, key);
+                        if (unwrap(e) instanceof S3Exception s3Exception && ServiceAwsImpl.isConditionFailed(s3Exception)) {
+                            throw failure(new ConcurrentUpdateException(resourceUri));
+                        }
+                        throw failure(e);
+                    }
+
+                    metadataCache.objectWritten(bucketName, key, stored.length, contentLengthOf(request, stored), response.eTag());
+                    return true;
+                });
+    }
+
+    private static long contentLengthOf(PutObjectRequest request, byte[] stored) {
+        return CompressionPolicy.contentLength(stored.length, request.contentEncoding(), request.metadata());
+    }
+
+    /**
+     * Start downloading the content of a file at the given URL, with the configured timeouts.
+     * The read timeout limits the wait for the response headers, then for each part of the body once it is requested.
+     * @param fileUrl URL of the file
+     * @return Content of the file, received as it is read, or a future failed with InvalidURLException or URLNotAccessibleException
+     */
+    private CompletableFuture<Flow.Publisher<List<ByteBuffer>>> openURL(String fileUrl) {
+        URI uri;
+        try {
+            uri = new URL(fileUrl).toURI();
+        } catch (MalformedURLException e) {
+            return CompletableFuture.failedFuture(new InvalidURLException(fileUrl, e));
+        } catch (URISyntaxException e) {
+            return CompletableFuture.failedFuture(new InvalidURLException(fileUrl, new MalformedURLException(e.getMessage())));
+        }
+
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(uri).timeout(urlReadTimeout).GET().build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new URLNotAccessibleException(fileUrl, e));
+        }
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofPublisher()).handle((response, e) -> {
+            if (e != null) {
+                throw failure(new URLNotAccessibleException(fileUrl, new IOException(unwrap(e))));
+            }
+
+            if (response.statusCode() >= 400) {
+                // The body is not read, its connection is released by cancelling it
+                response.body().subscribe(new CancellingSubscriber());
+                throw failure(new URLNotAccessibleException(fileUrl, new IOException("HTTP " + response.statusCode())));
+            }
+
+            return new ReadTimeoutPublisher(response.body(), urlReadTimeout);
+        });
+    }
+
+    /**
+     * Upload the content of a file at the given URL part by part while it is being downloaded, and record it in the metadata cache.
+     * @param resourceUri the URI of the object, used to report a failed condition
+     * @param bucketName the name of the bucket
+     * @param key the path to the object
+     * @param fileUrl URL of the file
+     * @param eTag the ETag the object must still have, null if the object must not exist
+     * @return true once the object is written, false if it already held the content, or a future failed with
+     * URLNotAccessibleException if the file cannot be read, or AlreadyExistsException or ConcurrentUpdateException if the condition does not hold
+     */
+    private CompletableFuture<Boolean> upload(String resourceUri, String bucketName, String key, String fileUrl, String eTag) {
+        Function<String, CompletableFuture<Boolean>> isStored = eTag == null
+                ? contentETag -> CompletableFuture.completedFuture(false)
+                : contentETag -> isStored(bucketName, key, eTag, contentETag);
+
+        return openURL(fileUrl)
+                .thenCompose(content -> uploader.upload(bucketName, key, content,
+                        condition -> condition.putHeader(eTag == null ? "If-None-Match" : "If-Match", eTag == null ? "*" : eTag), isStored))
+                .handle((info, e) -> {
+                    if (e != null) {
+                        if (unwrap(e) instanceof ServiceException) {
+                            throw failure(e);
+                        }
+                        metadataCache.invalidate(bucketName, key);
+                        if (unwrap(e) instanceof IOException readError) {
+                            throw failure(new URLNotAccessibleException(fileUrl, readError));
+                        }
+                        if (unwrap(e) instanceof S3Exception s3Exception && ServiceAwsImpl.isConditionFailed(s3Exception)) {
+                            throw failure(eTag == null ? new AlreadyExistsException(resourceUri) : new ConcurrentUpdateException(resourceUri));
+                        }
+                        throw failure(e);
+                    }
+
+                    if (info == null) {
+                        return false;
+                    }
+                    metadataCache.objectWritten(bucketName, key, info.size(), info.eTag());
+                    return true;
+                });
+    }
+
+    /**
+     * Check if the object at the given location already holds a content, known by the ETag it would be stored with.
+     * The ETag the object was last known with may come from the metadata cache, so a match is confirmed by the S3 service.
+     * @param bucketName the name of the bucket
+     * @param key the path to the object
+     * @param currentETag the ETag the object was last known with
+     * @param eTag the ETag computed for the content, null if unknown
+     * @return true if the object still holds the content, never failed
+     */
+    private CompletableFuture<Boolean> isStored(String bucketName, String key, String currentETag, String eTag) {
+        if (!ContentETag.matches(currentETag, eTag)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return s3.headObject(head -> head.bucket(bucketName).key(key).ifMatch(currentETag))
+                .handle((head, e) -> e == null);
+    }
+
+    /**
+     * Subscriber releasing a body that is not read.
+     */
+    private static final class CancellingSubscriber implements Flow.Subscriber<List<ByteBuffer>> {
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.cancel();
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            // Never requested
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // Nothing to release
+        }
+
+        @Override
+        public void onComplete() {
+            // Nothing to release
+        }
+    }
+
+    /**
+     * Delete all the objects under the given prefix, one DeleteObjects request per page of the listing.
+     * A page is only listed once the batch of the previous one has been sent, and at most ioThreads batches
+     * of the whole service are sent at the same time, like in the blocking service.
+     * @param resourceUri the URI of the collection, used to report the failures
+     * @param bucketName the name of the bucket
+     * @param prefix the prefix of the objects to delete, null for the whole bucket
+     * @return a future failed with DeleteIncompleteException if some objects could not be deleted
+     */
+    private CompletableFuture<Void> deleteAll(String resourceUri, String bucketName, String prefix) {
+        BatchDeletion deletion = new BatchDeletion(bucketName);
+        s3.listObjectsV2Paginator(builder -> builder.bucket(bucketName).prefix(prefix)).subscribe(deletion);
+
+        return deletion.done().handle((deleted, e) -> {
+            if (e != null) {
+                throw failure(e);
+            }
+
+            if (!deletion.failures.isEmpty()) {
+                throw failure(new DeleteIncompleteException(resourceUri, deletion.failures));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * The deletion of the objects of a listing, page by page.
+     * The next page is requested once the batch of the current one holds a permit, which bounds the pages held.
+     */
+    private final class BatchDeletion implements Subscriber<ListObjectsV2Response> {
+        private final String bucketName;
+        private final Map<String, String> failures = new ConcurrentHashMap<>();
+        private final List<CompletableFuture<Void>> pendingBatches = Collections.synchronizedList(new ArrayList<>());
+        private final CompletableFuture<Void> listed = new CompletableFuture<>();
+        private Subscription subscription;
+
+        private BatchDeletion(String bucketName) {
+            this.bucketName = bucketName;
+        }
+
+        /**
+         * @return a future completed once every page has been listed and its batch deleted
+         */
+        private CompletableFuture<Void> done() {
+            return listed.thenCompose(all -> CompletableFuture.allOf(pendingBatches.toArray(new CompletableFuture[0])));
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(ListObjectsV2Response page) {
+            List<ObjectIdentifier> batch = page.contents().stream()
+                    .map(object -> ObjectIdentifier.builder().key(object.key()).build())
+                    .toList();
+            if (batch.isEmpty()) {
+                subscription.request(1);
+                return;
+            }
+
+            deleteBatchPermits.acquire().thenRun(() -> {
+                pendingBatches.add(deleteBatch(bucketName, batch, failures).whenComplete((deleted, e) -> deleteBatchPermits.release()));
+                subscription.request(1);
+            });
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            listed.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            listed.complete(null);
+        }
+    }
+
+    /**
+     * Delete a batch of objects with a single DeleteObjects request, recording the keys that could not be deleted.
+     * @param bucketName the name of the bucket
+     * @param batch the objects to delete, at most 1000
+     * @param failures the error message of each key that could not be deleted
+     * @return a future completed once the request is done, never failed
+     */
+    private CompletableFuture<Void> deleteBatch(String bucketName, List<ObjectIdentifier> batch, Map<String, String> failures) {
+        return s3.deleteObjects(builder -> builder.bucket(bucketName).delete(delete -> delete.objects(batch).quiet(true)))
+                .handle((response, e) -> {
+                    if (e != null) {
+                        for (ObjectIdentifier object : batch) {
+                            failures.put(object.key(), String.valueOf(unwrap(e).getMessage()));
+                        }
+                        return null;
+                    }
+
+                    for (S3Error error : response.errors()) {
+                        failures.put(error.key(), error.code() + ": " + error.message());
+                    }
+                    return null;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> create(String resourceUri, String fileUrl) {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        String bucketName = parts[0];
+        String key = parts[1];
+
+        // The file is uploaded part by part while it is being downloaded
+        return checkForCreate(resourceUri, bucketName, key)
+                .thenCompose(checked -> upload(resourceUri, bucketName, key, fileUrl, null));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> create(String resourceUri, byte[] fileContent) {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        String bucketName = parts[0];
+        String key = parts[1];
+
+        return checkForCreate(resourceUri, bucketName, key)
+                .thenCompose(checked -> put(resourceUri, bucketName, key, fileContent, null));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> read(String resourceUri) {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        String bucketName = parts[0];
+        String key = parts[1];
+
+        return checkForGET(resourceUri, bucketName, key)
+                .thenCompose(info -> s3.getObject(builder -> builder.bucket(bucketName).key(key), AsyncResponseTransformer.toBytes()))
+                .handle((content, e) -> {
+                    if (e != null) {
+                        throw failure(e);
+                    }
+
+                    try {
+                        return CompressionPolicy.decompress(content.asByteArray(), content.response().contentEncoding());
+                    } catch (IOException decompressionError) {
+                        throw failure(new ExternalServiceException(decompressionError));
+                    }
+                });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> update(String resourceUri, String fileUrl) {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        String bucketName = parts[0];
+        String key = parts[1];
+
+        // The file is uploaded part by part while it is being downloaded
+        return checkForGET(resourceUri, bucketName, key)
+                .thenCompose(info -> upload(resourceUri, bucketName, key, fileUrl, info.eTag()));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> update(String resourceUri, byte[] fileContent) {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        String bucketName = parts[0];
+        String key = parts[1];
+
+        return checkForGET(resourceUri, bucketName, key)
+                .thenCompose(info -> put(resourceUri, bucketName, key, fileContent, info.eTag()));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> delete(String resourceUri, boolean recursive) {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        String bucketName = parts[0];
+        String key = parts[1];
+
+        return resolve(bucketName, key).thenCompose(info -> {
+            ResourceType type = info.type();
+
+            // If the URI points to a non-existing object, fail
+            if (type == ResourceType.MISSING) {
+                throw failure(new NotFoundException(resourceUri));
+            }
+
+            // If the URI points to a folder or bucket and recursive is false, fail
+            if (!recursive && type.isCollection()) {
+                throw failure(new DeleteCollectionNoRecursiveException(resourceUri));
+            }
+
+            CompletableFuture<?> deletion = switch (type) {
+                case BUCKET -> deleteAll(resourceUri, bucketName, null)
+                        .thenCompose(emptied -> s3.deleteBucket(builder -> builder.bucket(bucketName)));
+                case FOLDER -> deleteAll(resourceUri, bucketName, key + "/");
+                default -> s3.deleteObject(builder -> builder.bucket(bucketName).key(key));
+            };
+
+            return deletion.handle((response, e) -> {
+                if (e != null) {
+                    metadataCache.invalidate(bucketName, key);
+                    throw failure(e);
+                }
+
+                metadataCache.deleted(bucketName, key);
+                return true;
+            });
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> publish(String resourceUri, int ttl) {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        String bucketName = parts[0];
+        String key = parts[1];
+
+        return checkForGET(resourceUri, bucketName, key).thenApply(info -> {
+            // Reuse a recent link with enough lifetime left
+            String cachedUrl = presignedUrlCache.get(bucketName, key, ttl);
+            if (cachedUrl != null) {
+                return cachedUrl;
+            }
+
+            try {
+                // Prepare presigned URL GET request
+                var request = GetObjectPresignRequest.builder()
+                        .signatureDuration(Duration.ofSeconds(ttl))
+                        .getObjectRequest(b -> b.bucket(bucketName).key(key))
+                        .build();
+
+                // Generate presigned URL
+                String url = presigner.presignGetObject(request).url().toString();
+                presignedUrlCache.put(bucketName, key, ttl, url);
+                return url;
+            } catch (Exception e) {
+                throw failure(e);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(String resourceUri) {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        String bucketName = parts[0];
+        String key = parts[1];
+
+        return resolve(bucketName, key).thenApply(ResourceInfo::exists);
+    }
+
+    /**
+     * Get the actual cause of a failed future.
+     * @param e the exception a future failed with
+     * @return the exception, unwrapped from its CompletionException
+     */
+    private static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    /**
+     * Build the exception a future of this service fails with.
+     * Service exceptions are kept as is, any other error is an ExternalServiceException.
+     * @param e the cause of the failure
+     * @return the exception to throw from a future stage
+     */
+    private static CompletionException failure(Throwable e) {
+        Throwable cause = unwrap(e);
+        return new CompletionException(cause instanceof ServiceException ? cause : new ExternalServiceException(cause));
+    }
+}
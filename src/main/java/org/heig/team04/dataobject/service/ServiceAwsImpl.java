@@ -1,26 +1,76 @@
 package org.heig.team04.dataobject.service;
 
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import org.heig.team04.dataobject.config.DataObjectConfig;
+import org.heig.team04.dataobject.config.DataObjectProperties;
+import org.heig.team04.dataobject.metrics.OperationScope;
+import org.heig.team04.dataobject.metrics.S3Metrics;
+import org.heig.team04.dataobject.service.cache.ContentCache;
+import org.heig.team04.dataobject.service.cache.DiskCache;
+import org.heig.team04.dataobject.service.cache.MetadataCache;
+import org.heig.team04.dataobject.service.cache.PresignedUrlCache;
 import org.heig.team04.dataobject.service.exceptions.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.BucketAlreadyOwnedByYouException;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * This class is the implementation of the service layer for the AWS S3 service.
  * It is used to perform CRUD operations on the S3 service and to publish a link to a resource.
+ * It is the default implementation, replaced by ServiceMemoryImpl and ServiceFileSystemImpl under the "memory" and "filesystem" profiles.
  *
  * @author Ivan Vecerina, Yanik Lange
  * @version 1.0
@@ -29,71 +79,238 @@ import java.time.Duration;
  * @see S3Client
  */
 @Service
+@Profile("!memory & !filesystem")
 public class ServiceAwsImpl implements ServiceInterface {
+    private static final long MAX_COPY_OBJECT_SIZE = 5L * 1024 * 1024 * 1024; // Biggest object copied by a single CopyObject request
     private final S3Client s3; // AWS S3 client
     private final S3Presigner presigner; // AWS S3 presigner
+    private final MetadataCache metadataCache; // Cache of the resource classification
+    private final PresignedUrlCache presignedUrlCache; // Cache of the presigned URLs
+    private final ContentCache contentCache; // Cache of the content of the small objects
+    private final DiskCache diskCache; // Cache of the content of the large objects
+    private final ExecutorService executor; // Executor of the concurrent S3 requests
+    private final Semaphore deleteBatchPermits; // Bound of the concurrent DeleteObjects requests
+    private final Semaphore copyPermits; // Bound of the concurrent copies of the objects of a collection
+    private final StreamUploader uploader; // Uploader of the streamed contents
+    private final MultipartCopier copier; // Copier of the objects too big for CopyObject
+    private final CompressionPolicy compression; // Policy of the compression of the written objects
+    private final DedupIndex dedup; // Index of the contents written under the deduplicated prefixes
+    private final int partSize; // Size of the parts of the streamed uploads, above which a stream is not deduplicated
+    private final int urlConnectTimeout; // Connect timeout of the source URLs in milliseconds
+    private final int urlReadTimeout; // Read timeout of the source URLs in milliseconds
 
     /**
      * Constructor for the AppServiceAWS class.
-     * It creates a new S3Client object with the credentials provided by the environment variables.
+     * It uses the default configuration properties and its own metadata cache, and publishes no metrics.
      */
     public ServiceAwsImpl() {
-        s3 = S3Client.builder()
-                .region(Region.EU_WEST_2)
-                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
-                .build();
-        presigner = S3Presigner.builder()
-                .region(Region.EU_WEST_2)
-                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
-                .build();
+        this(new DataObjectProperties());
+    }
+
+    private ServiceAwsImpl(DataObjectProperties properties) {
+        this(properties, new DataObjectConfig().metadataCache(properties), new S3Metrics(Metrics.globalRegistry));
+    }
+
+    /**
+     * Constructor for the AppServiceAWS class.
+     * It creates a new S3Client object with the credentials provided by the environment variables.
+     * @param properties the configuration properties of the service
+     * @param metadataCache the cache of the resource classification
+     * @param s3Metrics the interceptor recording the S3 requests
+     */
+    @Autowired
+    public ServiceAwsImpl(DataObjectProperties properties, MetadataCache metadataCache, S3Metrics s3Metrics) {
+        this(properties, metadataCache,
+                S3Client.builder()
+                        .region(Region.EU_WEST_2)
+                        .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
+                        .overrideConfiguration(builder -> builder.addExecutionInterceptor(s3Metrics))
+                        .build(),
+                S3Presigner.builder()
+                        .region(Region.EU_WEST_2)
+                        .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
+                        .build());
+    }
+
+    /**
+     * Constructor for the AppServiceAWS class with the given clients,
+     * mainly to run the service against a stand-in of the S3 service.
+     * @param properties the configuration properties of the service
+     * @param metadataCache the cache of the resource classification
+     * @param s3 the S3 client
+     * @param presigner the S3 presigner
+     */
+    public ServiceAwsImpl(DataObjectProperties properties, MetadataCache metadataCache, S3Client s3, S3Presigner presigner) {
+        this.s3 = s3;
+        this.presigner = presigner;
+        this.metadataCache = metadataCache;
+        presignedUrlCache = new PresignedUrlCache(
+                properties.getCache().getPresignedUrlMaxEntries(),
+                properties.getCache().getPresignedUrlMinRemainingRatio());
+        metadataCache.addChangeListener(presignedUrlCache::invalidate);
+        contentCache = new ContentCache(
+                properties.getCache().getContentMaxSize().toBytes(),
+                properties.getCache().getContentMaxObjectSize().toBytes(),
+                properties.getCache().getContentRevalidateAfter(),
+                properties.getCache().isContentOffHeap());
+        metadataCache.addChangeListener(contentCache::invalidate);
+        diskCache = new DiskCache(
+                properties.getCache().getDiskDirectory(),
+                properties.getCache().getDiskMaxSize().toBytes(),
+                properties.getCache().getContentMaxObjectSize().toBytes(),
+                properties.getCache().getContentRevalidateAfter());
+        metadataCache.addChangeListener(diskCache::invalidate);
+        // The S3 requests sent by the tasks are attributed to the operation that submitted them
+        executor = OperationScope.propagating(Executors.newFixedThreadPool(properties.getIoThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "s3-io");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        deleteBatchPermits = new Semaphore(properties.getIoThreads());
+        copyPermits = new Semaphore(properties.getIoThreads());
+        uploader = new StreamUploader(s3, executor,
+                (int) properties.getUpload().getPartSize().toBytes(),
+                properties.getUpload().getMaxInFlightParts());
+        copier = new MultipartCopier(s3, executor,
+                properties.getUpload().getCopyPartSize().toBytes(),
+                properties.getUpload().getMaxInFlightParts());
+        compression = new CompressionPolicy(properties.getCompression());
+        dedup = new DedupIndex(s3, properties.getDedup());
+        partSize = (int) properties.getUpload().getPartSize().toBytes();
+        urlConnectTimeout = (int) properties.getUpload().getUrlConnectTimeout().toMillis();
+        urlReadTimeout = (int) properties.getUpload().getUrlReadTimeout().toMillis();
+    }
+
+    /**
+     * Stop the executor of the concurrent S3 requests and delete the disk cache when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        diskCache.close();
+    }
+
+    /**
+     * Get the cache of the resource classification, mainly to read its hit and miss counters.
+     * @return the metadata cache
+     */
+    public MetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * Get the cache of the presigned URLs, mainly to read its hit and miss counters.
+     * @return the presigned URL cache
+     */
+    public PresignedUrlCache getPresignedUrlCache() {
+        return presignedUrlCache;
+    }
+
+    /**
+     * Get the cache of the object contents, mainly to read its hit and miss counters.
+     * @return the content cache
+     */
+    public ContentCache getContentCache() {
+        return contentCache;
+    }
+
+    /**
+     * Get the disk cache of the large object contents, mainly to read its hit and miss counters.
+     * @return the disk cache
+     */
+    public DiskCache getDiskCache() {
+        return diskCache;
     }
 
     /**
-     * Checks if the given bucketName is a bucket in the S3 service.
+     * Checks if the given bucketName is a bucket in the S3 service, using the metadata cache when possible.
      * @param bucketName the name of the bucket to check
-     * @param key the path to the folder to check
      * @return true if the bucket exists, false otherwise
      * @throws ExternalServiceException if an error occurs while checking if the bucket exists
      */
-    private boolean isBucket(String bucketName, String key) throws ExternalServiceException {
-        try {
-            if (key == null) {
-                return s3.listBuckets().buckets().stream().anyMatch(b -> b.name().equals(bucketName));
-            }
+    private boolean isBucket(String bucketName) throws ExternalServiceException {
+        Boolean cached = metadataCache.getBucket(bucketName);
+        if (cached != null) {
+            return cached;
+        }
 
-            return false;
+        return resolve(bucketName, null).exists();
+    }
+
+    /**
+     * Resolve the resource at the given location, using the metadata cache when possible.
+     * A bucket costs one HeadBucket request, an object one HeadObject request
+     * and a folder one more ListObjectsV2 request limited to a single key.
+     * @param bucketName the name of the bucket
+     * @param key the path to the resource, null for the bucket itself
+     * @return the resolved resource
+     * @throws ExternalServiceException if an error occurs while resolving the resource
+     */
+    private ResourceInfo resolve(String bucketName, String key) throws ExternalServiceException {
+        ResourceInfo info = metadataCache.get(bucketName, key);
+        if (info != null) {
+            return info;
+        }
+
+        try {
+            info = key == null ? resolveBucket(bucketName) : resolveKey(bucketName, key);
         } catch (Exception e) {
             throw new ExternalServiceException(e);
         }
+
+        metadataCache.put(bucketName, key, info);
+        return info;
     }
 
     /**
-     * Checks if the given folderName is a folder in the S3 service.
-     * @param bucketName the name of the bucket to check
-     * @param key the path to the folder to check
-     * @return true if path is a folder, false otherwise
-     * @throws ExternalServiceException if an error occurs while checking if the folder exists
+     * Resolve a bucket with a single HeadBucket request.
+     * @param bucketName the name of the bucket
+     * @return the bucket if it exists, missing otherwise
      */
-    private boolean isFolder(String bucketName, String key) throws ExternalServiceException {
+    private ResourceInfo resolveBucket(String bucketName) {
         try {
-            return !s3.listObjectsV2(builder -> builder.bucket(bucketName).prefix(key).delimiter("/")).commonPrefixes().isEmpty();
-        } catch (Exception e) {
-            throw new ExternalServiceException(e);
+            s3.headBucket(builder -> builder.bucket(bucketName));
+        } catch (NoSuchBucketException e) {
+            metadataCache.putBucket(bucketName, false);
+            return ResourceInfo.missing();
+        } catch (S3Exception e) {
+            // A bucket owned by another account is not visible to us
+            if (e.statusCode() != 404 && e.statusCode() != 403) {
+                throw e;
+            }
+            metadataCache.putBucket(bucketName, false);
+            return ResourceInfo.missing();
         }
+
+        metadataCache.putBucket(bucketName, true);
+        return ResourceInfo.bucket();
     }
 
     /**
-     * Checks if the given fileName is a file in the S3 service.
-     * @param bucketName the name of the bucket to check
-     * @param key the path to the file to check
-     * @return true if path is a file, false otherwise
-     * @throws ExternalServiceException if an error occurs while checking if the file exists
+     * Resolve a key with a HeadObject request, falling back to a single-key listing of the folder prefix.
+     * @param bucketName the name of the bucket
+     * @param key the path to the resource
+     * @return the object or folder if it exists, missing otherwise
      */
-    private boolean isFile(String bucketName, String key) throws ExternalServiceException {
+    private ResourceInfo resolveKey(String bucketName, String key) {
         try {
-            return !s3.listObjectsV2(builder -> builder.bucket(bucketName).prefix(key)).contents().isEmpty();
-        } catch (Exception e) {
-            throw new ExternalServiceException(e);
+            HeadObjectResponse head = s3.headObject(builder -> builder.bucket(bucketName).key(key));
+            metadataCache.putBucket(bucketName, true);
+            return ResourceInfo.object(head.contentLength(), head.eTag(), head.lastModified(),
+                    CompressionPolicy.contentLength(head.contentLength(), head.contentEncoding(), head.metadata()));
+        } catch (S3Exception e) {
+            if (e.statusCode() != 404) {
+                throw e;
+            }
+        }
+
+        try {
+            ListObjectsV2Response response = s3.listObjectsV2(builder -> builder.bucket(bucketName).prefix(key + "/").maxKeys(1));
+            metadataCache.putBucket(bucketName, true);
+            return response.keyCount() > 0 ? ResourceInfo.folder() : ResourceInfo.missing();
+        } catch (NoSuchBucketException e) {
+            metadataCache.putBucket(bucketName, false);
+            return ResourceInfo.missing();
         }
     }
 
@@ -102,7 +319,7 @@ public class ServiceAwsImpl implements ServiceInterface {
      * @param uri Resource URI
      * @return String array with bucket name at index 0 and key at index 1
      */
-    private String[] splitUri(String uri) {
+    static String[] splitUri(String uri) {
         // Remove Trailing slash
         if (uri.endsWith("/")) {
             uri = uri.substring(0, uri.length() - 1);
@@ -116,6 +333,54 @@ public class ServiceAwsImpl implements ServiceInterface {
         return new String[]{bucketName, key};
     }
 
+    /**
+     * Checks that the resource at the given source URI can be copied or moved to the given target URI.
+     * @param sourceUri the URI of the source
+     * @param source the resolved source
+     * @param targetUri the URI of the target
+     * @param target the resolved target
+     * @param recursive true if a collection may be copied
+     * @throws NotFoundException if the source does not exist
+     * @throws CopyCollectionNoRecursiveException if the source is a collection and recursive is false
+     * @throws AlreadyExistsException if the target exists, or is a bucket while the source is an object
+     * @throws CopyIntoItselfException if the target is inside the source collection
+     */
+    static void checkForCopy(String sourceUri, ResourceInfo source, String targetUri, ResourceInfo target, boolean recursive) throws NotFoundException, CopyCollectionNoRecursiveException, AlreadyExistsException, CopyIntoItselfException {
+        if (!source.exists()) {
+            throw new NotFoundException(sourceUri);
+        }
+        if (!recursive && source.type().isCollection()) {
+            throw new CopyCollectionNoRecursiveException(sourceUri);
+        }
+
+        String[] targetParts = splitUri(targetUri);
+        if (target.exists() || (!source.type().isCollection() && targetParts[1] == null)) {
+            throw new AlreadyExistsException(targetUri);
+        }
+
+        String[] sourceParts = splitUri(sourceUri);
+        String sourcePath = sourceParts[1] != null ? sourceParts[0] + "/" + sourceParts[1] : sourceParts[0];
+        String targetPath = targetParts[1] != null ? targetParts[0] + "/" + targetParts[1] : targetParts[0];
+        if (source.type().isCollection() && targetPath.startsWith(sourcePath + "/")) {
+            throw new CopyIntoItselfException(sourceUri, targetUri);
+        }
+    }
+
+    /**
+     * Get the media type of an object, guessing it from its name when S3 only knows it as binary.
+     * @param key the path to the object
+     * @param storedType the content type stored with the object, may be null
+     * @return the media type of the object
+     */
+    private String contentTypeOf(String key, String storedType) {
+        if (storedType != null && !storedType.equals("binary/octet-stream")) {
+            return storedType;
+        }
+
+        String guessedType = URLConnection.guessContentTypeFromName(key);
+        return guessedType != null ? guessedType : "application/octet-stream";
+    }
+
     /**
      * Checks if the given resource URI is a valid resource in the S3 service.
      * @param resourceUri the URI of the resource to check
@@ -124,39 +389,118 @@ public class ServiceAwsImpl implements ServiceInterface {
      * @throws ExternalServiceException if the resource does not exist
      * @throws NotFoundException if the resource does not exist
      * @throws NotAnObjectException if the resource is not an object
+     * @return the resolved object
      */
-    private void checkForGET(String resourceUri, String bucketName, String key) throws ExternalServiceException, NotFoundException, NotAnObjectException {
+    private ResourceInfo checkForGET(String resourceUri, String bucketName, String key) throws ExternalServiceException, NotFoundException, NotAnObjectException {
+        ResourceInfo info = resolve(bucketName, key);
+
         // If the URI points to a non-existing object, throw an exception
-        if (!exists(resourceUri)) {
+        if (!info.exists()) {
             throw new NotFoundException(resourceUri);
         }
 
         // If the URI points to a folder or bucket, throw an exception
-        if (isFolder(bucketName, key) || isBucket(bucketName, key)) {
+        if (info.type().isCollection()) {
             throw new NotAnObjectException(resourceUri);
         }
+
+        return info;
+    }
+
+    /**
+     * Checks if a new object can be created at the given resource URI, using only what the metadata cache knows.
+     * Whether an object already exists is decided by the conditional write itself.
+     * @param resourceUri the URI of the new object
+     * @param bucketName the name of the bucket of the new object
+     * @param key the path to the new object
+     * @throws AlreadyExistsException if the resource is known to exist
+     */
+    private void checkForCreate(String resourceUri, String bucketName, String key) throws AlreadyExistsException {
+        ResourceInfo cached = metadataCache.get(bucketName, key);
+        if (cached != null && cached.exists()) {
+            throw new AlreadyExistsException(resourceUri);
+        }
+    }
+
+    /**
+     * Create the given bucket, which a write has just found missing.
+     * @param bucketName the name of the bucket
+     */
+    private void createBucket(String bucketName) {
+        try {
+            s3.createBucket(builder -> builder.bucket(bucketName));
+        } catch (BucketAlreadyOwnedByYouException e) {
+            // Created meanwhile by a concurrent write
+        }
+        metadataCache.putBucket(bucketName, true);
+    }
+
+    /**
+     * Make the write succeed only if no object exists at its key.
+     */
+    private static void ifNoneMatch(AwsRequestOverrideConfiguration.Builder builder) {
+        builder.putHeader("If-None-Match", "*");
+    }
+
+    /**
+     * Make the write succeed only if the object still has the given ETag.
+     */
+    private static Consumer<AwsRequestOverrideConfiguration.Builder> ifMatch(String eTag) {
+        return builder -> builder.putHeader("If-Match", eTag);
+    }
+
+    /**
+     * Check if the object at the given location already holds a content, known by the ETag it would be stored with.
+     * The ETag the object was last known with may come from the metadata cache,
+     * so a match is confirmed by a conditional HeadObject request before the write is left out.
+     * @param bucketName the name of the bucket
+     * @param key the path to the object
+     * @param currentETag the ETag the object was last known with
+     * @param eTag the ETag computed for the content, null if unknown
+     * @return true if the object still holds the content
+     */
+    private boolean isStored(String bucketName, String key, String currentETag, String eTag) {
+        if (!ContentETag.matches(currentETag, eTag)) {
+            return false;
+        }
+
+        try {
+            s3.headObject(builder -> builder.bucket(bucketName).key(key).ifMatch(currentETag));
+            return true;
+        } catch (S3Exception e) {
+            // Modified or deleted meanwhile, the conditional write reports it
+            return false;
+        }
+    }
+
+    /**
+     * Check if a write failed because of its condition.
+     * A conflict means another conditional write of the same key is in progress, and will decide instead.
+     * @param e the error of the write
+     * @return true if the condition of the write did not hold
+     */
+    static boolean isConditionFailed(S3Exception e) {
+        return e.statusCode() == 412 || e.statusCode() == 409;
     }
 
     /**
-     * Get the content of a file at the given URL
+     * Open a stream on the content of a file at the given URL, with the configured timeouts
      * @param fileUrl URL of the file
-     * @return Content of the file
+     * @return Content of the file, remembering the error of a failed read, to be closed by the caller
      * @throws InvalidURLException if the URL is invalid
-     * @throws URLNotAccessibleException if an error occurs while getting the file content
+     * @throws URLNotAccessibleException if an error occurs while connecting to the URL
      */
-    private byte[] getContentFromURL(String fileUrl) throws InvalidURLException, URLNotAccessibleException {
-        byte[] fileContent;
-
+    private SourceInputStream openURL(String fileUrl) throws InvalidURLException, URLNotAccessibleException {
         try {
             URLConnection connection = new URL(fileUrl).openConnection();
-            fileContent = connection.getInputStream().readAllBytes();
+            connection.setConnectTimeout(urlConnectTimeout);
+            connection.setReadTimeout(urlReadTimeout);
+            return new SourceInputStream(connection.getInputStream());
         } catch (MalformedURLException e) {
             throw new InvalidURLException(fileUrl, e);
         } catch (Exception e) {
             throw new URLNotAccessibleException(fileUrl, e);
         }
-
-        return fileContent;
     }
 
     /**
@@ -171,13 +515,24 @@ public class ServiceAwsImpl implements ServiceInterface {
      */
     @Override
     public boolean create(String resourceUri, String fileUrl) throws AlreadyExistsException, InvalidURLException, URLNotAccessibleException, ExternalServiceException {
-        byte[] fileContent = getContentFromURL(fileUrl);
-
-        return create(resourceUri, fileContent);
+        // The file is uploaded part by part while it is being downloaded
+        SourceInputStream content = openURL(fileUrl);
+        try (content) {
+            return create(resourceUri, content);
+        } catch (ExternalServiceException e) {
+            // A failed read of the file is an error of its URL, not of the storage
+            if (content.failure() != null) {
+                throw new URLNotAccessibleException(fileUrl, content.failure());
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new URLNotAccessibleException(fileUrl, e);
+        }
     }
 
     /**
-     * Create a new object at the given URI with the given content.
+     * Create a new object at the given URI with the given content, compressed if the compression policy covers it.
+     * Under the deduplicated prefixes, a content already stored is copied from its object instead of being sent.
      * @param resourceUri The URI of the new object.
      * @param fileContent The content of the new object.
      * @return boolean True if the object was created, false otherwise.
@@ -190,229 +545,1342 @@ public class ServiceAwsImpl implements ServiceInterface {
         String bucketName = parts[0];
         String key = parts[1];
 
-        // If the URI points to an existing object, throw an exception
-        if (exists(resourceUri)) {
-            throw new AlreadyExistsException(resourceUri);
-        }
-
-        // If bucket does not exist, create it
-        if (!isBucket(bucketName, null)) {
-            s3.createBucket(builder -> builder.bucket(bucketName));
-        }
+        checkForCreate(resourceUri, bucketName, key);
 
         try {
-            // Prepare the request
-            PutObjectRequest request = PutObjectRequest.builder()
+            // A content already stored is copied by S3, the copy fails if the object already exists
+            String digest = dedup.covers(bucketName, key) ? DedupIndex.digest(fileContent) : null;
+            ResourceInfo copy = digest != null ? dedup.copy(digest, bucketName, key, ServiceAwsImpl::ifNoneMatch) : null;
+            if (copy != null) {
+                metadataCache.objectWritten(bucketName, key, copy.size(), fileContent.length, copy.eTag());
+                return true;
+            }
+
+            // Prepare the request, which fails if the object already exists
+            byte[] compressed = compression.compress(bucketName, key, fileContent);
+            byte[] stored = compressed != null ? compressed : fileContent;
+            PutObjectRequest.Builder builder = PutObjectRequest.builder()
                     .bucket(bucketName)
                     .key(key)
-                    .build();
+                    .overrideConfiguration(ServiceAwsImpl::ifNoneMatch);
+            if (compressed != null) {
+                CompressionPolicy.compressed(builder, fileContent.length);
+            }
+            PutObjectRequest request = builder.build();
 
-            // Create the object
-            s3.putObject(request, RequestBody.fromBytes(fileContent));
+            // Create the object, and its bucket the first time
+            PutObjectResponse response;
+            try {
+                response = s3.putObject(request, RequestBody.fromBytes(stored));
+            } catch (NoSuchBucketException e) {
+                createBucket(bucketName);
+                response = s3.putObject(request, RequestBody.fromBytes(stored));
+            }
+            metadataCache.objectWritten(bucketName, key, stored.length, fileContent.length, response.eTag());
+            if (digest != null) {
+                dedup.record(digest, bucketName, key, stored.length, response.eTag());
+            }
+        } catch (S3Exception e) {
+            metadataCache.invalidate(bucketName, key);
+            if (isConditionFailed(e)) {
+                throw new AlreadyExistsException(resourceUri);
+            }
+            throw new ExternalServiceException(e);
         } catch (Exception e) {
+            metadataCache.invalidate(bucketName, key);
             throw new ExternalServiceException(e);
         }
 
-        return exists(resourceUri);
+        return true;
     }
 
     /**
-     * Read the content of the object at the given URI.
-     * @param resourceUri The URI of the object.
-     * @return byte[] The content of the object.
-     * @throws NotFoundException If the URI doesn't exist.
-     * @throws NotAnObjectException If the URI points to a collection.
+     * Create a new object at the given URI with the content read from the given stream, without loading it in memory.
+     * Under the deduplicated prefixes, a content that fits in a single part is written as if it had been given whole.
+     * @param resourceUri The URI of the new object.
+     * @param content The content of the new object, read until its end but not closed.
+     * @return boolean True if the object was created, false otherwise.
+     * @throws AlreadyExistsException If the URI already exists.
      * @throws ExternalServiceException If an internal error occurs with the S3 service.
      */
     @Override
-    public byte[] read(String resourceUri) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+    public boolean create(String resourceUri, InputStream content) throws AlreadyExistsException, ExternalServiceException {
         String[] parts = splitUri(resourceUri);
         String bucketName = parts[0];
         String key = parts[1];
 
-        checkForGET(resourceUri, bucketName, key);
+        checkForCreate(resourceUri, bucketName, key);
+
+        if (dedup.covers(bucketName, key)) {
+            byte[] head = readHead(content);
+            if (head.length < partSize) {
+                return create(resourceUri, head);
+            }
+            content = withHead(head, content);
+        }
 
         try {
-            // Prepare the request
-            GetObjectRequest request = GetObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(key)
-                    .build();
+            // A stream cannot be read twice, so its bucket is created before the write instead of after a failure
+            if (!isBucket(bucketName)) {
+                createBucket(bucketName);
+            }
 
-            // Read the object
-            return s3.getObjectAsBytes(request).asByteArray();
+            // Create the object part by part, the write fails if the object already exists
+            ResourceInfo info = uploader.upload(bucketName, key, content, ServiceAwsImpl::ifNoneMatch);
+            metadataCache.objectWritten(bucketName, key, info.size(), info.eTag());
+        } catch (S3Exception e) {
+            metadataCache.invalidate(bucketName, key);
+            if (isConditionFailed(e)) {
+                throw new AlreadyExistsException(resourceUri);
+            }
+            throw new ExternalServiceException(e);
         } catch (Exception e) {
+            metadataCache.invalidate(bucketName, key);
             throw new ExternalServiceException(e);
         }
+
+        return true;
     }
 
     /**
-     * Update the content of the object at the given URI with the content of the given source.
-     * @param resourceUri The URI of the object.
-     * @param fileUrl The URL of the source file.
-     * @return boolean True if the object was updated, false otherwise.
-     * @throws NotFoundException If the URI doesn't exist.
-     * @throws NotAnObjectException If the URI points to a collection.
-     * @throws InvalidURLException If the URL is not valid.
-     * @throws URLNotAccessibleException If the URL is not accessible.
-     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     * Read the start of a streamed content, the size of a part at most.
+     * @param content the streamed content
+     * @return the start of the content, the whole content if it is shorter than a part
+     * @throws ExternalServiceException if the content cannot be read
      */
-    @Override
-    public boolean update(String resourceUri, String fileUrl) throws NotFoundException, NotAnObjectException, InvalidURLException, URLNotAccessibleException, ExternalServiceException {
-        byte[] fileContent = getContentFromURL(fileUrl);
+    private byte[] readHead(InputStream content) throws ExternalServiceException {
+        try {
+            return content.readNBytes(partSize);
+        } catch (IOException e) {
+            throw new ExternalServiceException(e);
+        }
+    }
+
+    /**
+     * Put the start of a streamed content back in front of the rest of it.
+     * @param head the start of the content, already read
+     * @param rest the rest of the content, left open as the stream given by the caller
+     * @return the whole content
+     */
+    private static InputStream withHead(byte[] head, InputStream rest) {
+        // The sequence closes each of its streams once read
+        return new SequenceInputStream(new ByteArrayInputStream(head), new Unclosed(rest));
+    }
+
+    /**
+     * Stream left open when it is closed, so that a stream given by the caller is only closed by the caller.
+     */
+    private static final class Unclosed extends FilterInputStream {
+        private Unclosed(InputStream in) {
+            super(in);
+        }
 
-        return update(resourceUri, fileContent);
+        @Override
+        public void close() {
+            // Closed by the caller
+        }
     }
 
     /**
-     * Update the content of the object at the given URI with the given content.
+     * Read the content of the object at the given URI, decompressed if it is stored compressed.
+     * An object recently read is served from the content cache, or from the disk cache when it is large.
+     * Once due for revalidation, it is read again only if its ETag has changed.
+     * The content cache holds the content as it is stored, so a compressed object takes its compressed size.
      * @param resourceUri The URI of the object.
-     * @param fileContent The content of the object.
-     * @return boolean True if the object was updated, false otherwise.
+     * @return byte[] The content of the object.
      * @throws NotFoundException If the URI doesn't exist.
      * @throws NotAnObjectException If the URI points to a collection.
      * @throws ExternalServiceException If an internal error occurs with the S3 service.
      */
     @Override
-    public boolean update(String resourceUri, byte[] fileContent) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+    public byte[] read(String resourceUri) throws NotFoundException, NotAnObjectException, ExternalServiceException {
         String[] parts = splitUri(resourceUri);
         String bucketName = parts[0];
         String key = parts[1];
 
-        // If the URI points to a non-existing object, throw an exception
-        checkForGET(resourceUri, bucketName, key);
+        ContentCache.Entry cached = contentCache.getFresh(bucketName, key);
+        if (cached != null) {
+            return decompress(cached.content(), cached.contentEncoding());
+        }
+
+        // A file too large for an array is left to the streamed reads
+        DiskCache.Entry onDisk = readableWhole(diskCache.getFresh(bucketName, key));
+        byte[] fromDisk = onDisk != null ? readCached(bucketName, key, onDisk) : null;
+        if (fromDisk != null) {
+            return fromDisk;
+        }
+
+        // A cached content is revalidated by the conditional GET itself, a missing one needs the object to be checked first
+        cached = contentCache.get(bucketName, key);
+        onDisk = cached == null ? readableWhole(diskCache.get(bucketName, key)) : null;
+        String cachedETag = cached != null ? cached.eTag() : onDisk != null ? onDisk.eTag() : null;
+        if (cachedETag == null) {
+            checkForGET(resourceUri, bucketName, key);
+        }
 
+        long version = contentCache.version();
+        long diskVersion = diskCache.version();
         try {
             // Prepare the request
-            PutObjectRequest request = PutObjectRequest.builder()
+            GetObjectRequest request = GetObjectRequest.builder()
                     .bucket(bucketName)
                     .key(key)
+                    .ifNoneMatch(cachedETag)
                     .build();
 
-            // Update the object
-            s3.putObject(request, RequestBody.fromBytes(fileContent));
+            // Read the object
+            ResponseBytes<GetObjectResponse> response = s3.getObjectAsBytes(request);
+            byte[] content = response.asByteArray();
+            String eTag = response.response().eTag();
+            String contentType = contentTypeOf(key, response.response().contentType());
+            String contentEncoding = CompressionPolicy.encodingOf(response.response().contentEncoding());
+            contentCache.put(bucketName, key, version, content, eTag, contentType, contentEncoding);
+            // The disk cache only holds contents that are not compressed, which it serves as they are
+            if (contentEncoding == null) {
+                diskCache.put(bucketName, key, diskVersion, content, eTag, contentType);
+            }
+            metadataCache.put(bucketName, key, ResourceInfo.object(content.length, eTag, response.response().lastModified(),
+                    CompressionPolicy.contentLength(content.length, contentEncoding, response.response().metadata())));
+
+            return CompressionPolicy.decompress(content, contentEncoding);
+        } catch (S3Exception e) {
+            // Not modified: the cached content is still the current one
+            if (cached != null && e.statusCode() == 304) {
+                contentCache.revalidated(cached);
+                return decompress(cached.content(), cached.contentEncoding());
+            }
+            if (onDisk != null && e.statusCode() == 304) {
+                diskCache.revalidated(onDisk);
+                fromDisk = readCached(bucketName, key, onDisk);
+                return fromDisk != null ? fromDisk : read(resourceUri);
+            }
+
+            // Deleted or replaced by a folder since it was cached
+            if (cachedETag != null && e.statusCode() == 404) {
+                metadataCache.invalidate(bucketName, key);
+                checkForGET(resourceUri, bucketName, key);
+            }
+            throw new ExternalServiceException(e);
         } catch (Exception e) {
             throw new ExternalServiceException(e);
         }
+    }
 
-        return exists(resourceUri);
+    /**
+     * Open a stream on the content of the object at the given URI, without loading it in memory.
+     * An object stored compressed is decompressed while it is read.
+     * @param resourceUri The URI of the object.
+     * @return ObjectStream The content of the object, to be closed by the caller.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotAnObjectException If the URI points to a collection.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    @Override
+    public ObjectStream readStream(String resourceUri) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+        return open(resourceUri, true);
     }
 
     /**
-     * Delete the object at the given URI.
+     * Open a stream on the content of the object at the given URI as it is stored, without loading it in memory.
      * @param resourceUri The URI of the object.
-     * @return boolean True if the object was deleted, false otherwise.
+     * @return ObjectStream The stored content of the object, to be closed by the caller.
      * @throws NotFoundException If the URI doesn't exist.
-     * @throws DeleteCollectionNoRecursiveException If the URI points to a collection and the recursive option is not set to true.
+     * @throws NotAnObjectException If the URI points to a collection.
      * @throws ExternalServiceException If an internal error occurs with the S3 service.
      */
     @Override
-    public boolean delete(String resourceUri, boolean recursive) throws NotFoundException, DeleteCollectionNoRecursiveException, ExternalServiceException {
+    public ObjectStream readEncoded(String resourceUri) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+        return open(resourceUri, false);
+    }
+
+    /**
+     * Open a stream on the content of the object at the given URI, decompressed or as it is stored.
+     * A small object is served from the content cache, and a large one that is not compressed from the disk cache.
+     * @param resourceUri the URI of the object
+     * @param decompress true to decompress an object stored compressed
+     * @return the content of the object, to be closed by the caller
+     * @throws NotFoundException if the URI doesn't exist
+     * @throws NotAnObjectException if the URI points to a collection
+     * @throws ExternalServiceException if an internal error occurs with the S3 service
+     */
+    private ObjectStream open(String resourceUri, boolean decompress) throws NotFoundException, NotAnObjectException, ExternalServiceException {
         String[] parts = splitUri(resourceUri);
         String bucketName = parts[0];
         String key = parts[1];
 
-        // If the URI points to a non-existing object, throw an exception
-        if (!exists(resourceUri)) {
-            throw new NotFoundException(resourceUri);
+        ContentCache.Entry cached = contentCache.getFresh(bucketName, key);
+        if (cached != null) {
+            return openCached(cached, decompress);
         }
 
-        // If the URI points to a folder or bucket and recursive is false, throw an exception
-        if (!recursive && (isFolder(bucketName, key) || isBucket(bucketName, key))) {
-            throw new DeleteCollectionNoRecursiveException(resourceUri);
+        DiskCache.Entry onDisk = diskCache.getFresh(bucketName, key);
+        ObjectStream fromDisk = onDisk != null ? openCached(bucketName, key, onDisk, 0, onDisk.size()) : null;
+        if (fromDisk != null) {
+            return fromDisk;
         }
 
-        try {
-            // If the URI points to a bucket, delete all objects in the bucket recursively and then delete the bucket
-            if (isBucket(bucketName, key)) {
-                // Delete all objects in the bucket recursively
-                ListObjectsV2Response response = s3.listObjectsV2(builder -> builder.bucket(bucketName));
-                for (S3Object object : response.contents()) {
-                    s3.deleteObject(builder -> builder.bucket(bucketName).key(object.key()));
-                }
+        // A cached file is revalidated by the conditional GET itself, a missing one needs the object to be checked first
+        onDisk = diskCache.get(bucketName, key);
+        if (onDisk == null) {
+            checkForGET(resourceUri, bucketName, key);
+        }
 
-                // Delete the bucket
-                s3.deleteBucket(builder -> builder.bucket(bucketName));
+        long version = diskCache.version();
+        try {
+            // Prepare the request
+            GetObjectRequest request = GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .ifNoneMatch(onDisk != null ? onDisk.eTag() : null)
+                    .build();
 
-                return !exists(resourceUri);
-            }
+            // Open the object, the body is read by the caller
+            ResponseInputStream<GetObjectResponse> content = s3.getObject(request);
+            GetObjectResponse response = content.response();
+            String contentType = contentTypeOf(key, response.contentType());
 
-            // If the URI points to a folder, delete all objects in the folder recursively
-            if (isFolder(bucketName, key)) {
-                // Delete all objects in the folder recursively
-                ListObjectsV2Response response = s3.listObjectsV2(builder -> builder.bucket(bucketName).prefix(key));
-                for (S3Object object : response.contents()) {
-                    s3.deleteObject(builder -> builder.bucket(bucketName).key(object.key()));
+            // A compressed object is not cached on disk, its file is the one of the version it replaced
+            String contentEncoding = CompressionPolicy.encodingOf(response.contentEncoding());
+            if (contentEncoding != null) {
+                if (onDisk != null) {
+                    diskCache.invalidate(bucketName, key);
                 }
+                return decompress
+                        ? decompressed(content, CompressionPolicy.uncompressedLength(response.metadata()), contentType, response.eTag())
+                        : new ObjectStream(content, response.contentLength(), contentType, response.eTag(), contentEncoding);
+            }
 
-                return !exists(resourceUri);
+            // A large object is written to the disk cache while the caller reads it
+            InputStream body = diskCache.tee(bucketName, key, version, content, response.contentLength(), response.eTag(), contentType);
+            return new ObjectStream(body, response.contentLength(), contentType, response.eTag());
+        } catch (S3Exception e) {
+            // Not modified: the cached file is still the current one
+            if (onDisk != null && e.statusCode() == 304) {
+                diskCache.revalidated(onDisk);
+                fromDisk = openCached(bucketName, key, onDisk, 0, onDisk.size());
+                return fromDisk != null ? fromDisk : openObject(resourceUri, null);
             }
 
-            // If the URI points to an object, delete the object
-            s3.deleteObject(builder -> builder.bucket(bucketName).key(key));
+            // Deleted or replaced by a folder since it was cached
+            if (onDisk != null && e.statusCode() == 404) {
+                metadataCache.invalidate(bucketName, key);
+                checkForGET(resourceUri, bucketName, key);
+            }
+            throw new ExternalServiceException(e);
         } catch (Exception e) {
             throw new ExternalServiceException(e);
         }
-
-        return !exists(resourceUri);
     }
 
     /**
-     * Get a presigned URL to access the object at the given URI.
+     * Read a range of the content of the object at the given URI.
+     * An object stored compressed is read whole and decompressed, the range being counted in its decompressed content.
      * @param resourceUri The URI of the object.
-     * @param ttl The time to live of the URL in seconds.
-     * @return String The presigned URL.
+     * @param start The position of the first byte to read.
+     * @param end The position of the last byte to read, inclusive.
+     * @return byte[] The content of the range.
      * @throws NotFoundException If the URI doesn't exist.
      * @throws NotAnObjectException If the URI points to a collection.
      * @throws ExternalServiceException If an internal error occurs with the S3 service.
      */
     @Override
-    public String publish(String resourceUri, int ttl) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+    public byte[] read(String resourceUri, long start, long end) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+        String range = toRange(start, end);
         String[] parts = splitUri(resourceUri);
         String bucketName = parts[0];
         String key = parts[1];
 
-        // If the URI points to a non-existing object, throw an exception
-        checkForGET(resourceUri, bucketName, key);
+        ResourceInfo info = checkForGET(resourceUri, bucketName, key);
+        if (info.isCompressed()) {
+            return slice(read(resourceUri), start, end);
+        }
 
+        ResponseBytes<GetObjectResponse> response;
         try {
-            // Prepare presigned URL GET request
-            var request = GetObjectPresignRequest.builder()
-                    .signatureDuration(Duration.ofSeconds(ttl))
-                    .getObjectRequest(b -> b.bucket(bucketName).key(key))
-                    .build();
-
-            // Generate presigned URL
-            return presigner.presignGetObject(request).url().toString();
+            // Read only the requested bytes
+            response = s3.getObjectAsBytes(builder -> builder.bucket(bucketName).key(key).range(range));
         } catch (Exception e) {
             throw new ExternalServiceException(e);
         }
+
+        // The uncompressed length of an object only listed is not known, a compressed one is then recognized by its encoding
+        if (CompressionPolicy.encodingOf(response.response().contentEncoding()) != null) {
+            return slice(read(resourceUri), start, end);
+        }
+        return response.asByteArray();
     }
 
     /**
-     * Check if the object at the given URI exists.
+     * Cut a range of a content, like the S3 service a range past the end of the content is cut to its end.
+     * @param content the whole content
+     * @param start the position of the first byte
+     * @param end the position of the last byte, inclusive
+     * @return the bytes of the range
+     */
+    private static byte[] slice(byte[] content, long start, long end) {
+        int from = (int) Math.min(start, content.length);
+        return Arrays.copyOfRange(content, from, (int) Math.min(end + 1, content.length));
+    }
+
+    /**
+     * Open a stream on a range of the content of the object at the given URI.
      * @param resourceUri The URI of the object.
-     * @return boolean True if the object exists, false otherwise.
+     * @param start The position of the first byte to read.
+     * @param end The position of the last byte to read, inclusive.
+     * @return ObjectStream The content of the range, to be closed by the caller.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotAnObjectException If the URI points to a collection.
      * @throws ExternalServiceException If an internal error occurs with the S3 service.
      */
     @Override
-    public boolean exists(String resourceUri) throws ExternalServiceException {
+    public ObjectStream readStream(String resourceUri, long start, long end) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+        String range = toRange(start, end);
+        String[] parts = splitUri(resourceUri);
+
+        // A range of a large object cached on disk is read from its file
+        DiskCache.Entry onDisk = diskCache.getFresh(parts[0], parts[1]);
+        if (onDisk != null && start < onDisk.size()) {
+            ObjectStream fromDisk = openCached(parts[0], parts[1], onDisk, start, Math.min(end, onDisk.size() - 1) - start + 1);
+            if (fromDisk != null) {
+                return fromDisk;
+            }
+        }
+
+        return openObject(resourceUri, range);
+    }
+
+    /**
+     * @param entry a file of the disk cache, may be null
+     * @return the file if its content can be read whole, null if it is missing or too large
+     */
+    private static DiskCache.Entry readableWhole(DiskCache.Entry entry) {
+        return entry != null && entry.isReadableWhole() ? entry : null;
+    }
+
+    /**
+     * Read the whole content of a file of the disk cache.
+     * @param bucketName the name of the bucket
+     * @param key the key of the object
+     * @param entry the cached file
+     * @return the content, or null if the file has been evicted meanwhile
+     */
+    private byte[] readCached(String bucketName, String key, DiskCache.Entry entry) {
+        try {
+            return entry.readAll();
+        } catch (IOException e) {
+            diskCache.invalidate(bucketName, key);
+            return null;
+        }
+    }
+
+    /**
+     * Open a stream on a region of a file of the disk cache.
+     * @param bucketName the name of the bucket
+     * @param key the key of the object
+     * @param entry the cached file
+     * @param position the position of the first byte to read
+     * @param count the number of bytes to read
+     * @return the content, or null if the file has been evicted meanwhile
+     */
+    private ObjectStream openCached(String bucketName, String key, DiskCache.Entry entry, long position, long count) {
+        try {
+            return new ObjectStream(entry.open(position, count), count, entry.contentType(), entry.eTag());
+        } catch (IOException e) {
+            diskCache.invalidate(bucketName, key);
+            return null;
+        }
+    }
+
+    /**
+     * Open a stream on a content of the content cache, decompressed or as it is stored.
+     * @param entry the cached content
+     * @param decompress true to decompress a content stored compressed
+     * @return the content
+     * @throws ExternalServiceException if the cached content cannot be decompressed
+     */
+    private static ObjectStream openCached(ContentCache.Entry entry, boolean decompress) throws ExternalServiceException {
+        if (!decompress || entry.contentEncoding() == null) {
+            return new ObjectStream(new ByteArrayInputStream(entry.content()), entry.size(), entry.contentType(), entry.eTag(), entry.contentEncoding());
+        }
+
+        byte[] content = decompress(entry.content(), entry.contentEncoding());
+        return new ObjectStream(new ByteArrayInputStream(content), content.length, entry.contentType(), entry.eTag());
+    }
+
+    /**
+     * Decompress the whole content of an object, if it is stored compressed.
+     * @param content the content as it is stored
+     * @param contentEncoding the encoding of the content, null if it is not encoded
+     * @return the decompressed content
+     * @throws ExternalServiceException if the content cannot be decompressed
+     */
+    private static byte[] decompress(byte[] content, String contentEncoding) throws ExternalServiceException {
+        try {
+            return CompressionPolicy.decompress(content, contentEncoding);
+        } catch (IOException e) {
+            throw new ExternalServiceException(e);
+        }
+    }
+
+    /**
+     * Open a stream decompressing a compressed object while it is read.
+     * @param content the compressed content, closed if it cannot be decompressed
+     * @param uncompressedLength the length of the content once decompressed, -1 if unknown
+     * @param contentType the media type of the content
+     * @param eTag the ETag of the object
+     * @return the decompressed content
+     * @throws IOException if the content is not valid gzip
+     */
+    private static ObjectStream decompressed(InputStream content, long uncompressedLength, String contentType, String eTag) throws IOException {
+        try {
+            return new ObjectStream(CompressionPolicy.decompress(content, CompressionPolicy.GZIP), uncompressedLength, contentType, eTag);
+        } catch (IOException e) {
+            content.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the size, ETag and last modification date of the object at the given URI, without reading its content.
+     * @param resourceUri The URI of the object.
+     * @return ResourceInfo The metadata of the object.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotAnObjectException If the URI points to a collection.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    @Override
+    public ResourceInfo stat(String resourceUri) throws NotFoundException, NotAnObjectException, ExternalServiceException {
         String[] parts = splitUri(resourceUri);
         String bucketName = parts[0];
         String key = parts[1];
 
-        if (!isBucket(bucketName, null)) {
-            return false;
+        ResourceInfo info = checkForGET(resourceUri, bucketName, key);
+        if (info.lastModified() != null && info.contentLength() >= 0) {
+            return info;
         }
 
-        if (isBucket(bucketName, key)) {
-            return true;
+        // A write only returns the ETag of the object and a listing not its encoding, the rest takes a HeadObject
+        try {
+            metadataCache.put(bucketName, key, resolveKey(bucketName, key));
+        } catch (Exception e) {
+            throw new ExternalServiceException(e);
         }
+        return checkForGET(resourceUri, bucketName, key);
+    }
 
-        if (isFolder(bucketName, key)) {
-            return true;
+    /**
+     * Open a stream on the content of the object at the given URI.
+     * @param resourceUri the URI of the object
+     * @param range the HTTP range of the bytes to read, null for the whole object
+     * @return the content of the object, to be closed by the caller
+     * @throws NotFoundException if the URI doesn't exist
+     * @throws NotAnObjectException if the URI points to a collection
+     * @throws ExternalServiceException if an internal error occurs with the S3 service
+     */
+    private ObjectStream openObject(String resourceUri, String range) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+        String[] parts = splitUri(resourceUri);
+        String bucketName = parts[0];
+        String key = parts[1];
+
+        checkForGET(resourceUri, bucketName, key);
+
+        try {
+            // Prepare the request
+            GetObjectRequest request = GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .range(range)
+                    .build();
+
+            // Open the object, the body is read by the caller
+            ResponseInputStream<GetObjectResponse> content = s3.getObject(request);
+            GetObjectResponse response = content.response();
+
+            return new ObjectStream(content, response.contentLength(), contentTypeOf(key, response.contentType()), response.eTag(),
+                    CompressionPolicy.encodingOf(response.contentEncoding()));
+        } catch (Exception e) {
+            throw new ExternalServiceException(e);
         }
+    }
+
+    /**
+     * Build the HTTP range header of the given bytes.
+     * @param start the position of the first byte
+     * @param end the position of the last byte, inclusive
+     * @return the range header value
+     */
+    private static String toRange(long start, long end) {
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Invalid range: " + start + "-" + end);
+        }
+
+        return "bytes=" + start + "-" + end;
+    }
+
+    /**
+     * Update the content of the object at the given URI with the content of the given source.
+     * @param resourceUri The URI of the object.
+     * @param fileUrl The URL of the source file.
+     * @return boolean True if the object was updated, false if it already held the content and was left as it is.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotAnObjectException If the URI points to a collection.
+     * @throws ConcurrentUpdateException If the object is modified by someone else during the update.
+     * @throws InvalidURLException If the URL is not valid.
+     * @throws URLNotAccessibleException If the URL is not accessible.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    @Override
+    public boolean update(String resourceUri, String fileUrl) throws NotFoundException, NotAnObjectException, ConcurrentUpdateException, InvalidURLException, URLNotAccessibleException, ExternalServiceException {
+        // The file is uploaded part by part while it is being downloaded
+        SourceInputStream content = openURL(fileUrl);
+        try (content) {
+            return update(resourceUri, content);
+        } catch (ExternalServiceException e) {
+            // A failed read of the file is an error of its URL, not of the storage
+            if (content.failure() != null) {
+                throw new URLNotAccessibleException(fileUrl, content.failure());
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new URLNotAccessibleException(fileUrl, e);
+        }
+    }
+
+    /**
+     * Update the content of the object at the given URI with the given content, compressed if the compression policy covers it.
+     * A content the object already holds, recognized by its ETag, is not written again.
+     * Under the deduplicated prefixes, a content already stored is copied from its object instead of being sent.
+     * @param resourceUri The URI of the object.
+     * @param fileContent The content of the object.
+     * @return boolean True if the object was updated, false if it already held the content and was left as it is.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotAnObjectException If the URI points to a collection.
+     * @throws ConcurrentUpdateException If the object is modified by someone else during the update.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    @Override
+    public boolean update(String resourceUri, byte[] fileContent) throws NotFoundException, NotAnObjectException, ConcurrentUpdateException, ExternalServiceException {
+        String[] parts = splitUri(resourceUri);
+        String bucketName = parts[0];
+        String key = parts[1];
+
+        // If the URI points to a non-existing object, throw an exception
+        ResourceInfo info = checkForGET(resourceUri, bucketName, key);
+
+        try {
+            byte[] compressed = compression.compress(bucketName, key, fileContent);
+            byte[] stored = compressed != null ? compressed : fileContent;
+            // A content the object already holds is not written again
+            String storedETag = ContentETag.of(stored);
+            if (isStored(bucketName, key, info.eTag(), storedETag)) {
+                return false;
+            }
+
+            // A content already stored is copied by S3, only if the object is still the version just checked
+            String digest = dedup.covers(bucketName, key) ? DedupIndex.digest(fileContent) : null;
+            ResourceInfo copy = digest != null ? dedup.copy(digest, bucketName, key, ifMatch(info.eTag())) : null;
+            if (copy != null) {
+                metadataCache.objectWritten(bucketName, key, copy.size(), fileContent.length, copy.eTag());
+                return true;
+            }
+
+            PutObjectRequest.Builder builder = PutObjectRequest.builder().bucket(bucketName).key(key);
+            if (compressed != null) {
+                CompressionPolicy.compressed(builder, fileContent.length);
+            }
+
+            PutObjectResponse response;
+            try {
+                // Update the object only if it is still the version just checked
+                response = s3.putObject(builder.overrideConfiguration(ifMatch(info.eTag())).build(), RequestBody.fromBytes(stored));
+            } catch (S3Exception e) {
+                if (!isConditionFailed(e)) {
+                    throw e;
+                }
+
+                // The cached ETag may be outdated, the write is retried once with the current one
+                metadataCache.invalidate(bucketName, key);
+                ResourceInfo current = checkForGET(resourceUri, bucketName, key);
+                if (ContentETag.matches(current.eTag(), storedETag)) {
+                    return false;
+                }
+                response = s3.putObject(builder.overrideConfiguration(ifMatch(current.eTag())).build(), RequestBody.fromBytes(stored));
+            }
+            metadataCache.objectWritten(bucketName, key, stored.length, fileContent.length, response.eTag());
+            if (digest != null) {
+                dedup.record(digest, bucketName, key, stored.length, response.eTag());
+            }
+        } catch (NotFoundException | NotAnObjectException e) {
+            throw e;
+        } catch (S3Exception e) {
+            metadataCache.invalidate(bucketName, key);
+            if (isConditionFailed(e)) {
+                throw new ConcurrentUpdateException(resourceUri);
+            }
+            if (e.statusCode() == 404) {
+                throw new NotFoundException(resourceUri);
+            }
+            throw new ExternalServiceException(e);
+        } catch (Exception e) {
+            metadataCache.invalidate(bucketName, key);
+            throw new ExternalServiceException(e);
+        }
+
+        return true;
+    }
+
+    /**
+     * Update the content of the object at the given URI with the content read from the given stream, without loading it in memory.
+     * A content the object already holds is not written: a content bigger than a part is still sent, its multipart upload being aborted once recognized.
+     * Under the deduplicated prefixes, a content that fits in a single part is written as if it had been given whole.
+     * @param resourceUri The URI of the object.
+     * @param content The content of the object, read until its end but not closed.
+     * @return boolean True if the object was updated, false if it already held the content and was left as it is.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotAnObjectException If the URI points to a collection.
+     * @throws ConcurrentUpdateException If the object is modified by someone else during the update.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    @Override
+    public boolean update(String resourceUri, InputStream content) throws NotFoundException, NotAnObjectException, ConcurrentUpdateException, ExternalServiceException {
+        String[] parts = splitUri(resourceUri);
+        String bucketName = parts[0];
+        String key = parts[1];
+
+        // If the URI points to a non-existing object, throw an exception
+        ResourceInfo current = checkForGET(resourceUri, bucketName, key);
+
+        if (dedup.covers(bucketName, key)) {
+            byte[] head = readHead(content);
+            if (head.length < partSize) {
+                return update(resourceUri, head);
+            }
+            content = withHead(head, content);
+        }
+
+        try {
+            // Update the object part by part, only if it is still the version just checked and does not hold the content already
+            ResourceInfo info = uploader.upload(bucketName, key, content, ifMatch(current.eTag()),
+                    eTag -> isStored(bucketName, key, current.eTag(), eTag));
+            if (info == null) {
+                return false;
+            }
+            metadataCache.objectWritten(bucketName, key, info.size(), info.eTag());
+        } catch (S3Exception e) {
+            metadataCache.invalidate(bucketName, key);
+            if (isConditionFailed(e)) {
+                throw new ConcurrentUpdateException(resourceUri);
+            }
+            if (e.statusCode() == 404) {
+                throw new NotFoundException(resourceUri);
+            }
+            throw new ExternalServiceException(e);
+        } catch (Exception e) {
+            metadataCache.invalidate(bucketName, key);
+            throw new ExternalServiceException(e);
+        }
+
+        return true;
+    }
+
+    /**
+     * Delete the object at the given URI.
+     * @param resourceUri The URI of the object.
+     * @return boolean True if the object was deleted, false otherwise.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws DeleteCollectionNoRecursiveException If the URI points to a collection and the recursive option is not set to true.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    @Override
+    public boolean delete(String resourceUri, boolean recursive) throws NotFoundException, DeleteCollectionNoRecursiveException, ExternalServiceException {
+        String[] parts = splitUri(resourceUri);
+        String bucketName = parts[0];
+        String key = parts[1];
+
+        ResourceType type = resolve(bucketName, key).type();
+
+        // If the URI points to a non-existing object, throw an exception
+        if (type == ResourceType.MISSING) {
+            throw new NotFoundException(resourceUri);
+        }
+
+        // If the URI points to a folder or bucket and recursive is false, throw an exception
+        if (!recursive && type.isCollection()) {
+            throw new DeleteCollectionNoRecursiveException(resourceUri);
+        }
+
+        try {
+            // If the URI points to a bucket, delete all objects in the bucket recursively and then delete the bucket
+            if (type == ResourceType.BUCKET) {
+                // Delete all objects in the bucket recursively
+                deleteAll(resourceUri, bucketName, null);
+
+                // Delete the bucket
+                s3.deleteBucket(builder -> builder.bucket(bucketName));
+                metadataCache.deleted(bucketName, null);
+
+                return !exists(resourceUri);
+            }
+
+            // If the URI points to a folder, delete all objects in the folder recursively
+            if (type == ResourceType.FOLDER) {
+                // Delete all objects in the folder recursively
+                deleteAll(resourceUri, bucketName, key + "/");
+                metadataCache.deleted(bucketName, key);
+
+                return !exists(resourceUri);
+            }
+
+            // If the URI points to an object, delete the object
+            s3.deleteObject(builder -> builder.bucket(bucketName).key(key));
+            metadataCache.deleted(bucketName, key);
+        } catch (ExternalServiceException e) {
+            metadataCache.invalidate(bucketName, key);
+            throw e;
+        } catch (Exception e) {
+            metadataCache.invalidate(bucketName, key);
+            throw new ExternalServiceException(e);
+        }
+
+        return !exists(resourceUri);
+    }
+
+    /**
+     * Delete all the objects under the given prefix.
+     * Every page of the listing is deleted with a single DeleteObjects request, and several pages are deleted concurrently.
+     * @param resourceUri the URI of the collection, used to report the failures
+     * @param bucketName the name of the bucket
+     * @param prefix the prefix of the objects to delete, null for the whole bucket
+     * @throws DeleteIncompleteException if some objects could not be deleted
+     * @throws ExternalServiceException if an error occurs while listing the objects
+     */
+    private void deleteAll(String resourceUri, String bucketName, String prefix) throws ExternalServiceException {
+        Map<String, String> failures = new ConcurrentHashMap<>();
+        List<Future<?>> pendingBatches = new ArrayList<>();
+
+        try {
+            // A page holds at most 1000 keys, the maximum accepted by DeleteObjects
+            for (ListObjectsV2Response page : s3.listObjectsV2Paginator(builder -> builder.bucket(bucketName).prefix(prefix))) {
+                List<ObjectIdentifier> batch = page.contents().stream()
+                        .map(object -> ObjectIdentifier.builder().key(object.key()).build())
+                        .toList();
+                if (batch.isEmpty()) {
+                    continue;
+                }
+
+                deleteBatchPermits.acquire();
+                pendingBatches.add(executor.submit(() -> {
+                    try {
+                        deleteBatch(bucketName, batch, failures);
+                    } finally {
+                        deleteBatchPermits.release();
+                    }
+                }));
+            }
+
+            for (Future<?> pendingBatch : pendingBatches) {
+                pendingBatch.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendingBatches.forEach(pendingBatch -> pendingBatch.cancel(true));
+            throw new ExternalServiceException(e);
+        } catch (Exception e) {
+            pendingBatches.forEach(pendingBatch -> pendingBatch.cancel(true));
+            throw new ExternalServiceException(e);
+        }
+
+        if (!failures.isEmpty()) {
+            throw new DeleteIncompleteException(resourceUri, failures);
+        }
+    }
+
+    /**
+     * Delete a batch of objects with a single DeleteObjects request, recording the keys that could not be deleted.
+     * @param bucketName the name of the bucket
+     * @param batch the objects to delete, at most 1000
+     * @param failures the error message of each key that could not be deleted
+     */
+    private void deleteBatch(String bucketName, List<ObjectIdentifier> batch, Map<String, String> failures) {
+        try {
+            DeleteObjectsResponse response = s3.deleteObjects(builder -> builder.bucket(bucketName)
+                    .delete(delete -> delete.objects(batch).quiet(true)));
+            for (S3Error error : response.errors()) {
+                failures.put(error.key(), error.code() + ": " + error.message());
+            }
+        } catch (Exception e) {
+            for (ObjectIdentifier object : batch) {
+                failures.put(object.key(), String.valueOf(e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Copy the object at the given URI, or all the objects of the collection at the given URI, to a new URI.
+     * An object is copied with a single CopyObject request, or with UploadPartCopy requests when it is bigger than 5 GiB.
+     * The objects of a collection are copied concurrently, page by page of its listing.
+     * @param sourceUri The URI of the object or collection to copy.
+     * @param targetUri The URI of the copy.
+     * @param recursive True to copy a collection with all its objects.
+     * @return boolean True if the resource was copied, false otherwise.
+     * @throws NotFoundException If the source URI doesn't exist.
+     * @throws AlreadyExistsException If the target URI already exists.
+     * @throws CopyCollectionNoRecursiveException If the source URI points to a collection and the recursive option is not set to true.
+     * @throws CopyIntoItselfException If the target URI is inside the source collection.
+     * @throws CopyIncompleteException If some objects of the collection could not be copied.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    @Override
+    public boolean copy(String sourceUri, String targetUri, boolean recursive) throws NotFoundException, AlreadyExistsException, CopyCollectionNoRecursiveException, CopyIntoItselfException, ExternalServiceException {
+        return copy(sourceUri, targetUri, recursive, false);
+    }
+
+    /**
+     * Move the object at the given URI, or all the objects of the collection at the given URI, to a new URI.
+     * The objects are copied like by copy, then deleted: an object with a DeleteObject request,
+     * the objects of a collection with a DeleteObjects request per page of its listing, once the page is copied.
+     * @param sourceUri The URI of the object or collection to move.
+     * @param targetUri The new URI of the resource.
+     * @param recursive True to move a collection with all its objects.
+     * @return boolean True if the resource was moved, false otherwise.
+     * @throws NotFoundException If the source URI doesn't exist.
+     * @throws AlreadyExistsException If the target URI already exists.
+     * @throws CopyCollectionNoRecursiveException If the source URI points to a collection and the recursive option is not set to true.
+     * @throws CopyIntoItselfException If the target URI is inside the source collection.
+     * @throws CopyIncompleteException If some objects of the collection could not be moved, the others are.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    @Override
+    public boolean move(String sourceUri, String targetUri, boolean recursive) throws NotFoundException, AlreadyExistsException, CopyCollectionNoRecursiveException, CopyIntoItselfException, ExternalServiceException {
+        return copy(sourceUri, targetUri, recursive, true);
+    }
+
+    private boolean copy(String sourceUri, String targetUri, boolean recursive, boolean move) throws NotFoundException, AlreadyExistsException, CopyCollectionNoRecursiveException, CopyIntoItselfException, ExternalServiceException {
+        String[] source = splitUri(sourceUri);
+        String[] target = splitUri(targetUri);
+
+        ResourceInfo sourceInfo = resolve(source[0], source[1]);
+        checkForCopy(sourceUri, sourceInfo, targetUri, resolve(target[0], target[1]), recursive);
+
+        try {
+            if (!isBucket(target[0])) {
+                createBucket(target[0]);
+            }
+
+            if (!sourceInfo.type().isCollection()) {
+                ResourceInfo copy = copyObject(source[0], source[1], sourceInfo, target[0], target[1], true);
+                metadataCache.objectWritten(target[0], target[1], copy.size(), sourceInfo.contentLength(), copy.eTag());
+                if (move) {
+                    s3.deleteObject(builder -> builder.bucket(source[0]).key(source[1]));
+                    metadataCache.deleted(source[0], source[1]);
+                }
+                return true;
+            }
+
+            try {
+                copyAll(sourceUri, source[0], source[1] != null ? source[1] + "/" : "", target[0], target[1] != null ? target[1] + "/" : "", move);
+            } finally {
+                metadataCache.invalidate(target[0], target[1]);
+                if (move) {
+                    metadataCache.invalidate(source[0], source[1]);
+                }
+            }
+            if (move && source[1] == null) {
+                s3.deleteBucket(builder -> builder.bucket(source[0]));
+                metadataCache.deleted(source[0], null);
+            }
+        } catch (S3Exception e) {
+            metadataCache.invalidate(target[0], target[1]);
+            metadataCache.invalidate(source[0], source[1]);
+            if (e.statusCode() == 404) {
+                throw new NotFoundException(sourceUri);
+            }
+            // Otherwise the source has been replaced while its parts were copied
+            if (isConditionFailed(e) && resolve(target[0], target[1]).exists()) {
+                throw new AlreadyExistsException(targetUri);
+            }
+            throw new ExternalServiceException(e);
+        } catch (ExternalServiceException e) {
+            throw e;
+        } catch (Exception e) {
+            metadataCache.invalidate(target[0], target[1]);
+            throw new ExternalServiceException(e);
+        }
+
+        return true;
+    }
+
+    /**
+     * Copy an object within the S3 service.
+     * @param sourceBucket the name of the bucket of the source
+     * @param sourceKey the path to the source
+     * @param source the size and ETag of the source
+     * @param targetBucket the name of the bucket of the copy
+     * @param targetKey the path to the copy
+     * @param concurrent true to copy the parts of a big object concurrently, which a task of the executor may not do
+     * @return the size and ETag of the copy
+     */
+    private ResourceInfo copyObject(String sourceBucket, String sourceKey, ResourceInfo source, String targetBucket, String targetKey, boolean concurrent) {
+        if (source.size() > MAX_COPY_OBJECT_SIZE) {
+            return copier.copy(sourceBucket, sourceKey, source, targetBucket, targetKey, concurrent, ServiceAwsImpl::ifNoneMatch);
+        }
+
+        // Like the multipart copy, the copy is only made of the version checked and never replaces an object created meanwhile
+        CopyObjectResponse response = s3.copyObject(builder -> builder
+                .sourceBucket(sourceBucket).sourceKey(sourceKey).copySourceIfMatch(source.eTag())
+                .destinationBucket(targetBucket).destinationKey(targetKey)
+                .overrideConfiguration(ServiceAwsImpl::ifNoneMatch));
+        return ResourceInfo.object(source.size(), response.copyObjectResult().eTag());
+    }
+
+    /**
+     * Copy all the objects under the given prefix to another prefix, page by page of their listing.
+     * The objects of a page are copied by the executor, at most ioThreads at the same time over all the copies,
+     * and the next page is listed once they are all copied, which bounds the memory of the copy of any collection.
+     * When moving, the objects of a page are deleted with a single DeleteObjects request once they are copied.
+     * @param sourceUri the URI of the collection, used to report the failures
+     * @param sourceBucket the name of the bucket of the collection
+     * @param sourcePrefix the prefix of the objects to copy, empty for the whole bucket
+     * @param targetBucket the name of the bucket of the copy
+     * @param targetPrefix the prefix replacing the source prefix in the keys of the copies
+     * @param move true to delete the objects once copied
+     * @throws CopyIncompleteException if some objects could not be copied or deleted
+     * @throws ExternalServiceException if an error occurs while listing the objects
+     */
+    private void copyAll(String sourceUri, String sourceBucket, String sourcePrefix, String targetBucket, String targetPrefix, boolean move) throws ExternalServiceException {
+        Map<String, String> failures = new ConcurrentHashMap<>();
+        List<Future<String>> pendingCopies = new ArrayList<>();
+        List<Future<?>> pendingDeletes = new ArrayList<>();
+
+        try {
+            for (ListObjectsV2Response page : s3.listObjectsV2Paginator(builder -> builder.bucket(sourceBucket).prefix(sourcePrefix))) {
+                pendingCopies.clear();
+                for (S3Object object : page.contents()) {
+                    String targetKey = targetPrefix + object.key().substring(sourcePrefix.length());
+                    ResourceInfo info = ResourceInfo.object(object.size(), object.eTag());
+
+                    copyPermits.acquire();
+                    pendingCopies.add(executor.submit(() -> {
+                        try {
+                            copyObject(sourceBucket, object.key(), info, targetBucket, targetKey, false);
+                            return object.key();
+                        } catch (Exception e) {
+                            failures.put(object.key(), String.valueOf(e.getMessage()));
+                            return null;
+                        } finally {
+                            copyPermits.release();
+                        }
+                    }));
+                }
+
+                List<ObjectIdentifier> copied = new ArrayList<>(pendingCopies.size());
+                for (Future<String> pendingCopy : pendingCopies) {
+                    String key = pendingCopy.get();
+                    if (key != null) {
+                        copied.add(ObjectIdentifier.builder().key(key).build());
+                    }
+                }
+                if (!move || copied.isEmpty()) {
+                    continue;
+                }
+
+                deleteBatchPermits.acquire();
+                pendingDeletes.add(executor.submit(() -> {
+                    try {
+                        deleteBatch(sourceBucket, copied, failures);
+                    } finally {
+                        deleteBatchPermits.release();
+                    }
+                }));
+            }
+
+            for (Future<?> pendingDelete : pendingDeletes) {
+                pendingDelete.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendingCopies.forEach(pendingCopy -> pendingCopy.cancel(true));
+            pendingDeletes.forEach(pendingDelete -> pendingDelete.cancel(true));
+            throw new ExternalServiceException(e);
+        } catch (Exception e) {
+            pendingCopies.forEach(pendingCopy -> pendingCopy.cancel(true));
+            pendingDeletes.forEach(pendingDelete -> pendingDelete.cancel(true));
+            throw new ExternalServiceException(e);
+        }
+
+        if (!failures.isEmpty()) {
+            throw new CopyIncompleteException(sourceUri, failures);
+        }
+    }
+
+    /**
+     * Get a presigned URL to access the object at the given URI.
+     * @param resourceUri The URI of the object.
+     * @param ttl The time to live of the URL in seconds.
+     * @return String The presigned URL.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotAnObjectException If the URI points to a collection.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    @Override
+    public String publish(String resourceUri, int ttl) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+        String[] parts = splitUri(resourceUri);
+        String bucketName = parts[0];
+        String key = parts[1];
+
+        // If the URI points to a non-existing object, throw an exception
+        checkForGET(resourceUri, bucketName, key);
+
+        // Reuse a recent link with enough lifetime left
+        String url = presignedUrlCache.get(bucketName, key, ttl);
+        if (url != null) {
+            return url;
+        }
+
+        try {
+            // Prepare presigned URL GET request
+            var request = GetObjectPresignRequest.builder()
+                    .signatureDuration(Duration.ofSeconds(ttl))
+                    .getObjectRequest(b -> b.bucket(bucketName).key(key))
+                    .build();
+
+            // Generate presigned URL
+            url = presigner.presignGetObject(request).url().toString();
+            presignedUrlCache.put(bucketName, key, ttl, url);
+            return url;
+        } catch (Exception e) {
+            throw new ExternalServiceException(e);
+        }
+    }
+
+    /**
+     * Get presigned URLs to access the objects at the given URIs.
+     * The URIs are first resolved together, with one listing per group of siblings,
+     * then they are signed in parallel by the single URI publish.
+     * @param resourceUris The URIs of the objects.
+     * @param ttl The time to live of the URLs in seconds.
+     * @return Map The presigned URL or the error message of each URI, in the order of the URIs.
+     */
+    @Override
+    public Map<String, PublishResult> publish(List<String> resourceUris, int ttl) {
+        resolveAll(resourceUris);
+
+        Map<String, Future<PublishResult>> pendingLinks = new LinkedHashMap<>();
+        for (String resourceUri : resourceUris) {
+            pendingLinks.computeIfAbsent(resourceUri, uri -> executor.submit(() -> {
+                try {
+                    return PublishResult.success(publish(uri, ttl));
+                } catch (ServiceException e) {
+                    return PublishResult.failure(e.getMessage());
+                }
+            }));
+        }
+
+        Map<String, PublishResult> results = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<PublishResult>> pendingLink : pendingLinks.entrySet()) {
+            PublishResult result;
+            try {
+                result = pendingLink.getValue().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result = PublishResult.failure(new ExternalServiceException(e).getMessage());
+            } catch (ExecutionException e) {
+                result = PublishResult.failure(new ExternalServiceException(e.getCause()).getMessage());
+            }
+            results.put(pendingLink.getKey(), result);
+        }
+
+        return results;
+    }
+
+    /**
+     * Resolve many URIs into the metadata cache at once.
+     * The keys that are not cached are grouped by bucket and parent folder, and each group is resolved
+     * with a single listing of the longest prefix its keys have in common, run in parallel with the other groups.
+     * A lone key is resolved on its own, which is cheaper than a listing.
+     * Failures are ignored here: the URIs concerned are resolved again, and fail, one by one.
+     * @param resourceUris the URIs to resolve
+     */
+    private void resolveAll(List<String> resourceUris) {
+        Map<String, List<String>> groups = new HashMap<>();
+        for (String resourceUri : resourceUris) {
+            String[] parts = splitUri(resourceUri);
+            if (parts[1] == null || metadataCache.get(parts[0], parts[1]) != null) {
+                continue;
+            }
+
+            String parent = parts[1].substring(0, parts[1].lastIndexOf('/') + 1);
+            groups.computeIfAbsent(parts[0] + "/" + parent, group -> new ArrayList<>()).add(parts[1]);
+        }
+
+        List<Future<?>> pendingGroups = new ArrayList<>();
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            String bucketName = group.getKey().substring(0, group.getKey().indexOf('/'));
+            List<String> keys = group.getValue();
+            pendingGroups.add(executor.submit(() -> {
+                if (keys.size() == 1) {
+                    resolve(bucketName, keys.get(0));
+                } else {
+                    resolveSiblings(bucketName, keys);
+                }
+                return null;
+            }));
+        }
+
+        for (Future<?> pendingGroup : pendingGroups) {
+            try {
+                pendingGroup.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // The URIs of the group are resolved again by publish, which reports the error
+            }
+        }
+    }
+
+    /**
+     * Resolve keys sharing the same parent folder with a single delimited listing.
+     * The listing starts at the longest common prefix of the keys and stops once past the last of them.
+     * @param bucketName the name of the bucket
+     * @param keys the keys to resolve, all in the same folder
+     */
+    private void resolveSiblings(String bucketName, List<String> keys) {
+        List<String> sortedKeys = keys.stream().distinct().sorted().toList();
+        String first = sortedKeys.get(0);
+        String last = sortedKeys.get(sortedKeys.size() - 1);
+        int common = 0;
+        while (common < first.length() && common < last.length() && first.charAt(common) == last.charAt(common)) {
+            common++;
+        }
+        String prefix = first.substring(0, common);
+        String lastWanted = last + "/";
+
+        Set<String> wanted = new HashSet<>(sortedKeys);
+        Map<String, ResourceInfo> found = new HashMap<>();
+        try {
+            for (ListObjectsV2Response page : s3.listObjectsV2Paginator(builder -> builder.bucket(bucketName).prefix(prefix).delimiter("/"))) {
+                String lastListed = "";
+                for (S3Object object : page.contents()) {
+                    if (wanted.contains(object.key())) {
+                        // A listing does not tell whether an object is compressed
+                        found.put(object.key(), ResourceInfo.object(object.size(), object.eTag(), object.lastModified(), -1));
+                    }
+                    lastListed = object.key();
+                }
+                for (CommonPrefix folder : page.commonPrefixes()) {
+                    String folderKey = folder.prefix().substring(0, folder.prefix().length() - 1);
+                    if (wanted.contains(folderKey)) {
+                        found.putIfAbsent(folderKey, ResourceInfo.folder());
+                    }
+                    lastListed = lastListed.compareTo(folder.prefix()) > 0 ? lastListed : folder.prefix();
+                }
+
+                // Nothing after the last wanted key can match
+                if (lastListed.compareTo(lastWanted) >= 0) {
+                    break;
+                }
+            }
+        } catch (NoSuchBucketException e) {
+            metadataCache.putBucket(bucketName, false);
+            sortedKeys.forEach(key -> metadataCache.put(bucketName, key, ResourceInfo.missing()));
+            return;
+        }
+
+        metadataCache.putBucket(bucketName, true);
+        sortedKeys.forEach(key -> metadataCache.put(bucketName, key, found.getOrDefault(key, ResourceInfo.missing())));
+    }
+
+    /**
+     * List the content of the bucket or folder at the given URI, sorted by key.
+     * The pages of a paginated ListObjectsV2 are requested one after the other with their continuation token,
+     * each one only when the stream reaches it, and listing the direct children is a delimited listing.
+     * The entries are not put in the metadata cache, which a large listing would flush.
+     * @param resourceUri The URI of the bucket or folder.
+     * @param recursive True to list every object under the collection, false to list only its direct objects and folders.
+     * @param startAfter The position of the last entry already listed, as given by ListEntry.position, null to list from the start.
+     * @return Stream The entries after the start position, to be closed by the caller.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotACollectionException If the URI points to an object.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    @Override
+    public Stream<ListEntry> list(String resourceUri, boolean recursive, String startAfter) throws NotFoundException, NotACollectionException, ExternalServiceException {
+        String[] parts = splitUri(resourceUri);
+        String bucketName = parts[0];
+        String key = parts[1];
+
+        ResourceType type = resolve(bucketName, key).type();
+        if (type == ResourceType.MISSING) {
+            throw new NotFoundException(resourceUri);
+        }
+        if (!type.isCollection()) {
+            throw new NotACollectionException(resourceUri);
+        }
+
+        String prefix = key != null ? key + "/" : "";
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .delimiter(recursive ? null : "/")
+                .startAfter(startAfterOf(prefix, startAfter))
+                .build();
+
+        return s3.listObjectsV2Paginator(request).stream()
+                .flatMap(page -> entriesOf(bucketName, page));
+    }
+
+    /**
+     * Translate the position of the last listed entry into the StartAfter parameter of ListObjectsV2.
+     * The listing resumes after a folder by starting after the highest code point under its prefix,
+     * otherwise it would list the folder again from the keys it holds.
+     * @param prefix the prefix of the listed collection
+     * @param position the position of the last listed entry, null for the start of the listing
+     * @return the key to start the listing after, null to start from the prefix
+     */
+    private static String startAfterOf(String prefix, String position) {
+        if (position == null || position.compareTo(prefix) < 0) {
+            return null;
+        }
+        return position.endsWith("/") ? position + new String(Character.toChars(Character.MAX_CODE_POINT)) : position;
+    }
+
+    /**
+     * Get the entries of a page of a listing, in the order of their positions.
+     * S3 returns the objects and the folders of a page as two lists, which are merged for the listing to resume correctly.
+     * @param bucketName the name of the bucket
+     * @param page the page of the listing
+     * @return the entries of the page
+     */
+    private static Stream<ListEntry> entriesOf(String bucketName, ListObjectsV2Response page) {
+        List<ListEntry> entries = new ArrayList<>(page.contents().size() + page.commonPrefixes().size());
+        for (S3Object object : page.contents()) {
+            // The empty object marking a folder created by the console cannot be addressed by a URI
+            if (object.key().endsWith("/")) {
+                continue;
+            }
+            entries.add(ListEntry.object(bucketName, object.key(), object.size(), object.eTag(), object.lastModified()));
+        }
+        for (CommonPrefix folder : page.commonPrefixes()) {
+            entries.add(ListEntry.folder(bucketName, folder.prefix().substring(0, folder.prefix().length() - 1)));
+        }
+
+        entries.sort(Comparator.comparing(ListEntry::position));
+        return entries.stream();
+    }
+
+    /**
+     * Check if the object at the given URI exists.
+     * @param resourceUri The URI of the object.
+     * @return boolean True if the object exists, false otherwise.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    @Override
+    public boolean exists(String resourceUri) throws ExternalServiceException {
+        String[] parts = splitUri(resourceUri);
+        String bucketName = parts[0];
+        String key = parts[1];
 
-        return isFile(bucketName, key);
+        return resolve(bucketName, key).exists();
     }
 }
@@ -0,0 +1,749 @@
+package org.heig.team04.dataobject.service;
+
+import org.heig.team04.dataobject.config.DataObjectProperties;
+import org.heig.team04.dataobject.service.cache.FileContent;
+import org.heig.team04.dataobject.service.exceptions.*;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * This class is the local filesystem implementation of the service layer, selected by the "filesystem" profile.
+ * A bucket is a directory of the root directory, a folder one of its subdirectories and an object a file.
+ * A write goes to a temporary file first, which replaces the object only once complete,
+ * so a reader always sees a whole version of the object.
+ * The contents are moved between the files and the streams with FileChannel transfers, which avoid the copies the JVM can.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see ServiceInterface
+ */
+@Service
+@Profile("filesystem")
+public class ServiceFileSystemImpl extends AbstractLocalService {
+    private static final String TEMPORARY_DIRECTORY = ".uploads";
+    private static final long TRANSFER_CHUNK_SIZE = 8L * 1024 * 1024;
+    private final Path root; // Directory of the buckets
+    private final Path temporary; // Directory of the writes in progress
+    private final ReentrantLock[] locks = new ReentrantLock[64]; // Locks of the replacement of the objects, by hash of their path
+
+    /**
+     * Constructor for the ServiceFileSystemImpl class.
+     * @param properties the configuration properties of the service
+     */
+    public ServiceFileSystemImpl(DataObjectProperties properties) {
+        super(properties);
+        root = properties.getLocal().getRootDirectory().toAbsolutePath().normalize();
+        temporary = root.resolve(TEMPORARY_DIRECTORY);
+        try {
+            Files.createDirectories(temporary);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Get the path of the resource at the given location.
+     * @param bucketName the name of the bucket
+     * @param key the path to the resource, null for the bucket itself
+     * @return the path of the resource, null if the location is not a valid one
+     */
+    private Path pathOf(String bucketName, String key) {
+        if (bucketName.isEmpty() || bucketName.startsWith(".") || bucketName.contains("\\")) {
+            return null;
+        }
+        if (key == null) {
+            return root.resolve(bucketName);
+        }
+
+        // A key may not leave its bucket, nor name a file with a path it does not have
+        for (String segment : key.split("/", -1)) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..") || segment.contains("\\")) {
+                return null;
+            }
+        }
+        return root.resolve(bucketName).resolve(key);
+    }
+
+    /**
+     * Get the lock of the replacement of the object at the given path.
+     * @param path the path of the object
+     * @return the lock
+     */
+    private ReentrantLock lockOf(Path path) {
+        return locks[Math.floorMod(path.hashCode(), locks.length)];
+    }
+
+    /**
+     * Build the ETag of a file from its size and modification time, which change with every write.
+     * @param attributes the attributes of the file
+     * @return the ETag of the file
+     */
+    private static String eTagOf(BasicFileAttributes attributes) {
+        Instant modified = attributes.lastModifiedTime().toInstant();
+        return "\"" + Long.toHexString(modified.getEpochSecond()) + "-" + Integer.toHexString(modified.getNano())
+                + "-" + Long.toHexString(attributes.size()) + "\"";
+    }
+
+    /**
+     * Check if a directory holds at least one entry.
+     * @param directory the directory
+     * @return true if the directory is not empty
+     * @throws IOException if the directory cannot be listed
+     */
+    private static boolean hasEntries(Path directory) throws IOException {
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.findAny().isPresent();
+        }
+    }
+
+    /**
+     * Resolve the resource at the given path.
+     * A folder left empty by the deletion of its last object does not exist, like in the S3 service.
+     * @param path the path of the resource, null if the location is not valid
+     * @param isBucket true if the path is the one of a bucket
+     * @return the resolved resource
+     * @throws ExternalServiceException if the filesystem cannot be read
+     */
+    private ResourceInfo resolve(Path path, boolean isBucket) throws ExternalServiceException {
+        if (path == null) {
+            return ResourceInfo.missing();
+        }
+
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (attributes.isRegularFile()) {
+                return isBucket ? ResourceInfo.missing() : ResourceInfo.object(attributes.size(), eTagOf(attributes), attributes.lastModifiedTime().toInstant());
+            }
+            if (isBucket) {
+                return ResourceInfo.bucket();
+            }
+            return hasEntries(path) ? ResourceInfo.folder() : ResourceInfo.missing();
+        } catch (NoSuchFileException e) {
+            return ResourceInfo.missing();
+        } catch (IOException e) {
+            throw new ExternalServiceException(e);
+        }
+    }
+
+    /**
+     * Resolve the resource at the given URI.
+     * @param resourceUri the URI of the resource
+     * @return the resolved resource
+     * @throws ExternalServiceException if the filesystem cannot be read
+     */
+    private ResourceInfo resolve(String resourceUri) throws ExternalServiceException {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        return resolve(pathOf(parts[0], parts[1]), parts[1] == null);
+    }
+
+    /**
+     * Checks that the given resource URI is an object, and get its path.
+     * @param resourceUri the URI of the object
+     * @return the path of the object
+     * @throws NotFoundException if the resource does not exist
+     * @throws NotAnObjectException if the resource is not an object
+     * @throws ExternalServiceException if the filesystem cannot be read
+     */
+    private Path checkForGET(String resourceUri) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+        stat(resourceUri);
+
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        return pathOf(parts[0], parts[1]);
+    }
+
+    /**
+     * Write the content read from the given channel to a new temporary file.
+     * The file is filled by FileChannel transfers, chunk by chunk until the end of the content.
+     * @param content the content to write
+     * @return the temporary file, to be moved or deleted by the caller
+     * @throws IOException if the content cannot be read or written
+     */
+    private Path writeTemporary(ReadableByteChannel content) throws IOException {
+        Path file = Files.createTempFile(temporary, "object-", ".part");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            long position = 0;
+            long transferred;
+            while ((transferred = channel.transferFrom(content, position, TRANSFER_CHUNK_SIZE)) > 0) {
+                position += transferred;
+            }
+            return file;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Move a complete temporary file to the path of a new object, if nothing exists there yet.
+     * @param resourceUri the URI of the new object
+     * @param file the temporary file
+     * @param path the path of the new object
+     * @throws AlreadyExistsException if an object or a folder already exists at the path
+     * @throws IOException if the file cannot be moved
+     */
+    private void commitCreate(String resourceUri, Path file, Path path) throws AlreadyExistsException, IOException {
+        ReentrantLock lock = lockOf(path);
+        lock.lock();
+        try {
+            if (Files.exists(path)) {
+                throw new AlreadyExistsException(resourceUri);
+            }
+            try {
+                Files.createDirectories(path.getParent());
+                Files.move(file, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                // The folder has been deleted meanwhile with its last object
+                Files.createDirectories(path.getParent());
+                Files.move(file, path, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Move a complete temporary file over an object, if it is still the version that was checked.
+     * @param resourceUri the URI of the object
+     * @param file the temporary file
+     * @param path the path of the object
+     * @param eTag the ETag of the checked version, null to replace any version
+     * @throws NotFoundException if the object has been deleted meanwhile
+     * @throws ConcurrentUpdateException if the object has been replaced meanwhile
+     * @throws ExternalServiceException if the filesystem cannot be read
+     * @throws IOException if the file cannot be moved
+     */
+    private void commitUpdate(String resourceUri, Path file, Path path, String eTag) throws NotFoundException, ConcurrentUpdateException, ExternalServiceException, IOException {
+        ReentrantLock lock = lockOf(path);
+        lock.lock();
+        try {
+            ResourceInfo current = resolve(path, false);
+            if (current.type() != ResourceType.OBJECT) {
+                throw new NotFoundException(resourceUri);
+            }
+            if (eTag != null && !eTag.equals(current.eTag())) {
+                throw new ConcurrentUpdateException(resourceUri);
+            }
+            Files.move(file, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Create a new object at the given URI with the content read from the given channel.
+     * @param resourceUri the URI of the new object
+     * @param content the content of the new object
+     * @return true once the object is created
+     * @throws AlreadyExistsException if the URI already exists
+     * @throws ExternalServiceException if the content cannot be written
+     */
+    private boolean create(String resourceUri, ReadableByteChannel content) throws AlreadyExistsException, ExternalServiceException {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        Path path = parts[1] != null ? pathOf(parts[0], parts[1]) : null;
+        if (path == null || Files.exists(path)) {
+            throw new AlreadyExistsException(resourceUri);
+        }
+
+        Path file = null;
+        try {
+            file = writeTemporary(content);
+            commitCreate(resourceUri, file, path);
+            file = null;
+        } catch (FileAlreadyExistsException e) {
+            // A parent of the key is an object, which the filesystem cannot turn into a folder
+            throw new AlreadyExistsException(resourceUri);
+        } catch (IOException e) {
+            throw new ExternalServiceException(e);
+        } finally {
+            deleteTemporary(file);
+        }
+        return true;
+    }
+
+    /**
+     * Update the object at the given URI with the content read from the given channel.
+     * @param resourceUri the URI of the object
+     * @param content the content of the object
+     * @param checkVersion true to fail if the object is replaced while the content is written
+     * @return true once the object is updated
+     * @throws NotFoundException if the URI doesn't exist
+     * @throws NotAnObjectException if the URI points to a collection
+     * @throws ConcurrentUpdateException if the object is replaced while the content is written
+     * @throws ExternalServiceException if the content cannot be written
+     */
+    private boolean update(String resourceUri, ReadableByteChannel content, boolean checkVersion) throws NotFoundException, NotAnObjectException, ConcurrentUpdateException, ExternalServiceException {
+        String eTag = stat(resourceUri).eTag();
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        Path path = pathOf(parts[0], parts[1]);
+
+        Path file = null;
+        try {
+            file = writeTemporary(content);
+            commitUpdate(resourceUri, file, path, checkVersion ? eTag : null);
+            file = null;
+        } catch (IOException e) {
+            throw new ExternalServiceException(e);
+        } finally {
+            deleteTemporary(file);
+        }
+        return true;
+    }
+
+    /**
+     * Delete a temporary file that has not been moved.
+     * @param file the temporary file, null if there is none
+     */
+    private static void deleteTemporary(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Left in the temporary directory
+        }
+    }
+
+    @Override
+    public boolean create(String resourceUri, byte[] fileContent) throws AlreadyExistsException, ExternalServiceException {
+        return create(resourceUri, Channels.newChannel(new ByteArrayInputStream(fileContent)));
+    }
+
+    @Override
+    public boolean create(String resourceUri, InputStream content) throws AlreadyExistsException, ExternalServiceException {
+        return create(resourceUri, Channels.newChannel(content));
+    }
+
+    @Override
+    public byte[] read(String resourceUri) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+        Path path = checkForGET(resourceUri);
+        try {
+            return Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            throw new NotFoundException(resourceUri);
+        } catch (IOException e) {
+            throw new ExternalServiceException(e);
+        }
+    }
+
+    @Override
+    public ObjectStream readStream(String resourceUri) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+        return open(resourceUri, 0, Long.MAX_VALUE);
+    }
+
+    @Override
+    public ObjectStream readStream(String resourceUri, long start, long end) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+        checkRange(start, end);
+        return open(resourceUri, start, end);
+    }
+
+    /**
+     * Open a stream on a range of the object at the given URI.
+     * The stream reads the file with positional reads, and is sent to an output with FileChannel transfers.
+     * @param resourceUri the URI of the object
+     * @param start the position of the first byte to read
+     * @param end the position of the last byte to read, inclusive, cut to the end of the object
+     * @return the content of the range, to be closed by the caller
+     * @throws NotFoundException if the URI doesn't exist
+     * @throws NotAnObjectException if the URI points to a collection
+     * @throws ExternalServiceException if the file cannot be read
+     */
+    private ObjectStream open(String resourceUri, long start, long end) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+        Path path = checkForGET(resourceUri);
+
+        FileChannel channel = null;
+        try {
+            // The ETag is read before the file is opened, so a concurrent update can never lend its ETag to the previous content
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            long size = channel.size();
+            long from = Math.min(start, size);
+            long count = Math.min(end, size - 1) - from + 1;
+            ObjectStream stream = new ObjectStream(new FileContent(channel, from, count), count, contentTypeOf(path.getFileName().toString()), eTagOf(attributes));
+            channel = null;
+            return stream;
+        } catch (NoSuchFileException e) {
+            throw new NotFoundException(resourceUri);
+        } catch (IOException e) {
+            throw new ExternalServiceException(e);
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // Nothing was read from it
+                }
+            }
+        }
+    }
+
+    @Override
+    public ResourceInfo stat(String resourceUri) throws NotFoundException, NotAnObjectException, ExternalServiceException {
+        ResourceInfo info = resolve(resourceUri);
+
+        // If the URI points to a non-existing object, throw an exception
+        if (!info.exists()) {
+            throw new NotFoundException(resourceUri);
+        }
+
+        // If the URI points to a folder or bucket, throw an exception
+        if (info.type().isCollection()) {
+            throw new NotAnObjectException(resourceUri);
+        }
+
+        return info;
+    }
+
+    @Override
+    public boolean update(String resourceUri, byte[] fileContent) throws NotFoundException, NotAnObjectException, ConcurrentUpdateException, ExternalServiceException {
+        // The content is written at once, the last of concurrent updates wins
+        return update(resourceUri, Channels.newChannel(new ByteArrayInputStream(fileContent)), false);
+    }
+
+    @Override
+    public boolean update(String resourceUri, InputStream content) throws NotFoundException, NotAnObjectException, ConcurrentUpdateException, ExternalServiceException {
+        return update(resourceUri, Channels.newChannel(content), true);
+    }
+
+    @Override
+    public boolean delete(String resourceUri, boolean recursive) throws NotFoundException, DeleteCollectionNoRecursiveException, ExternalServiceException {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        Path path = pathOf(parts[0], parts[1]);
+        ResourceType type = resolve(path, parts[1] == null).type();
+
+        // If the URI points to a non-existing object, throw an exception
+        if (type == ResourceType.MISSING) {
+            throw new NotFoundException(resourceUri);
+        }
+
+        // If the URI points to a folder or bucket and recursive is false, throw an exception
+        if (!recursive && type.isCollection()) {
+            throw new DeleteCollectionNoRecursiveException(resourceUri);
+        }
+
+        try {
+            if (type.isCollection()) {
+                deleteTree(path);
+            } else {
+                ReentrantLock lock = lockOf(path);
+                lock.lock();
+                try {
+                    Files.deleteIfExists(path);
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            // The folders left empty disappear with their last object, the bucket stays
+            if (parts[1] != null) {
+                deleteEmptyParents(path.getParent(), root.resolve(parts[0]));
+            }
+        } catch (IOException e) {
+            throw new ExternalServiceException(e);
+        }
+
+        return !exists(resourceUri);
+    }
+
+    /**
+     * Delete a directory and everything under it, the deepest entries first.
+     * @param directory the directory to delete
+     * @throws IOException if an entry cannot be deleted
+     */
+    private static void deleteTree(Path directory) throws IOException {
+        try (Stream<Path> entries = Files.walk(directory)) {
+            for (Path entry : (Iterable<Path>) entries.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(entry);
+            }
+        } catch (NoSuchFileException e) {
+            // Deleted concurrently
+        }
+    }
+
+    /**
+     * Delete the empty directories from the given one up to the bucket, excluded.
+     * @param directory the deepest directory
+     * @param bucket the directory of the bucket
+     */
+    private static void deleteEmptyParents(Path directory, Path bucket) {
+        while (directory != null && !directory.equals(bucket) && directory.startsWith(bucket)) {
+            try {
+                Files.delete(directory);
+            } catch (IOException e) {
+                // Not empty, or already deleted
+                return;
+            }
+            directory = directory.getParent();
+        }
+    }
+
+    @Override
+    public boolean copy(String sourceUri, String targetUri, boolean recursive) throws NotFoundException, AlreadyExistsException, CopyCollectionNoRecursiveException, CopyIntoItselfException, ExternalServiceException {
+        String[] source = ServiceAwsImpl.splitUri(sourceUri);
+        String[] target = ServiceAwsImpl.splitUri(targetUri);
+        Path sourcePath = pathOf(source[0], source[1]);
+        Path targetPath = checkForCopy(sourceUri, targetUri, recursive);
+
+        try {
+            if (!Files.isDirectory(sourcePath)) {
+                copyFile(sourcePath, targetUri, targetPath);
+                return true;
+            }
+
+            if (target[1] == null) {
+                Files.createDirectories(targetPath);
+            }
+            try (Stream<Path> entries = Files.walk(sourcePath)) {
+                for (Path entry : (Iterable<Path>) entries.filter(Files::isRegularFile)::iterator) {
+                    copyFile(entry, targetUri, targetPath.resolve(sourcePath.relativize(entry)));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            throw new NotFoundException(sourceUri);
+        } catch (IOException | UncheckedIOException e) {
+            throw new ExternalServiceException(e);
+        }
+        return true;
+    }
+
+    /**
+     * Move an object or a collection with a single rename of its file or directory, which takes the same time whatever its size.
+     */
+    @Override
+    public boolean move(String sourceUri, String targetUri, boolean recursive) throws NotFoundException, AlreadyExistsException, CopyCollectionNoRecursiveException, CopyIntoItselfException, ExternalServiceException {
+        String[] source = ServiceAwsImpl.splitUri(sourceUri);
+        Path sourcePath = pathOf(source[0], source[1]);
+        Path targetPath = checkForCopy(sourceUri, targetUri, recursive);
+
+        // Both locks are taken in the same order by every move, so two moves cannot wait for each other
+        ReentrantLock first = lockOf(sourcePath);
+        ReentrantLock second = lockOf(targetPath);
+        if (Math.floorMod(sourcePath.hashCode(), locks.length) > Math.floorMod(targetPath.hashCode(), locks.length)) {
+            first = second;
+            second = lockOf(sourcePath);
+        }
+
+        first.lock();
+        second.lock();
+        try {
+            if (Files.isRegularFile(targetPath)) {
+                throw new AlreadyExistsException(targetUri);
+            }
+            // A folder left empty by the deletion of its objects does not exist, and is replaced
+            Files.deleteIfExists(targetPath);
+            Files.createDirectories(targetPath.getParent());
+            Files.move(sourcePath, targetPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            throw new AlreadyExistsException(targetUri);
+        } catch (NoSuchFileException e) {
+            throw new NotFoundException(sourceUri);
+        } catch (IOException e) {
+            throw new ExternalServiceException(e);
+        } finally {
+            second.unlock();
+            first.unlock();
+        }
+
+        if (source[1] != null) {
+            deleteEmptyParents(sourcePath.getParent(), root.resolve(source[0]));
+        }
+        return true;
+    }
+
+    /**
+     * Check that a resource can be copied or moved to the given URI, and get the path of the copy.
+     * @param sourceUri the URI of the resource
+     * @param targetUri the URI of the copy
+     * @param recursive true to accept a collection
+     * @return the path of the copy
+     * @throws NotFoundException if the resource does not exist
+     * @throws AlreadyExistsException if the copy already exists, or cannot be stored at its URI
+     * @throws CopyCollectionNoRecursiveException if the resource is a collection and recursive is false
+     * @throws CopyIntoItselfException if the copy would be inside the collection
+     * @throws ExternalServiceException if the filesystem cannot be read
+     */
+    private Path checkForCopy(String sourceUri, String targetUri, boolean recursive) throws NotFoundException, AlreadyExistsException, CopyCollectionNoRecursiveException, CopyIntoItselfException, ExternalServiceException {
+        String[] target = ServiceAwsImpl.splitUri(targetUri);
+        Path targetPath = pathOf(target[0], target[1]);
+        ServiceAwsImpl.checkForCopy(sourceUri, resolve(sourceUri), targetUri, resolve(targetPath, target[1] == null), recursive);
+        if (targetPath == null) {
+            throw new AlreadyExistsException(targetUri);
+        }
+        return targetPath;
+    }
+
+    /**
+     * Copy a file to a temporary file, then move it to the path of the copy if nothing exists there yet.
+     * @param file the file to copy
+     * @param targetUri the URI of the copy
+     * @param path the path of the copy
+     * @throws AlreadyExistsException if an object already exists at the path of the copy
+     * @throws IOException if the file cannot be copied
+     */
+    private void copyFile(Path file, String targetUri, Path path) throws AlreadyExistsException, IOException {
+        Path copy = Files.createTempFile(temporary, "object-", ".part");
+        try {
+            Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+            commitCreate(targetUri, copy, path);
+            copy = null;
+        } catch (FileAlreadyExistsException e) {
+            // A parent of the key is an object, which the filesystem cannot turn into a folder
+            throw new AlreadyExistsException(targetUri);
+        } finally {
+            deleteTemporary(copy);
+        }
+    }
+
+    /**
+     * List the objects of a bucket or folder by walking its directory tree in the order of the keys.
+     * A directory is only read when the listing reaches it, and only its sorted entries are held until it is done.
+     */
+    @Override
+    public Stream<ListEntry> list(String resourceUri, boolean recursive, String startAfter) throws NotFoundException, NotACollectionException, ExternalServiceException {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        Path path = pathOf(parts[0], parts[1]);
+        checkForList(resourceUri, resolve(path, parts[1] == null));
+
+        try {
+            return streamOf(new Listing(parts[0], parts[1] != null ? parts[1] + "/" : "", recursive, startAfter));
+        } catch (IOException e) {
+            throw new ExternalServiceException(e);
+        }
+    }
+
+    /**
+     * Listing of a directory tree in the order of the keys, reading the directories as it advances.
+     * The position of a directory is its key followed by a slash, so it sorts like the keys of its files.
+     */
+    private class Listing implements Iterator<ListEntry> {
+        private final String bucketName;
+        private final Path bucket;
+        private final boolean recursive;
+        private final String startAfter;
+        private final Deque<Iterator<String>> directories = new ArrayDeque<>(); // Positions left in the directories being read
+        private ListEntry next;
+
+        Listing(String bucketName, String prefix, boolean recursive, String startAfter) throws IOException {
+            this.bucketName = bucketName;
+            this.bucket = root.resolve(bucketName);
+            this.recursive = recursive;
+            this.startAfter = startAfter;
+            directories.push(positionsIn(prefix));
+            next = advance();
+        }
+
+        /**
+         * Read the positions of the entries of a directory that come after the start position, sorted.
+         * A directory holding the start position is kept to be walked in a recursive listing.
+         * @param prefix the position of the directory, empty for the bucket
+         * @return the positions of the entries
+         * @throws IOException if the directory cannot be read
+         */
+        private Iterator<String> positionsIn(String prefix) throws IOException {
+            List<String> positions = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(bucket.resolve(prefix))) {
+                for (Path entry : entries) {
+                    String position = prefix + entry.getFileName() + (Files.isDirectory(entry) ? "/" : "");
+                    if (startAfter == null || position.compareTo(startAfter) > 0
+                            || recursive && position.endsWith("/") && startAfter.startsWith(position)) {
+                        positions.add(position);
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                // Deleted concurrently with its last object
+            }
+            positions.sort(null);
+            return positions.iterator();
+        }
+
+        /**
+         * Move to the next object, or to the next non-empty folder when only the direct children are listed.
+         * @return the next entry, null at the end of the listing
+         * @throws IOException if a directory cannot be read
+         */
+        private ListEntry advance() throws IOException {
+            while (!directories.isEmpty()) {
+                Iterator<String> directory = directories.peek();
+                if (!directory.hasNext()) {
+                    directories.pop();
+                    continue;
+                }
+
+                String position = directory.next();
+                Path path = bucket.resolve(position);
+                try {
+                    if (position.endsWith("/")) {
+                        if (recursive) {
+                            directories.push(positionsIn(position));
+                        } else if (hasEntries(path)) {
+                            return ListEntry.folder(bucketName, position.substring(0, position.length() - 1));
+                        }
+                        continue;
+                    }
+
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    return ListEntry.object(bucketName, position, attributes.size(), eTagOf(attributes), attributes.lastModifiedTime().toInstant());
+                } catch (NoSuchFileException e) {
+                    // Deleted since its directory was read
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public ListEntry next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+
+            ListEntry entry = next;
+            try {
+                next = advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return entry;
+        }
+    }
+
+    @Override
+    public boolean exists(String resourceUri) throws ExternalServiceException {
+        return resolve(resourceUri).exists();
+    }
+}
@@ -3,6 +3,11 @@ package org.heig.team04.dataobject.service;
 import org.springframework.stereotype.Service;
 import org.heig.team04.dataobject.service.exceptions.*;
 
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
 /**
  * Service interface for the data object service.
  * @author Ivan Vecerina, Yanik Lange
@@ -31,6 +36,16 @@ public interface ServiceInterface {
      */
     boolean create(String resourceUri, byte[] fileContent) throws AlreadyExistsException, ExternalServiceException;
 
+    /**
+     * Create a new object at the given URI with the content read from the given stream, without loading it in memory.
+     * @param resourceUri The URI of the new object.
+     * @param content The content of the new object, read until its end but not closed.
+     * @return boolean True if the object was created, false otherwise.
+     * @throws AlreadyExistsException If the URI already exists.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    boolean create(String resourceUri, InputStream content) throws AlreadyExistsException, ExternalServiceException;
+
     /**
      * Read the content of the object at the given URI.
      * @param resourceUri The URI of the object.
@@ -41,29 +56,103 @@ public interface ServiceInterface {
      */
     byte[] read(String resourceUri) throws NotFoundException, NotAnObjectException, ExternalServiceException;
 
+    /**
+     * Open a stream on the content of the object at the given URI, without loading it in memory.
+     * @param resourceUri The URI of the object.
+     * @return ObjectStream The content of the object, to be closed by the caller.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotAnObjectException If the URI points to a collection.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    ObjectStream readStream(String resourceUri) throws NotFoundException, NotAnObjectException, ExternalServiceException;
+
+    /**
+     * Open a stream on the content of the object at the given URI as it is stored, without decoding it.
+     * An object stored compressed is returned compressed, along with its content encoding,
+     * so that it can be sent as is to a client accepting that encoding.
+     * @param resourceUri The URI of the object.
+     * @return ObjectStream The stored content of the object, to be closed by the caller.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotAnObjectException If the URI points to a collection.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    ObjectStream readEncoded(String resourceUri) throws NotFoundException, NotAnObjectException, ExternalServiceException;
+
+    /**
+     * Read a range of the content of the object at the given URI, counted in the bytes of its decompressed content
+     * when it is stored compressed.
+     * @param resourceUri The URI of the object.
+     * @param start The position of the first byte to read.
+     * @param end The position of the last byte to read, inclusive.
+     * @return byte[] The content of the range.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotAnObjectException If the URI points to a collection.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    byte[] read(String resourceUri, long start, long end) throws NotFoundException, NotAnObjectException, ExternalServiceException;
+
+    /**
+     * Open a stream on a range of the content of the object at the given URI, counted in the bytes of the object as it is stored.
+     * The range of an object stored compressed is returned compressed, along with its content encoding.
+     * @param resourceUri The URI of the object.
+     * @param start The position of the first byte to read.
+     * @param end The position of the last byte to read, inclusive.
+     * @return ObjectStream The content of the range, to be closed by the caller.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotAnObjectException If the URI points to a collection.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    ObjectStream readStream(String resourceUri, long start, long end) throws NotFoundException, NotAnObjectException, ExternalServiceException;
+
+    /**
+     * Get the size, ETag and last modification date of the object at the given URI, without reading its content.
+     * The size is the one the object is stored with, which the ranges of the object refer to. For an object stored compressed,
+     * it is the size of the compressed content, and the length of the content as read by read and readStream is its content length.
+     * @param resourceUri The URI of the object.
+     * @return ResourceInfo The metadata of the object.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotAnObjectException If the URI points to a collection.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    ResourceInfo stat(String resourceUri) throws NotFoundException, NotAnObjectException, ExternalServiceException;
+
     /**
      * Update the content of the object at the given URI with the content of the given source.
      * @param resourceUri The URI of the object.
      * @param fileUrl The URL of the source file.
-     * @return boolean True if the object was updated, false otherwise.
+     * @return boolean True if the object was updated, false if it already held the content and was left as it is.
      * @throws NotFoundException If the URI doesn't exist.
      * @throws NotAnObjectException If the URI points to a collection.
+     * @throws ConcurrentUpdateException If the object is modified by someone else during the update.
      * @throws InvalidURLException If the URL is not valid.
      * @throws URLNotAccessibleException If the URL is not accessible.
      * @throws ExternalServiceException If an internal error occurs with the S3 service.
      */
-    boolean update(String resourceUri, String fileUrl) throws NotFoundException, NotAnObjectException, InvalidURLException, URLNotAccessibleException, ExternalServiceException;
+    boolean update(String resourceUri, String fileUrl) throws NotFoundException, NotAnObjectException, ConcurrentUpdateException, InvalidURLException, URLNotAccessibleException, ExternalServiceException;
 
     /**
      * Update the content of the object at the given URI with the given content.
      * @param resourceUri The URI of the object.
      * @param fileContent The content of the object.
-     * @return boolean True if the object was updated, false otherwise.
+     * @return boolean True if the object was updated, false if it already held the content and was left as it is.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotAnObjectException If the URI points to a collection.
+     * @throws ConcurrentUpdateException If the object is modified by someone else during the update.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    boolean update(String resourceUri, byte[] fileContent) throws NotFoundException, NotAnObjectException, ConcurrentUpdateException, ExternalServiceException;
+
+    /**
+     * Update the content of the object at the given URI with the content read from the given stream, without loading it in memory.
+     * @param resourceUri The URI of the object.
+     * @param content The content of the object, read until its end but not closed.
+     * @return boolean True if the object was updated, false if it already held the content and was left as it is.
      * @throws NotFoundException If the URI doesn't exist.
      * @throws NotAnObjectException If the URI points to a collection.
+     * @throws ConcurrentUpdateException If the object is modified by someone else during the update.
      * @throws ExternalServiceException If an internal error occurs with the S3 service.
      */
-    boolean update(String resourceUri, byte[] fileContent) throws NotFoundException, NotAnObjectException, ExternalServiceException;
+    boolean update(String resourceUri, InputStream content) throws NotFoundException, NotAnObjectException, ConcurrentUpdateException, ExternalServiceException;
 
     /**
      * Delete the object at the given URI.
@@ -75,6 +164,36 @@ public interface ServiceInterface {
      */
     boolean delete(String resourceUri, boolean recursive) throws NotFoundException, DeleteCollectionNoRecursiveException, ExternalServiceException;
 
+    /**
+     * Copy the object at the given URI, or all the objects of the collection at the given URI, to a new URI.
+     * The contents are copied by the storage itself and do not go through the service.
+     * @param sourceUri The URI of the object or collection to copy.
+     * @param targetUri The URI of the copy.
+     * @param recursive True to copy a collection with all its objects.
+     * @return boolean True if the resource was copied, false otherwise.
+     * @throws NotFoundException If the source URI doesn't exist.
+     * @throws AlreadyExistsException If the target URI already exists.
+     * @throws CopyCollectionNoRecursiveException If the source URI points to a collection and the recursive option is not set to true.
+     * @throws CopyIntoItselfException If the target URI is inside the source collection.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    boolean copy(String sourceUri, String targetUri, boolean recursive) throws NotFoundException, AlreadyExistsException, CopyCollectionNoRecursiveException, CopyIntoItselfException, ExternalServiceException;
+
+    /**
+     * Move the object at the given URI, or all the objects of the collection at the given URI, to a new URI.
+     * The contents are copied by the storage itself and do not go through the service, then the source is deleted.
+     * @param sourceUri The URI of the object or collection to move.
+     * @param targetUri The new URI of the resource.
+     * @param recursive True to move a collection with all its objects.
+     * @return boolean True if the resource was moved, false otherwise.
+     * @throws NotFoundException If the source URI doesn't exist.
+     * @throws AlreadyExistsException If the target URI already exists.
+     * @throws CopyCollectionNoRecursiveException If the source URI points to a collection and the recursive option is not set to true.
+     * @throws CopyIntoItselfException If the target URI is inside the source collection.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    boolean move(String sourceUri, String targetUri, boolean recursive) throws NotFoundException, AlreadyExistsException, CopyCollectionNoRecursiveException, CopyIntoItselfException, ExternalServiceException;
+
     /**
      * Get a presigned URL to access the object at the given URI.
      * @param resourceUri The URI of the object.
@@ -86,6 +205,29 @@ public interface ServiceInterface {
      */
     String publish(String resourceUri, int ttl) throws NotFoundException, NotAnObjectException, ExternalServiceException;
 
+    /**
+     * Get presigned URLs to access the objects at the given URIs.
+     * The URIs are checked together, so a failure only affects the URIs it concerns.
+     * @param resourceUris The URIs of the objects.
+     * @param ttl The time to live of the URLs in seconds.
+     * @return Map The presigned URL or the error message of each URI, in the order of the URIs.
+     */
+    Map<String, PublishResult> publish(List<String> resourceUris, int ttl);
+
+    /**
+     * List the content of the bucket or folder at the given URI, sorted by key.
+     * The entries are fetched page by page as the stream is consumed, so a listing of any size is held in bounded memory.
+     * An error while fetching a page is thrown by the stream as an unchecked exception.
+     * @param resourceUri The URI of the bucket or folder.
+     * @param recursive True to list every object under the collection, false to list only its direct objects and folders.
+     * @param startAfter The position of the last entry already listed, as given by ListEntry.position, null to list from the start.
+     * @return Stream The entries after the start position, to be closed by the caller.
+     * @throws NotFoundException If the URI doesn't exist.
+     * @throws NotACollectionException If the URI points to an object.
+     * @throws ExternalServiceException If an internal error occurs with the S3 service.
+     */
+    Stream<ListEntry> list(String resourceUri, boolean recursive, String startAfter) throws NotFoundException, NotACollectionException, ExternalServiceException;
+
     /**
      * Check if the object at the given URI exists.
      * @param resourceUri The URI of the object.
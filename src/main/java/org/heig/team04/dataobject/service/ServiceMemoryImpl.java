@@ -0,0 +1,374 @@
+package org.heig.team04.dataobject.service;
+
+import org.heig.team04.dataobject.config.DataObjectProperties;
+import org.heig.team04.dataobject.service.exceptions.*;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * This class is the in-memory implementation of the service layer, selected by the "memory" profile.
+ * The objects of a bucket are kept sorted by key, so a folder is the range of the keys starting with its path.
+ * Every operation is answered without any I/O, which makes it a latency-free backend for load tests.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see ServiceInterface
+ */
+@Service
+@Profile("memory")
+public class ServiceMemoryImpl extends AbstractLocalService {
+    // Stands for a bucket deleted concurrently, in which nothing can be found
+    private static final NavigableMap<String, StoredObject> EMPTY_BUCKET = Collections.emptyNavigableMap();
+    private final Map<String, NavigableMap<String, StoredObject>> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * An object as it is stored. The content is never modified once stored.
+     */
+    private record StoredObject(byte[] content, String eTag, Instant lastModified) {
+        ResourceInfo info() {
+            return ResourceInfo.object(content.length, eTag, lastModified);
+        }
+    }
+
+    /**
+     * Constructor for the ServiceMemoryImpl class.
+     * @param properties the configuration properties of the service
+     */
+    public ServiceMemoryImpl(DataObjectProperties properties) {
+        super(properties);
+    }
+
+    /**
+     * Store the given content with an MD5 ETag, like the S3 service does for single-part objects.
+     * @param content the content of the object, not copied
+     * @return the stored object
+     */
+    private static StoredObject store(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(content);
+            return new StoredObject(content, "\"" + HexFormat.of().formatHex(digest) + "\"", Instant.now());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Check if a folder holds at least one object.
+     * @param objects the objects of the bucket
+     * @param key the path to the folder
+     * @return true if the folder exists
+     */
+    private static boolean isFolder(NavigableMap<String, StoredObject> objects, String key) {
+        String first = objects.ceilingKey(key + "/");
+        return first != null && first.startsWith(key + "/");
+    }
+
+    /**
+     * Get the objects of a folder, as a live view of the objects of the bucket.
+     * @param objects the objects of the bucket
+     * @param key the path to the folder
+     * @return the objects whose key starts with the path of the folder
+     */
+    private static NavigableMap<String, StoredObject> folder(NavigableMap<String, StoredObject> objects, String key) {
+        // '0' is the character following '/'
+        return objects.subMap(key + "/", true, key + "0", false);
+    }
+
+    /**
+     * Resolve the resource at the given location.
+     * @param bucketName the name of the bucket
+     * @param key the path to the resource, null for the bucket itself
+     * @return the resolved resource
+     */
+    private ResourceInfo resolve(String bucketName, String key) {
+        NavigableMap<String, StoredObject> objects = buckets.get(bucketName);
+        if (objects == null) {
+            return ResourceInfo.missing();
+        }
+        if (key == null) {
+            return ResourceInfo.bucket();
+        }
+
+        StoredObject object = objects.get(key);
+        if (object != null) {
+            return object.info();
+        }
+        return isFolder(objects, key) ? ResourceInfo.folder() : ResourceInfo.missing();
+    }
+
+    /**
+     * Get the object at the given URI.
+     * @param resourceUri the URI of the object
+     * @return the stored object
+     * @throws NotFoundException if the URI doesn't exist
+     * @throws NotAnObjectException if the URI points to a collection
+     */
+    private StoredObject checkForGET(String resourceUri) throws NotFoundException, NotAnObjectException {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        NavigableMap<String, StoredObject> objects = buckets.get(parts[0]);
+        StoredObject object = objects != null && parts[1] != null ? objects.get(parts[1]) : null;
+        if (object != null) {
+            return object;
+        }
+
+        if (resolve(parts[0], parts[1]).exists()) {
+            throw new NotAnObjectException(resourceUri);
+        }
+        throw new NotFoundException(resourceUri);
+    }
+
+    @Override
+    public boolean create(String resourceUri, byte[] fileContent) throws AlreadyExistsException {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        if (parts[1] == null) {
+            throw new AlreadyExistsException(resourceUri);
+        }
+
+        // The bucket is created by its first object
+        NavigableMap<String, StoredObject> objects = buckets.computeIfAbsent(parts[0], bucketName -> new ConcurrentSkipListMap<>());
+        if (isFolder(objects, parts[1])) {
+            throw new AlreadyExistsException(resourceUri);
+        }
+
+        // The content is copied, the caller may reuse its array
+        if (objects.putIfAbsent(parts[1], store(fileContent.clone())) != null) {
+            throw new AlreadyExistsException(resourceUri);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean create(String resourceUri, InputStream content) throws AlreadyExistsException, ExternalServiceException {
+        try {
+            return create(resourceUri, content.readAllBytes());
+        } catch (IOException e) {
+            throw new ExternalServiceException(e);
+        }
+    }
+
+    @Override
+    public byte[] read(String resourceUri) throws NotFoundException, NotAnObjectException {
+        return checkForGET(resourceUri).content().clone();
+    }
+
+    @Override
+    public ObjectStream readStream(String resourceUri) throws NotFoundException, NotAnObjectException {
+        StoredObject object = checkForGET(resourceUri);
+        String key = ServiceAwsImpl.splitUri(resourceUri)[1];
+        return new ObjectStream(new ByteArrayInputStream(object.content()), object.content().length, contentTypeOf(key), object.eTag());
+    }
+
+    @Override
+    public ObjectStream readStream(String resourceUri, long start, long end) throws NotFoundException, NotAnObjectException {
+        checkRange(start, end);
+        StoredObject object = checkForGET(resourceUri);
+        String key = ServiceAwsImpl.splitUri(resourceUri)[1];
+
+        // Like the S3 service, a range past the end of the object is cut to its end
+        int from = (int) Math.min(start, object.content().length);
+        int length = (int) Math.min(end + 1, object.content().length) - from;
+        return new ObjectStream(new ByteArrayInputStream(object.content(), from, length), length, contentTypeOf(key), object.eTag());
+    }
+
+    @Override
+    public ResourceInfo stat(String resourceUri) throws NotFoundException, NotAnObjectException {
+        return checkForGET(resourceUri).info();
+    }
+
+    @Override
+    public boolean update(String resourceUri, byte[] fileContent) throws NotFoundException, NotAnObjectException {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        checkForGET(resourceUri);
+
+        // Replaced atomically, the last of concurrent updates wins
+        StoredObject updated = store(fileContent.clone());
+        NavigableMap<String, StoredObject> objects = buckets.getOrDefault(parts[0], EMPTY_BUCKET);
+        if (objects.computeIfPresent(parts[1], (key, current) -> updated) == null) {
+            throw new NotFoundException(resourceUri);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean update(String resourceUri, InputStream content) throws NotFoundException, NotAnObjectException, ConcurrentUpdateException, ExternalServiceException {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        StoredObject current = checkForGET(resourceUri);
+
+        StoredObject updated;
+        try {
+            updated = store(content.readAllBytes());
+        } catch (IOException e) {
+            throw new ExternalServiceException(e);
+        }
+
+        // The object is replaced only if it is still the version checked before reading the stream
+        NavigableMap<String, StoredObject> objects = buckets.getOrDefault(parts[0], EMPTY_BUCKET);
+        if (!objects.replace(parts[1], current, updated)) {
+            if (!objects.containsKey(parts[1])) {
+                throw new NotFoundException(resourceUri);
+            }
+            throw new ConcurrentUpdateException(resourceUri);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean delete(String resourceUri, boolean recursive) throws NotFoundException, DeleteCollectionNoRecursiveException {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        ResourceType type = resolve(parts[0], parts[1]).type();
+
+        if (type == ResourceType.MISSING) {
+            throw new NotFoundException(resourceUri);
+        }
+        if (!recursive && type.isCollection()) {
+            throw new DeleteCollectionNoRecursiveException(resourceUri);
+        }
+
+        NavigableMap<String, StoredObject> objects = buckets.getOrDefault(parts[0], EMPTY_BUCKET);
+        switch (type) {
+            case BUCKET -> buckets.remove(parts[0]);
+            case FOLDER -> folder(objects, parts[1]).clear();
+            default -> objects.remove(parts[1]);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean copy(String sourceUri, String targetUri, boolean recursive) throws NotFoundException, AlreadyExistsException, CopyCollectionNoRecursiveException, CopyIntoItselfException {
+        return copy(sourceUri, targetUri, recursive, false);
+    }
+
+    @Override
+    public boolean move(String sourceUri, String targetUri, boolean recursive) throws NotFoundException, AlreadyExistsException, CopyCollectionNoRecursiveException, CopyIntoItselfException {
+        return copy(sourceUri, targetUri, recursive, true);
+    }
+
+    /**
+     * Copy an object or the objects of a collection, sharing their content which is never modified once stored.
+     * @param move true to remove the source once copied
+     */
+    private boolean copy(String sourceUri, String targetUri, boolean recursive, boolean move) throws NotFoundException, AlreadyExistsException, CopyCollectionNoRecursiveException, CopyIntoItselfException {
+        String[] source = ServiceAwsImpl.splitUri(sourceUri);
+        String[] target = ServiceAwsImpl.splitUri(targetUri);
+        ResourceInfo sourceInfo = resolve(source[0], source[1]);
+        ServiceAwsImpl.checkForCopy(sourceUri, sourceInfo, targetUri, resolve(target[0], target[1]), recursive);
+
+        NavigableMap<String, StoredObject> sourceObjects = buckets.getOrDefault(source[0], EMPTY_BUCKET);
+        NavigableMap<String, StoredObject> targetObjects = buckets.computeIfAbsent(target[0], bucketName -> new ConcurrentSkipListMap<>());
+        if (!sourceInfo.type().isCollection()) {
+            StoredObject object = sourceObjects.get(source[1]);
+            if (object == null) {
+                throw new NotFoundException(sourceUri);
+            }
+            if (targetObjects.putIfAbsent(target[1], new StoredObject(object.content(), object.eTag(), Instant.now())) != null) {
+                throw new AlreadyExistsException(targetUri);
+            }
+            if (move) {
+                sourceObjects.remove(source[1], object);
+            }
+            return true;
+        }
+
+        String sourcePrefix = source[1] != null ? source[1] + "/" : "";
+        String targetPrefix = target[1] != null ? target[1] + "/" : "";
+        NavigableMap<String, StoredObject> objects = source[1] != null ? folder(sourceObjects, source[1]) : sourceObjects;
+        for (Map.Entry<String, StoredObject> entry : objects.entrySet()) {
+            StoredObject object = entry.getValue();
+            String targetKey = targetPrefix + entry.getKey().substring(sourcePrefix.length());
+            targetObjects.putIfAbsent(targetKey, new StoredObject(object.content(), object.eTag(), Instant.now()));
+            if (move) {
+                // An object replaced meanwhile is kept
+                objects.remove(entry.getKey(), object);
+            }
+        }
+        if (move && source[1] == null && sourceObjects.isEmpty()) {
+            buckets.remove(source[0], sourceObjects);
+        }
+        return true;
+    }
+
+    /**
+     * List the objects of a bucket or folder by walking the sorted keys, one lookup per entry.
+     * In a listing of the direct children, a subfolder is listed once and its keys are skipped with a single lookup.
+     */
+    @Override
+    public Stream<ListEntry> list(String resourceUri, boolean recursive, String startAfter) throws NotFoundException, NotACollectionException {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        checkForList(resourceUri, resolve(parts[0], parts[1]));
+
+        String bucketName = parts[0];
+        String prefix = parts[1] != null ? parts[1] + "/" : "";
+        NavigableMap<String, StoredObject> objects = buckets.getOrDefault(bucketName, EMPTY_BUCKET);
+        return streamOf(new Iterator<>() {
+            private Map.Entry<String, StoredObject> next = entryAfter(objects, prefix, startAfter);
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public ListEntry next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+
+                String key = next.getKey();
+                int slash = recursive ? -1 : key.indexOf('/', prefix.length());
+                ListEntry entry;
+                if (slash < 0) {
+                    StoredObject object = next.getValue();
+                    entry = ListEntry.object(bucketName, key, object.content().length, object.eTag(), object.lastModified());
+                } else {
+                    entry = ListEntry.folder(bucketName, key.substring(0, slash));
+                }
+
+                next = entryAfter(objects, prefix, entry.position());
+                return entry;
+            }
+        });
+    }
+
+    /**
+     * Get the first object of a collection after a position of its listing.
+     * @param objects the objects of the bucket
+     * @param prefix the prefix of the keys of the collection, empty for the whole bucket
+     * @param position the position of the last listed entry, null for the start of the listing
+     * @return the first object after the position, null if there is none
+     */
+    private static Map.Entry<String, StoredObject> entryAfter(NavigableMap<String, StoredObject> objects, String prefix, String position) {
+        Map.Entry<String, StoredObject> entry;
+        if (position == null || position.compareTo(prefix) < 0) {
+            entry = objects.ceilingEntry(prefix);
+        } else if (position.endsWith("/")) {
+            // Past every key of the folder, '0' is the character following '/'
+            entry = objects.ceilingEntry(position.substring(0, position.length() - 1) + "0");
+        } else {
+            entry = objects.higherEntry(position);
+        }
+        return entry != null && entry.getKey().startsWith(prefix) ? entry : null;
+    }
+
+    @Override
+    public boolean exists(String resourceUri) {
+        String[] parts = ServiceAwsImpl.splitUri(resourceUri);
+        return resolve(parts[0], parts[1]).exists();
+    }
+}
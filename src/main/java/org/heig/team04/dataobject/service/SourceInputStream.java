@@ -0,0 +1,58 @@
+package org.heig.team04.dataobject.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Stream on the content of a source file, remembering the error that stopped its reading.
+ * An upload streamed from a source fails the same way whether the source or the storage failed,
+ * so that the failure of the source can then be reported as an error of its URL.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+final class SourceInputStream extends FilterInputStream {
+    private IOException failure; // The error of the last failed read, null if none failed
+
+    SourceInputStream(InputStream in) {
+        super(in);
+    }
+
+    /**
+     * @return the error that stopped the reading of the source, null if it was read without error
+     */
+    IOException failure() {
+        return failure;
+    }
+
+    @Override
+    public int read() throws IOException {
+        try {
+            return super.read();
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        try {
+            return super.read(b, off, len);
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        try {
+            return super.skip(n);
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.heig.team04.dataobject.service;
+
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Uploads a stream of unknown length to the S3 service without holding it in memory.
+ * Streams smaller than one part are sent with a single PutObject request,
+ * bigger ones with a multipart upload whose parts are sent concurrently while the next ones are read.
+ * At most maxInFlightParts + 1 parts are held in memory for one upload.
+ * A write condition is sent with the request that makes the object visible: the PutObject or the CompleteMultipartUpload.
+ * Before that request, the ETag the content will have can be checked against the stored object, so that an unchanged
+ * content is not written again: a single part is not sent, and a multipart upload is aborted instead of being completed.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+class StreamUploader {
+    private final S3Client s3;
+    private final ExecutorService executor;
+    private final int partSize;
+    private final int maxInFlightParts;
+
+    /**
+     * Constructor for the StreamUploader class.
+     * @param s3 the S3 client
+     * @param executor the executor sending the parts
+     * @param partSize the size of a part in bytes, at least 5 MiB as required by S3
+     * @param maxInFlightParts the maximum number of parts being sent at the same time for one upload
+     */
+    StreamUploader(S3Client s3, ExecutorService executor, int partSize, int maxInFlightParts) {
+        this.s3 = s3;
+        this.executor = executor;
+        this.partSize = partSize;
+        this.maxInFlightParts = maxInFlightParts;
+    }
+
+    /**
+     * Upload the given stream to the given location.
+     * @param bucketName the name of the bucket
+     * @param key the path to the object
+     * @param content the content of the object, read until its end but not closed
+     * @param condition the conditional headers of the write, such as If-None-Match or If-Match
+     * @return the size and ETag of the uploaded object
+     * @throws IOException if an error occurs while reading the stream
+     */
+    ResourceInfo upload(String bucketName, String key, InputStream content, Consumer<AwsRequestOverrideConfiguration.Builder> condition) throws IOException {
+        return upload(bucketName, key, content, condition, eTag -> false);
+    }
+
+    /**
+     * Upload the given stream to the given location, unless the object already holds the same content.
+     * @param bucketName the name of the bucket
+     * @param key the path to the object
+     * @param content the content of the object, read until its end but not closed
+     * @param condition the conditional headers of the write, such as If-None-Match or If-Match
+     * @param isStored tells whether the object has the given ETag, computed for the content before it is written
+     * @return the size and ETag of the uploaded object, null if the object already holds the content and is left as it is
+     * @throws IOException if an error occurs while reading the stream
+     */
+    ResourceInfo upload(String bucketName, String key, InputStream content, Consumer<AwsRequestOverrideConfiguration.Builder> condition,
+                        Predicate<String> isStored) throws IOException {
+        byte[] part = content.readNBytes(partSize);
+
+        // The whole content fits in one part, no need for a multipart upload
+        if (part.length < partSize) {
+            if (isStored.test(ContentETag.of(part))) {
+                return null;
+            }
+            PutObjectResponse response = s3.putObject(builder -> builder.bucket(bucketName).key(key)
+                    .overrideConfiguration(condition), toBody(part));
+            return ResourceInfo.object(part.length, response.eTag());
+        }
+
+        String uploadId = s3.createMultipartUpload(builder -> builder.bucket(bucketName).key(key)).uploadId();
+        Semaphore inFlight = new Semaphore(maxInFlightParts);
+        List<Future<CompletedPart>> pendingParts = new ArrayList<>();
+        try {
+            long size = 0;
+
+            while (part.length > 0) {
+                throwIfFailed(pendingParts);
+                inFlight.acquire();
+
+                int partNumber = pendingParts.size() + 1;
+                byte[] data = part;
+                pendingParts.add(executor.submit(() -> {
+                    try {
+                        String eTag = s3.uploadPart(builder -> builder.bucket(bucketName).key(key)
+                                .uploadId(uploadId).partNumber(partNumber), toBody(data)).eTag();
+                        return CompletedPart.builder().partNumber(partNumber).eTag(eTag).build();
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+
+                // Read the next part while the previous ones are being sent
+                size += part.length;
+                part = content.readNBytes(partSize);
+            }
+
+            List<CompletedPart> completedParts = new ArrayList<>(pendingParts.size());
+            for (Future<CompletedPart> pendingPart : pendingParts) {
+                completedParts.add(getPart(pendingPart));
+            }
+
+            // The ETags of the parts are the MD5s of their content, which give the one of the object
+            if (isStored.test(ContentETag.ofParts(completedParts.stream().map(CompletedPart::eTag).toList()))) {
+                abort(bucketName, key, uploadId, pendingParts);
+                return null;
+            }
+
+            String eTag = s3.completeMultipartUpload(builder -> builder.bucket(bucketName).key(key)
+                    .uploadId(uploadId).multipartUpload(upload -> upload.parts(completedParts))
+                    .overrideConfiguration(condition)).eTag();
+            return ResourceInfo.object(size, eTag);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(bucketName, key, uploadId, pendingParts);
+            throw new InterruptedIOException("Upload interrupted: " + key);
+        } catch (IOException | RuntimeException e) {
+            abort(bucketName, key, uploadId, pendingParts);
+            throw e;
+        }
+    }
+
+    private void abort(String bucketName, String key, String uploadId, List<Future<CompletedPart>> pendingParts) {
+        pendingParts.forEach(pendingPart -> pendingPart.cancel(true));
+        s3.abortMultipartUpload(builder -> builder.bucket(bucketName).key(key).uploadId(uploadId));
+    }
+
+    /**
+     * Stop reading the stream as soon as a part has failed.
+     */
+    private static void throwIfFailed(List<Future<CompletedPart>> pendingParts) throws IOException, InterruptedException {
+        for (Future<CompletedPart> pendingPart : pendingParts) {
+            if (pendingPart.isDone()) {
+                getPart(pendingPart);
+            }
+        }
+    }
+
+    private static CompletedPart getPart(Future<CompletedPart> pendingPart) throws IOException, InterruptedException {
+        try {
+            return pendingPart.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static RequestBody toBody(byte[] part) {
+        // Wrapping the array in a stream avoids the copy made by RequestBody.fromBytes
+        return RequestBody.fromInputStream(new ByteArrayInputStream(part), part.length);
+    }
+}
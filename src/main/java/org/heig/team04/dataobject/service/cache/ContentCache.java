@@ -0,0 +1,260 @@
+package org.heig.team04.dataobject.service.cache;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of the content of the small objects, bounded by the total number of bytes it holds.
+ * When the cache is full, the least recently used contents are evicted.
+ * An entry is trusted for a short time after it has been validated, then it must be revalidated
+ * against the S3 service with its ETag before being served again.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public class ContentCache {
+    private final long maxBytes;
+    private final long maxObjectSize;
+    private final long revalidateAfterNanos;
+    private final boolean offHeap;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final NavigableSet<String> keys = new TreeSet<>(); // The keys of the entries, sorted to find those under a folder
+    private final Invalidations invalidations = new Invalidations();
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * A cached content along with the metadata needed to serve and revalidate it.
+     */
+    public static final class Entry {
+        private final ByteBuffer data;
+        private final String eTag;
+        private final String contentType;
+        private final String contentEncoding;
+        private volatile long validatedAt;
+
+        private Entry(ByteBuffer data, String eTag, String contentType, String contentEncoding) {
+            this.data = data;
+            this.eTag = eTag;
+            this.contentType = contentType;
+            this.contentEncoding = contentEncoding;
+            this.validatedAt = System.nanoTime();
+        }
+
+        /**
+         * @return a copy of the content, which the caller is free to modify
+         */
+        public byte[] content() {
+            byte[] content = new byte[data.capacity()];
+            data.duplicate().get(content);
+            return content;
+        }
+
+        /**
+         * @return the number of bytes of the content
+         */
+        public int size() {
+            return data.capacity();
+        }
+
+        /**
+         * @return the ETag of the cached version of the object
+         */
+        public String eTag() {
+            return eTag;
+        }
+
+        /**
+         * @return the media type of the content
+         */
+        public String contentType() {
+            return contentType;
+        }
+
+        /**
+         * @return the encoding of the content as it is stored, such as gzip, null if it is not encoded
+         */
+        public String contentEncoding() {
+            return contentEncoding;
+        }
+    }
+
+    /**
+     * Constructor for the ContentCache class.
+     * @param maxBytes the maximum number of bytes of content kept in the cache
+     * @param maxObjectSize the size above which an object is not cached
+     * @param revalidateAfter the time after which an entry must be revalidated before being served
+     * @param offHeap true to keep the contents in direct buffers, outside the Java heap
+     */
+    public ContentCache(long maxBytes, long maxObjectSize, Duration revalidateAfter, boolean offHeap) {
+        this.maxBytes = maxBytes;
+        this.maxObjectSize = Math.min(maxObjectSize, maxBytes);
+        this.revalidateAfterNanos = revalidateAfter.toNanos();
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Get the cached content of an object, whether it still has to be revalidated or not.
+     * @param bucketName the name of the bucket
+     * @param key the key of the object
+     * @return the cached entry, or null if absent
+     */
+    public synchronized Entry get(String bucketName, String key) {
+        return entries.get(toCacheKey(bucketName, key));
+    }
+
+    /**
+     * Get the cached content of an object if it can be served without asking the S3 service.
+     * @param bucketName the name of the bucket
+     * @param key the key of the object
+     * @return the cached entry, or null if absent or due for revalidation
+     */
+    public Entry getFresh(String bucketName, String key) {
+        Entry entry = get(bucketName, key);
+        if (entry != null && System.nanoTime() - entry.validatedAt < revalidateAfterNanos) {
+            hits.incrementAndGet();
+            return entry;
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Record that the S3 service confirmed the cached content is still the current one.
+     * @param entry the entry that has been revalidated
+     */
+    public void revalidated(Entry entry) {
+        entry.validatedAt = System.nanoTime();
+    }
+
+    /**
+     * Get the version of the cache, to pass to {@link #put} when the content read is stored.
+     * It changes on every invalidation, so a content read before a write of the object is not stored after it.
+     * @return the current version
+     */
+    public synchronized long version() {
+        return invalidations.version();
+    }
+
+    /**
+     * Store the content of an object, if it is small enough and the object has not been invalidated since it was read.
+     * @param bucketName the name of the bucket
+     * @param key the key of the object
+     * @param version the version of the cache taken before the content was read
+     * @param content the content of the object
+     * @param eTag the ETag of the object
+     * @param contentType the media type of the content
+     */
+    public void put(String bucketName, String key, long version, byte[] content, String eTag, String contentType) {
+        put(bucketName, key, version, content, eTag, contentType, null);
+    }
+
+    /**
+     * Store the content of an object as it is stored, still encoded, if it is small enough and the object has not been invalidated since it was read.
+     * @param bucketName the name of the bucket
+     * @param key the key of the object
+     * @param version the version of the cache taken before the content was read
+     * @param content the content of the object, as it is stored
+     * @param eTag the ETag of the object
+     * @param contentType the media type of the content
+     * @param contentEncoding the encoding of the content, null if it is not encoded
+     */
+    public void put(String bucketName, String key, long version, byte[] content, String eTag, String contentType, String contentEncoding) {
+        if (eTag == null || content.length > maxObjectSize) {
+            return;
+        }
+
+        ByteBuffer data = offHeap ? ByteBuffer.allocateDirect(content.length) : ByteBuffer.allocate(content.length);
+        data.put(content).flip();
+        Entry entry = new Entry(data.asReadOnlyBuffer(), eTag, contentType, contentEncoding);
+
+        String cacheKey = toCacheKey(bucketName, key);
+        synchronized (this) {
+            if (!invalidations.isCurrent(cacheKey, version)) {
+                return;
+            }
+
+            Entry previous = entries.put(cacheKey, entry);
+            keys.add(cacheKey);
+            bytes += entry.size() - (previous != null ? previous.size() : 0);
+
+            // Evict the least recently used contents until the cache fits its budget again
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Entry> evicted = eldest.next();
+                bytes -= evicted.getValue().size();
+                keys.remove(evicted.getKey());
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Forget the content of a resource and of everything under it.
+     * @param bucketName the name of the bucket
+     * @param key the key of the resource, null for the whole bucket
+     */
+    public synchronized void invalidate(String bucketName, String key) {
+        String uri = toCacheKey(bucketName, key);
+        invalidations.invalidated(uri);
+
+        remove(uri);
+        String uriPrefix = uri + "/";
+        Iterator<String> children = keys.subSet(uriPrefix, uriPrefix + Character.MAX_VALUE).iterator();
+        while (children.hasNext()) {
+            bytes -= entries.remove(children.next()).size();
+            children.remove();
+        }
+    }
+
+    private void remove(String cacheKey) {
+        Entry removed = entries.remove(cacheKey);
+        if (removed != null) {
+            bytes -= removed.size();
+            keys.remove(cacheKey);
+        }
+    }
+
+    /**
+     * Forget everything.
+     */
+    public synchronized void clear() {
+        invalidations.cleared();
+        entries.clear();
+        keys.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return the number of bytes of content currently held
+     */
+    public synchronized long size() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of reads served from the cache without asking the S3 service
+     */
+    public long hitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of reads that had to ask the S3 service, including the revalidations
+     */
+    public long missCount() {
+        return misses.get();
+    }
+
+    private static String toCacheKey(String bucketName, String key) {
+        return key == null ? bucketName : bucketName + "/" + key;
+    }
+}
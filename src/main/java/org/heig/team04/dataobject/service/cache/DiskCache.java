@@ -0,0 +1,509 @@
+package org.heig.team04.dataobject.service.cache;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Cache of the content of the large objects in a local directory, bounded by the total number of bytes it holds.
+ * When the cache is full, the least recently used files are deleted.
+ * <p>
+ * A content is written to a ".part" file while it is downloaded and only enters the cache,
+ * renamed to its final name, once all of its bytes have been written. An interrupted or failed download
+ * leaves nothing behind. Every version of an object gets a new file, so a reader of an evicted
+ * or replaced version keeps reading the file it opened.
+ * <p>
+ * The index is kept in memory, the files live in a directory of their own that is deleted when the cache is closed.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public class DiskCache implements Closeable {
+    // The largest array the JVMs allocate, a larger content is only streamed from its file
+    private static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long minObjectSize;
+    private final long revalidateAfterNanos;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final NavigableSet<String> keys = new TreeSet<>(); // The keys of the entries, sorted to find those under a folder
+    private final Invalidations invalidations = new Invalidations();
+    private final AtomicLong fileIds = new AtomicLong();
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * A cached file along with the metadata needed to serve and revalidate it.
+     */
+    public static final class Entry {
+        private final Path file;
+        private final long size;
+        private final String eTag;
+        private final String contentType;
+        private volatile long validatedAt;
+
+        private Entry(Path file, long size, String eTag, String contentType) {
+            this.file = file;
+            this.size = size;
+            this.eTag = eTag;
+            this.contentType = contentType;
+            this.validatedAt = System.nanoTime();
+        }
+
+        /**
+         * Open a stream on a region of the cached content.
+         * @param position the position of the first byte to read
+         * @param count the number of bytes to read
+         * @return the stream, to be closed by the caller
+         * @throws IOException if the file has been evicted meanwhile or cannot be read
+         */
+        public FileContent open(long position, long count) throws IOException {
+            return new FileContent(FileChannel.open(file, StandardOpenOption.READ), position, count);
+        }
+
+        /**
+         * @return true if the content fits in an array and can be read whole, false if it can only be streamed
+         */
+        public boolean isReadableWhole() {
+            return size <= MAX_ARRAY_SIZE;
+        }
+
+        /**
+         * Read the whole cached content through a memory mapping of the file.
+         * @return the content
+         * @throws IOException if the file has been evicted meanwhile or cannot be read, or is too large to be read whole
+         */
+        public byte[] readAll() throws IOException {
+            if (!isReadableWhole()) {
+                throw new IOException("Too large to be read whole: " + size + " bytes");
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                byte[] content = new byte[(int) size];
+                mapped.get(content);
+                return content;
+            }
+        }
+
+        /**
+         * @return the number of bytes of the content
+         */
+        public long size() {
+            return size;
+        }
+
+        /**
+         * @return the ETag of the cached version of the object
+         */
+        public String eTag() {
+            return eTag;
+        }
+
+        /**
+         * @return the media type of the content
+         */
+        public String contentType() {
+            return contentType;
+        }
+    }
+
+    /**
+     * Constructor for the DiskCache class.
+     * A cache with no byte budget is disabled and creates no directory.
+     * @param parentDirectory the directory under which the cache creates its own
+     * @param maxBytes the maximum number of bytes of content kept on disk
+     * @param minObjectSize the size up to which an object is left to the memory cache
+     * @param revalidateAfter the time after which an entry must be revalidated before being served
+     */
+    public DiskCache(Path parentDirectory, long maxBytes, long minObjectSize, Duration revalidateAfter) {
+        this.maxBytes = maxBytes;
+        this.minObjectSize = minObjectSize;
+        this.revalidateAfterNanos = revalidateAfter.toNanos();
+
+        if (maxBytes <= 0) {
+            this.directory = null;
+            return;
+        }
+
+        try {
+            Files.createDirectories(parentDirectory);
+            this.directory = Files.createTempDirectory(parentDirectory, "cache-");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create the disk cache under " + parentDirectory, e);
+        }
+    }
+
+    /**
+     * Check if an object is large enough for the disk cache, and small enough to fit in it.
+     * @param size the size of the object in bytes
+     * @return true if the object should be cached on disk
+     */
+    public boolean accepts(long size) {
+        return directory != null && size > minObjectSize && size <= maxBytes;
+    }
+
+    /**
+     * Get the cached file of an object, whether it still has to be revalidated or not.
+     * @param bucketName the name of the bucket
+     * @param key the key of the object
+     * @return the cached entry, or null if absent
+     */
+    public synchronized Entry get(String bucketName, String key) {
+        return entries.get(toCacheKey(bucketName, key));
+    }
+
+    /**
+     * Get the cached file of an object if it can be served without asking the S3 service.
+     * @param bucketName the name of the bucket
+     * @param key the key of the object
+     * @return the cached entry, or null if absent or due for revalidation
+     */
+    public Entry getFresh(String bucketName, String key) {
+        if (directory == null) {
+            return null;
+        }
+
+        Entry entry = get(bucketName, key);
+        if (entry != null && System.nanoTime() - entry.validatedAt < revalidateAfterNanos) {
+            hits.incrementAndGet();
+            return entry;
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Record that the S3 service confirmed the cached content is still the current one.
+     * @param entry the entry that has been revalidated
+     */
+    public void revalidated(Entry entry) {
+        entry.validatedAt = System.nanoTime();
+    }
+
+    /**
+     * Get the version of the cache, to pass to {@link #put} or {@link #tee} when the content is read.
+     * It changes on every invalidation, so a content read before a write of the object is not stored after it.
+     * @return the current version
+     */
+    public synchronized long version() {
+        return invalidations.version();
+    }
+
+    /**
+     * Store the content of an object already read in memory, if the cache accepts it.
+     * A failure to write the file only means the content is not cached.
+     * @param bucketName the name of the bucket
+     * @param key the key of the object
+     * @param version the version of the cache taken before the content was read
+     * @param content the content of the object
+     * @param eTag the ETag of the object
+     * @param contentType the media type of the content
+     */
+    public void put(String bucketName, String key, long version, byte[] content, String eTag, String contentType) {
+        if (eTag == null || !accepts(content.length)) {
+            return;
+        }
+
+        Path part = directory.resolve(fileIds.incrementAndGet() + ".part");
+        try {
+            Files.write(part, content);
+            commit(toCacheKey(bucketName, key), version, part, content.length, eTag, contentType);
+        } catch (IOException e) {
+            deleteQuietly(part);
+        }
+    }
+
+    /**
+     * Wrap the stream of an object being downloaded so that its content is written to the cache while it is read.
+     * The content enters the cache when the stream is closed, if all of its bytes have been read.
+     * @param bucketName the name of the bucket
+     * @param key the key of the object
+     * @param version the version of the cache taken before the download started
+     * @param content the content being downloaded
+     * @param size the size of the object in bytes
+     * @param eTag the ETag of the object
+     * @param contentType the media type of the content
+     * @return the stream to read instead of the content, or the content itself if the cache does not accept it
+     */
+    public InputStream tee(String bucketName, String key, long version, InputStream content, long size, String eTag, String contentType) {
+        if (eTag == null || !accepts(size)) {
+            return content;
+        }
+
+        Path part = directory.resolve(fileIds.incrementAndGet() + ".part");
+        try {
+            FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            return new TeeContent(content, channel, part, toCacheKey(bucketName, key), version, size, eTag, contentType);
+        } catch (IOException e) {
+            deleteQuietly(part);
+            return content;
+        }
+    }
+
+    /**
+     * Add a fully written file to the cache, unless its object has been invalidated since its content was read.
+     */
+    private void commit(String cacheKey, long version, Path part, long size, String eTag, String contentType) throws IOException {
+        Path file = part.resolveSibling(part.getFileName().toString().replace(".part", ".bin"));
+        Files.move(part, file, StandardCopyOption.ATOMIC_MOVE);
+
+        List<Path> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (!invalidations.isCurrent(cacheKey, version)) {
+                evicted.add(file);
+            } else {
+                Entry previous = entries.put(cacheKey, new Entry(file, size, eTag, contentType));
+                keys.add(cacheKey);
+                bytes += size;
+                if (previous != null) {
+                    bytes -= previous.size;
+                    evicted.add(previous.file);
+                }
+
+                // Evict the least recently used files until the cache fits its budget again
+                Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+                while (bytes > maxBytes && eldest.hasNext()) {
+                    Map.Entry<String, Entry> entry = eldest.next();
+                    bytes -= entry.getValue().size;
+                    evicted.add(entry.getValue().file);
+                    keys.remove(entry.getKey());
+                    eldest.remove();
+                }
+            }
+        }
+
+        evicted.forEach(DiskCache::deleteQuietly);
+    }
+
+    /**
+     * Forget the content of a resource and of everything under it, and delete their files.
+     * @param bucketName the name of the bucket
+     * @param key the key of the resource, null for the whole bucket
+     */
+    public void invalidate(String bucketName, String key) {
+        String uri = toCacheKey(bucketName, key);
+        String uriPrefix = uri + "/";
+
+        List<Path> evicted = new ArrayList<>();
+        synchronized (this) {
+            invalidations.invalidated(uri);
+            Entry removed = entries.remove(uri);
+            if (removed != null) {
+                bytes -= removed.size;
+                evicted.add(removed.file);
+                keys.remove(uri);
+            }
+
+            Iterator<String> children = keys.subSet(uriPrefix, uriPrefix + Character.MAX_VALUE).iterator();
+            while (children.hasNext()) {
+                Entry child = entries.remove(children.next());
+                bytes -= child.size;
+                evicted.add(child.file);
+                children.remove();
+            }
+        }
+
+        evicted.forEach(DiskCache::deleteQuietly);
+    }
+
+    /**
+     * Forget everything and delete the files.
+     */
+    public void clear() {
+        List<Path> evicted;
+        synchronized (this) {
+            invalidations.cleared();
+            evicted = entries.values().stream().map(entry -> entry.file).toList();
+            entries.clear();
+            keys.clear();
+            bytes = 0;
+        }
+
+        evicted.forEach(DiskCache::deleteQuietly);
+    }
+
+    /**
+     * Delete the files and the directory of the cache, including the downloads still in progress.
+     */
+    @Override
+    public void close() {
+        clear();
+        if (directory == null) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(DiskCache::deleteQuietly);
+        } catch (IOException e) {
+            // The directory is left to the temporary files cleanup of the system
+        }
+        deleteQuietly(directory);
+    }
+
+    /**
+     * @return the number of bytes of content currently held
+     */
+    public synchronized long size() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of reads served from the disk without asking the S3 service
+     */
+    public long hitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of reads that had to ask the S3 service, including the revalidations
+     */
+    public long missCount() {
+        return misses.get();
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // A file still open elsewhere is deleted by the cleanup of the directory
+        }
+    }
+
+    private static String toCacheKey(String bucketName, String key) {
+        return key == null ? bucketName : bucketName + "/" + key;
+    }
+
+    /**
+     * Stream copying the bytes it reads to a ".part" file, committed to the cache when it is closed.
+     * The copy is abandoned, and the file deleted, as soon as writing fails or bytes are skipped.
+     */
+    private final class TeeContent extends FilterInputStream {
+        private final Path part;
+        private final String cacheKey;
+        private final long version;
+        private final long size;
+        private final String eTag;
+        private final String contentType;
+        private FileChannel channel;
+        private long written;
+
+        private TeeContent(InputStream content, FileChannel channel, Path part, String cacheKey, long version, long size, String eTag, String contentType) {
+            super(content);
+            this.channel = channel;
+            this.part = part;
+            this.cacheKey = cacheKey;
+            this.version = version;
+            this.size = size;
+            this.eTag = eTag;
+            this.contentType = contentType;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = in.read();
+            if (read != -1) {
+                write(new byte[]{(byte) read}, 0, 1);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = in.read(buffer, offset, length);
+            if (read > 0) {
+                write(buffer, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            abandon();
+            return in.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                in.close();
+            } finally {
+                finish();
+            }
+        }
+
+        private void write(byte[] buffer, int offset, int length) {
+            if (channel == null) {
+                return;
+            }
+
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, offset, length);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                written += length;
+            } catch (IOException e) {
+                abandon();
+            }
+        }
+
+        private void finish() {
+            if (channel == null) {
+                return;
+            }
+
+            try {
+                channel.close();
+                channel = null;
+                if (written == size) {
+                    commit(cacheKey, version, part, size, eTag, contentType);
+                    return;
+                }
+            } catch (IOException e) {
+                // The content is simply not cached
+            }
+            deleteQuietly(part);
+        }
+
+        private void abandon() {
+            if (channel == null) {
+                return;
+            }
+
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // The file is deleted anyway
+            }
+            channel = null;
+            deleteQuietly(part);
+        }
+    }
+}
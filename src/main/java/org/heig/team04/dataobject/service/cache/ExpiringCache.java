@@ -0,0 +1,196 @@
+package org.heig.team04.dataobject.service.cache;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * A bounded, thread-safe cache whose entries expire after a fixed time to live.
+ * When the cache is full, the least recently used entry is evicted.
+ * A cache given an order of its keys also keeps them sorted, so that a range of keys can be invalidated without a scan.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public class ExpiringCache<K, V> {
+    private final long ttlNanos;
+    private final Map<K, Entry<V>> entries;
+    private final NavigableSet<K> keys; // The keys of the entries in their order, null if the cache has none
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor for the ExpiringCache class.
+     * @param maxEntries the maximum number of entries kept in the cache
+     * @param ttl the time to live of an entry
+     */
+    public ExpiringCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, null);
+    }
+
+    /**
+     * Constructor for the ExpiringCache class, keeping its keys sorted for {@link #invalidateRange}.
+     * @param maxEntries the maximum number of entries kept in the cache
+     * @param ttl the time to live of an entry
+     * @param order the order of the keys, null to keep them unsorted
+     */
+    public ExpiringCache(int maxEntries, Duration ttl, Comparator<? super K> order) {
+        this.ttlNanos = ttl.toNanos();
+        this.keys = order != null ? new TreeSet<>(order) : null;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() <= maxEntries) {
+                    return false;
+                }
+                if (keys != null) {
+                    keys.remove(eldest.getKey());
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Get the value associated with the given key.
+     * @param key the key to look up
+     * @return the cached value, or null if absent or expired
+     */
+    public V get(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+
+            if (entry != null) {
+                remove(key);
+            }
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Associate the given value with the given key for the default time to live.
+     * @param key the key
+     * @param value the value
+     */
+    public void put(K key, V value) {
+        put(key, value, ttlNanos);
+    }
+
+    /**
+     * Associate the given value with the given key for the given time to live.
+     * @param key the key
+     * @param value the value
+     * @param ttlNanos the time to live of the entry in nanoseconds
+     */
+    public void put(K key, V value, long ttlNanos) {
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+            if (keys != null) {
+                keys.add(key);
+            }
+        }
+    }
+
+    /**
+     * Remove the entry associated with the given key.
+     * @param key the key
+     */
+    public void invalidate(K key) {
+        synchronized (entries) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Remove all the entries whose key matches the given predicate.
+     * @param predicate the predicate selecting the keys to remove
+     */
+    public void invalidateIf(Predicate<K> predicate) {
+        synchronized (entries) {
+            entries.keySet().removeIf(predicate);
+            if (keys != null) {
+                keys.removeIf(predicate);
+            }
+        }
+    }
+
+    /**
+     * Remove all the entries whose key is between the given keys, in the order of the cache.
+     * @param fromKey the lowest key to remove
+     * @param toKey the highest key to remove
+     * @throws IllegalStateException if the cache was not given an order of its keys
+     */
+    public void invalidateRange(K fromKey, K toKey) {
+        if (keys == null) {
+            throw new IllegalStateException("The keys of the cache are not sorted");
+        }
+
+        synchronized (entries) {
+            Iterator<K> range = keys.subSet(fromKey, true, toKey, true).iterator();
+            while (range.hasNext()) {
+                entries.remove(range.next());
+                range.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove all the entries.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            if (keys != null) {
+                keys.clear();
+            }
+        }
+    }
+
+    /**
+     * @return the number of entries currently held, including expired ones not yet evicted
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return the number of lookups that found a live entry
+     */
+    public long hitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups that found no live entry
+     */
+    public long missCount() {
+        return misses.get();
+    }
+
+    private void remove(K key) {
+        entries.remove(key);
+        if (keys != null) {
+            keys.remove(key);
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
@@ -0,0 +1,89 @@
+package org.heig.team04.dataobject.service.cache;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Stream on a region of a file, read with positional reads on its channel.
+ * It is sent to an output with {@link FileChannel#transferTo}. The JVM only sends a file without copying it to another
+ * file or to a socket channel: the output stream of a servlet is neither, so the bytes are still copied through a buffer.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public class FileContent extends InputStream {
+    private final FileChannel channel;
+    private final long end;
+    private long position;
+
+    /**
+     * Constructor for the FileContent class.
+     * @param channel the channel of the file, closed with the stream
+     * @param position the position of the first byte to read
+     * @param count the number of bytes to read
+     */
+    public FileContent(FileChannel channel, long position, long count) {
+        this.channel = channel;
+        this.position = position;
+        this.end = position + count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (position >= end) {
+            return -1;
+        }
+
+        int read = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, end - position)), position);
+        if (read == -1) {
+            throw new EOFException("File truncated at " + position);
+        }
+        position += read;
+        return read;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, end - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+
+    @Override
+    public long transferTo(OutputStream out) throws IOException {
+        // A wrapped stream is written from a buffer the channel fills, there is no zero-copy path to a servlet output
+        WritableByteChannel target = Channels.newChannel(out);
+        long transferred = 0;
+        while (position < end) {
+            long sent = channel.transferTo(position, end - position, target);
+            if (sent <= 0) {
+                throw new EOFException("File truncated at " + position);
+            }
+            position += sent;
+            transferred += sent;
+        }
+        return transferred;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
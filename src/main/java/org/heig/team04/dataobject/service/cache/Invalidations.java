@@ -0,0 +1,86 @@
+package org.heig.team04.dataobject.service.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Record of the recent invalidations of a cache, telling whether a content read at a given version can still be stored.
+ * A content is refused if the resource it belongs to, or a folder or bucket above it, has been invalidated since it was read,
+ * so a write only prevents the caching of the resources it touches.
+ * Only the most recent invalidations are remembered: a content read before the oldest of them is refused.
+ * <p>
+ * Not thread-safe, the methods are called while holding the lock of the cache.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+final class Invalidations {
+    // Number of invalidated resources remembered, far more than the reads in progress at a time
+    private static final int MAX_REMEMBERED = 1024;
+
+    // The version at which each recently invalidated resource was last invalidated, the oldest first
+    private final LinkedHashMap<String, Long> invalidatedAt = new LinkedHashMap<>();
+    private long version;
+    private long forgottenUpTo; // The contents read before this version are refused, their invalidations being forgotten
+
+    /**
+     * @return the current version, to pass to {@link #isCurrent} when the content read is stored
+     */
+    long version() {
+        return version;
+    }
+
+    /**
+     * Record the invalidation of a resource and of everything under it.
+     * @param uri the URI of the resource in the cache
+     */
+    void invalidated(String uri) {
+        version++;
+        invalidatedAt.remove(uri);
+        invalidatedAt.put(uri, version);
+
+        Iterator<Long> oldest = invalidatedAt.values().iterator();
+        while (invalidatedAt.size() > MAX_REMEMBERED) {
+            forgottenUpTo = oldest.next();
+            oldest.remove();
+        }
+    }
+
+    /**
+     * Record the invalidation of everything.
+     */
+    void cleared() {
+        version++;
+        forgottenUpTo = version;
+        invalidatedAt.clear();
+    }
+
+    /**
+     * Check that neither a resource nor a folder or bucket above it has been invalidated since a version.
+     * @param uri the URI of the resource in the cache
+     * @param readVersion the version taken before the content of the resource was read
+     * @return true if the content read can be stored
+     */
+    boolean isCurrent(String uri, long readVersion) {
+        if (readVersion == version) {
+            return true;
+        }
+        if (readVersion < forgottenUpTo) {
+            return false;
+        }
+
+        String ancestor = uri;
+        while (true) {
+            Long at = invalidatedAt.get(ancestor);
+            if (at != null && at > readVersion) {
+                return false;
+            }
+
+            int slash = ancestor.lastIndexOf('/');
+            if (slash < 0) {
+                return true;
+            }
+            ancestor = ancestor.substring(0, slash);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package org.heig.team04.dataobject.service.cache;
+
+import org.heig.team04.dataobject.service.ResourceInfo;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Cache of the bucket existence and the classification of the resource URIs.
+ * It avoids repeating the S3 listings needed to know if a URI is a bucket, a folder, an object or nothing.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public class MetadataCache {
+    private final ExpiringCache<String, Boolean> buckets;
+    private final ExpiringCache<String, ResourceInfo> resources;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Listener notified when a resource is written, deleted or invalidated,
+     * so that the caches of data derived from the resource can drop their entries.
+     */
+    @FunctionalInterface
+    public interface ChangeListener {
+        /**
+         * @param bucketName the name of the bucket
+         * @param key the key of the resource that changed along with everything under it, null for the whole bucket
+         */
+        void changed(String bucketName, String key);
+    }
+
+    /**
+     * Constructor for the MetadataCache class.
+     * @param maxEntries the maximum number of entries of each underlying cache
+     * @param ttl the time to live of an entry
+     */
+    public MetadataCache(int maxEntries, Duration ttl) {
+        this.buckets = new ExpiringCache<>(maxEntries, ttl);
+        this.resources = new ExpiringCache<>(maxEntries, ttl);
+    }
+
+    /**
+     * Register a listener notified of every change of a resource.
+     * @param listener the listener
+     */
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Get the cached existence of a bucket.
+     * @param bucketName the name of the bucket
+     * @return true or false if known, null otherwise
+     */
+    public Boolean getBucket(String bucketName) {
+        return buckets.get(bucketName);
+    }
+
+    /**
+     * Record the existence of a bucket.
+     * @param bucketName the name of the bucket
+     * @param exists true if the bucket exists, false otherwise
+     */
+    public void putBucket(String bucketName, boolean exists) {
+        buckets.put(bucketName, exists);
+    }
+
+    /**
+     * Get the cached classification of a resource.
+     * @param bucketName the name of the bucket
+     * @param key the key of the resource, null for the bucket itself
+     * @return the resource if known, null otherwise
+     */
+    public ResourceInfo get(String bucketName, String key) {
+        return resources.get(toCacheKey(bucketName, key));
+    }
+
+    /**
+     * Record the classification of a resource.
+     * @param bucketName the name of the bucket
+     * @param key the key of the resource, null for the bucket itself
+     * @param info the resolved resource
+     */
+    public void put(String bucketName, String key, ResourceInfo info) {
+        resources.put(toCacheKey(bucketName, key), info);
+    }
+
+    /**
+     * Update the cache after an object has been written.
+     * The bucket and every parent folder of the object are known to exist afterwards.
+     * @param bucketName the name of the bucket
+     * @param key the key of the object
+     * @param size the size of the object in bytes
+     * @param eTag the ETag returned by the write, may be null
+     */
+    public void objectWritten(String bucketName, String key, long size, String eTag) {
+        objectWritten(bucketName, key, size, size, eTag);
+    }
+
+    /**
+     * Update the cache after an object, possibly stored compressed, has been written.
+     * @param bucketName the name of the bucket
+     * @param key the key of the object
+     * @param size the size of the object in bytes as it is stored
+     * @param contentLength the length of the content of the object once decompressed
+     * @param eTag the ETag returned by the write, may be null
+     */
+    public void objectWritten(String bucketName, String key, long size, long contentLength, String eTag) {
+        notifyChanged(bucketName, key);
+        putBucket(bucketName, true);
+        put(bucketName, null, ResourceInfo.bucket());
+
+        int slash = key.indexOf('/');
+        while (slash > 0) {
+            put(bucketName, key.substring(0, slash), ResourceInfo.folder());
+            slash = key.indexOf('/', slash + 1);
+        }
+
+        if (eTag == null) {
+            resources.invalidate(toCacheKey(bucketName, key));
+        } else {
+            put(bucketName, key, ResourceInfo.object(size, eTag, null, contentLength));
+        }
+    }
+
+    /**
+     * Update the cache after a resource has been deleted.
+     * The resource is known to be missing, everything under it and its parent folders, which may now be empty, are forgotten.
+     * @param bucketName the name of the bucket
+     * @param key the key of the resource, null if the whole bucket has been deleted
+     */
+    public void deleted(String bucketName, String key) {
+        invalidate(bucketName, key);
+
+        if (key == null) {
+            putBucket(bucketName, false);
+        }
+        put(bucketName, key, ResourceInfo.missing());
+    }
+
+    /**
+     * Forget a resource, everything under it and its parent folders.
+     * It is used when the state of the resource is unknown, for instance after a failed write.
+     * @param bucketName the name of the bucket
+     * @param key the key of the resource, null for the whole bucket
+     */
+    public void invalidate(String bucketName, String key) {
+        notifyChanged(bucketName, key);
+
+        if (key == null) {
+            buckets.invalidate(bucketName);
+            String bucketPrefix = bucketName + "/";
+            resources.invalidateIf(k -> k.equals(bucketName) || k.startsWith(bucketPrefix));
+            return;
+        }
+
+        String uri = toCacheKey(bucketName, key);
+        String uriPrefix = uri + "/";
+        resources.invalidateIf(k -> k.equals(uri) || k.startsWith(uriPrefix));
+
+        int slash = key.lastIndexOf('/');
+        while (slash > 0) {
+            resources.invalidate(toCacheKey(bucketName, key.substring(0, slash)));
+            slash = key.lastIndexOf('/', slash - 1);
+        }
+    }
+
+    /**
+     * Forget everything.
+     */
+    public void clear() {
+        buckets.clear();
+        resources.clear();
+    }
+
+    /**
+     * @return the number of lookups answered by the cache
+     */
+    public long hitCount() {
+        return buckets.hitCount() + resources.hitCount();
+    }
+
+    /**
+     * @return the number of lookups that had to go to the S3 service
+     */
+    public long missCount() {
+        return buckets.missCount() + resources.missCount();
+    }
+
+    private void notifyChanged(String bucketName, String key) {
+        for (ChangeListener listener : listeners) {
+            listener.changed(bucketName, key);
+        }
+    }
+
+    private static String toCacheKey(String bucketName, String key) {
+        return key == null ? bucketName : bucketName + "/" + key;
+    }
+}
@@ -0,0 +1,90 @@
+package org.heig.team04.dataobject.service.cache;
+
+import java.time.Duration;
+import java.util.Comparator;
+
+/**
+ * Cache of the presigned URLs, keyed by resource URI and time to live.
+ * A URL is reused while more than a given ratio of its lifetime is left,
+ * so a cached link is always valid for at least that ratio of the requested time to live.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public class PresignedUrlCache {
+    private final ExpiringCache<String, String> urls;
+    private final double minRemainingRatio;
+
+    /**
+     * Constructor for the PresignedUrlCache class.
+     * @param maxEntries the maximum number of URLs kept in the cache
+     * @param minRemainingRatio the ratio of the lifetime of a URL that must be left for it to be reused, between 0 and 1
+     */
+    public PresignedUrlCache(int maxEntries, double minRemainingRatio) {
+        this.urls = new ExpiringCache<>(maxEntries, Duration.ZERO, Comparator.naturalOrder());
+        this.minRemainingRatio = minRemainingRatio;
+    }
+
+    /**
+     * Get a presigned URL that can still be handed out.
+     * @param bucketName the name of the bucket
+     * @param key the key of the object
+     * @param ttl the time to live of the URL in seconds
+     * @return the presigned URL, or null if there is none with enough lifetime left
+     */
+    public String get(String bucketName, String key, int ttl) {
+        return urls.get(toCacheKey(bucketName, key, ttl));
+    }
+
+    /**
+     * Record a freshly signed URL.
+     * @param bucketName the name of the bucket
+     * @param key the key of the object
+     * @param ttl the time to live of the URL in seconds
+     * @param url the presigned URL
+     */
+    public void put(String bucketName, String key, int ttl, String url) {
+        long reusableNanos = (long) (Duration.ofSeconds(ttl).toNanos() * (1 - minRemainingRatio));
+        if (reusableNanos > 0) {
+            urls.put(toCacheKey(bucketName, key, ttl), url, reusableNanos);
+        }
+    }
+
+    /**
+     * Forget the URLs of a resource and of everything under it.
+     * @param bucketName the name of the bucket
+     * @param key the key of the resource, null for the whole bucket
+     */
+    public void invalidate(String bucketName, String key) {
+        if (key == null) {
+            invalidatePrefix(bucketName + "/");
+            return;
+        }
+
+        // The URLs of the object, one per time to live, then those of the objects under it
+        invalidatePrefix(bucketName + "/" + key + "#");
+        invalidatePrefix(bucketName + "/" + key + "/");
+    }
+
+    private void invalidatePrefix(String prefix) {
+        urls.invalidateRange(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    /**
+     * @return the number of links served from the cache
+     */
+    public long hitCount() {
+        return urls.hitCount();
+    }
+
+    /**
+     * @return the number of links that had to be signed
+     */
+    public long missCount() {
+        return urls.missCount();
+    }
+
+    private static String toCacheKey(String bucketName, String key, int ttl) {
+        return bucketName + "/" + key + "#" + ttl;
+    }
+}
@@ -0,0 +1,12 @@
+package org.heig.team04.dataobject.service.exceptions;
+
+/**
+ * Exception thrown when the object has been modified by someone else while it was being updated.
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public class ConcurrentUpdateException extends ServiceException {
+    public ConcurrentUpdateException(String uri) {
+        super("Object modified concurrently: " + uri);
+    }
+}
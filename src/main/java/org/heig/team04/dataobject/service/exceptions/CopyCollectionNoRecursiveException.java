@@ -0,0 +1,12 @@
+package org.heig.team04.dataobject.service.exceptions;
+
+/**
+ * Exception thrown when trying to copy or move a collection without the recursive flag.
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public class CopyCollectionNoRecursiveException extends ServiceException {
+    public CopyCollectionNoRecursiveException(String uri) {
+        super("This is a collection, you must use the recursive option to copy or move it: " + uri);
+    }
+}
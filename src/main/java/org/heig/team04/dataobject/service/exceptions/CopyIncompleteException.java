@@ -0,0 +1,31 @@
+package org.heig.team04.dataobject.service.exceptions;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Exception thrown when some objects of a collection could not be copied or moved.
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public class CopyIncompleteException extends ExternalServiceException {
+    // Maximum number of failed keys listed in the message
+    private static final int MAX_KEYS_IN_MESSAGE = 10;
+
+    private final transient Map<String, String> failures;
+
+    public CopyIncompleteException(String uri, Map<String, String> failures) {
+        super("Failed to copy or move " + failures.size() + " object(s) of " + uri + ": " + failures.entrySet().stream()
+                .limit(MAX_KEYS_IN_MESSAGE)
+                .map(failure -> failure.getKey() + " (" + failure.getValue() + ")")
+                .collect(Collectors.joining(", ")));
+        this.failures = Map.copyOf(failures);
+    }
+
+    /**
+     * @return the error message of each key that could not be copied or moved
+     */
+    public Map<String, String> getFailures() {
+        return failures;
+    }
+}
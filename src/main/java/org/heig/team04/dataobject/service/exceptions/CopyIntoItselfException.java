@@ -0,0 +1,12 @@
+package org.heig.team04.dataobject.service.exceptions;
+
+/**
+ * Exception thrown when trying to copy or move a collection to a URI inside it.
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public class CopyIntoItselfException extends ServiceException {
+    public CopyIntoItselfException(String sourceUri, String targetUri) {
+        super("A collection cannot be copied or moved inside itself: " + sourceUri + " to " + targetUri);
+    }
+}
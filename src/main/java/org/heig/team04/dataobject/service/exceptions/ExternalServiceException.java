@@ -9,4 +9,8 @@ public class ExternalServiceException extends ServiceException {
     public ExternalServiceException(Throwable cause) {
         super("Internal service error", cause);
     }
+
+    protected ExternalServiceException(String message) {
+        super(message);
+    }
 }
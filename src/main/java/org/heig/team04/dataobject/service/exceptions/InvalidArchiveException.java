@@ -0,0 +1,12 @@
+package org.heig.team04.dataobject.service.exceptions;
+
+/**
+ * Exception thrown when an uploaded archive cannot be read.
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public class InvalidArchiveException extends ServiceException {
+    public InvalidArchiveException(String uri, Throwable cause) {
+        super("The archive to unpack in " + uri + " cannot be read: " + cause.getMessage(), cause);
+    }
+}
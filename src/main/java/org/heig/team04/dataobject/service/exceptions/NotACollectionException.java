@@ -0,0 +1,12 @@
+package org.heig.team04.dataobject.service.exceptions;
+
+/**
+ * Exception thrown when the collection is not a collection but an object.
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public class NotACollectionException extends ServiceException {
+    public NotACollectionException(String uri) {
+        super("This points to an object, not a collection: " + uri);
+    }
+}
@@ -0,0 +1,177 @@
+package org.heig.team04.dataobject;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.heig.team04.dataobject.config.DataObjectProperties;
+import org.heig.team04.dataobject.service.ArchiveExporter;
+import org.heig.team04.dataobject.service.ArchiveFormat;
+import org.heig.team04.dataobject.service.ArchiveImporter;
+import org.heig.team04.dataobject.service.ImportResult;
+import org.heig.team04.dataobject.service.ObjectStream;
+import org.heig.team04.dataobject.service.ServiceInterface;
+import org.heig.team04.dataobject.service.ServiceMemoryImpl;
+import org.heig.team04.dataobject.service.exceptions.InvalidArchiveException;
+import org.heig.team04.dataobject.service.exceptions.NotAnObjectException;
+import org.heig.team04.dataobject.service.exceptions.NotFoundException;
+import org.heig.team04.dataobject.service.exceptions.ServiceException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the creation of the objects of an uploaded archive, and the archives of the downloads.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see ArchiveImporter
+ * @see ArchiveExporter
+ */
+class ArchiveImporterTests {
+    private static final String FOLDER = "amt.team04.diduno.education/testFolder";
+    private static final byte[] SMALL = {1, 2, 3};
+    private static final byte[] BIG = new byte[100];
+
+    private ServiceInterface service;
+    private ArchiveImporter importer;
+    private ArchiveExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        DataObjectProperties properties = new DataObjectProperties();
+        // The big entry is streamed, the small ones buffered
+        properties.getArchive().setMaxBufferedEntrySize(DataSize.ofBytes(10));
+        service = new ServiceMemoryImpl(properties);
+        importer = new ArchiveImporter(service, properties);
+        exporter = new ArchiveExporter(service, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importer.shutdown();
+        exporter.shutdown();
+    }
+
+    @Test
+    void importArchive_Tar_EveryFileCreated() throws ServiceException, IOException {
+        // given
+        byte[] archive = tar(Map.of("./a/one", SMALL, "big", BIG, "../outside", SMALL));
+        service.create(FOLDER + "/existing", SMALL);
+        byte[] withExisting = tar(Map.of("existing", SMALL));
+
+        // when
+        Map<String, ImportResult> results = importer.importArchive(FOLDER, new ByteArrayInputStream(archive), ArchiveFormat.TAR);
+        Map<String, ImportResult> existing = importer.importArchive(FOLDER, new ByteArrayInputStream(withExisting), ArchiveFormat.TAR);
+
+        // then
+        assertEquals(ImportResult.success(SMALL.length), results.get(FOLDER + "/a/one"));
+        assertEquals(ImportResult.success(BIG.length), results.get(FOLDER + "/big"));
+        assertNotNull(results.get(FOLDER + "/../outside").error());
+        assertArrayEquals(SMALL, service.read(FOLDER + "/a/one"));
+        assertArrayEquals(BIG, service.read(FOLDER + "/big"));
+        assertNotNull(existing.get(FOLDER + "/existing").error());
+    }
+
+    @Test
+    void importArchive_ZipOrCorrupted_CreatedOrRejected() throws ServiceException, IOException {
+        // given
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(zip)) {
+            write(out, new ZipArchiveEntry("b/two"), SMALL);
+        }
+
+        // when
+        Map<String, ImportResult> results = importer.importArchive(FOLDER, new ByteArrayInputStream(zip.toByteArray()), ArchiveFormat.ZIP);
+
+        // then
+        assertEquals(List.of(FOLDER + "/b/two"), List.copyOf(results.keySet()));
+        assertArrayEquals(SMALL, service.read(FOLDER + "/b/two"));
+        assertThrows(InvalidArchiveException.class,
+                () -> importer.importArchive(FOLDER, new ByteArrayInputStream(new byte[]{31, 0, 0}), ArchiveFormat.TAR_GZIP));
+    }
+
+    @Test
+    void exportArchive_Folder_ImportedBackIdentical() throws ServiceException, IOException {
+        // given
+        for (int i = 0; i < 10; i++) {
+            service.create(FOLDER + "/small/" + i, SMALL);
+        }
+        service.create(FOLDER + "/big", BIG);
+
+        for (ArchiveFormat format : ArchiveFormat.values()) {
+            // when
+            ByteArrayOutputStream archive = new ByteArrayOutputStream();
+            exporter.write(FOLDER, exporter.list(FOLDER), format, archive);
+            String copy = "amt.team04.diduno.education/" + format;
+            Map<String, ImportResult> results = importer.importArchive(copy, new ByteArrayInputStream(archive.toByteArray()), format);
+
+            // then
+            assertEquals(11, results.size());
+            assertArrayEquals(BIG, service.read(copy + "/big"));
+            assertArrayEquals(SMALL, service.read(copy + "/small/9"));
+        }
+    }
+
+    @Test
+    void exportArchive_UnknownLengths_EntriesComplete() throws ServiceException, IOException {
+        // given
+        DataObjectProperties properties = new DataObjectProperties();
+        properties.getArchive().setMaxBufferedEntrySize(DataSize.ofBytes(10));
+        ServiceMemoryImpl unknownLengths = new ServiceMemoryImpl(properties) {
+            @Override
+            public ObjectStream readStream(String resourceUri) throws NotFoundException, NotAnObjectException {
+                // Like a compressed object stored without its uncompressed length
+                ObjectStream object = super.readStream(resourceUri);
+                return new ObjectStream(object.content(), -1, object.contentType(), object.eTag());
+            }
+        };
+        unknownLengths.create(FOLDER + "/small", SMALL);
+        unknownLengths.create(FOLDER + "/big", BIG);
+        ArchiveExporter unknownLengthsExporter = new ArchiveExporter(unknownLengths, properties);
+
+        // when
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try {
+            unknownLengthsExporter.write(FOLDER, unknownLengthsExporter.list(FOLDER), ArchiveFormat.TAR, archive);
+        } finally {
+            unknownLengthsExporter.shutdown();
+        }
+        Map<String, ImportResult> results = importer.importArchive(FOLDER, new ByteArrayInputStream(archive.toByteArray()), ArchiveFormat.TAR);
+
+        // then
+        assertEquals(ImportResult.success(BIG.length), results.get(FOLDER + "/big"));
+        assertArrayEquals(BIG, service.read(FOLDER + "/big"));
+        assertArrayEquals(SMALL, service.read(FOLDER + "/small"));
+    }
+
+    private static byte[] tar(Map<String, byte[]> files) throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream out = new TarArchiveOutputStream(tar)) {
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                TarArchiveEntry entry = new TarArchiveEntry(file.getKey(), true);
+                entry.setSize(file.getValue().length);
+                write(out, entry, file.getValue());
+            }
+        }
+        return tar.toByteArray();
+    }
+
+    private static void write(ArchiveOutputStream out, ArchiveEntry entry, byte[] content) throws IOException {
+        out.putArchiveEntry(entry);
+        out.write(content);
+        out.closeArchiveEntry();
+    }
+}
@@ -0,0 +1,154 @@
+package org.heig.team04.dataobject;
+
+import org.heig.team04.dataobject.service.cache.ContentCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the ContentCache.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see ContentCache
+ */
+class ContentCacheTests {
+    private static final String BUCKET = "amt.team04.diduno.education";
+    private ContentCache cache;
+
+    @BeforeEach
+    public void setup() {
+        cache = new ContentCache(10, 4, Duration.ofMinutes(1), false);
+    }
+
+    @Test
+    void put_SmallObject_ServedFresh() {
+        // given
+        byte[] content = {1, 2, 3};
+
+        // when
+        cache.put(BUCKET, "testObject", cache.version(), content, "\"etag\"", "image/jpeg");
+        content[0] = 42;
+
+        // then
+        ContentCache.Entry entry = cache.getFresh(BUCKET, "testObject");
+        assertNotNull(entry);
+        assertArrayEquals(new byte[]{1, 2, 3}, entry.content());
+        assertEquals("\"etag\"", entry.eTag());
+        assertEquals(1, cache.hitCount());
+    }
+
+    @Test
+    void put_CompressedObject_ServedWithEncoding() {
+        // when
+        cache.put(BUCKET, "testObject", cache.version(), new byte[]{31, -117, 8}, "\"etag\"", "application/json", "gzip");
+        cache.put(BUCKET, "plainObject", cache.version(), new byte[]{1}, "\"etag\"", "application/json");
+
+        // then
+        assertEquals("gzip", cache.getFresh(BUCKET, "testObject").contentEncoding());
+        assertEquals(3, cache.getFresh(BUCKET, "testObject").size());
+        assertNull(cache.getFresh(BUCKET, "plainObject").contentEncoding());
+    }
+
+    @Test
+    void put_ObjectTooLarge_NotCached() {
+        // when
+        cache.put(BUCKET, "testObject", cache.version(), new byte[5], "\"etag\"", "image/jpeg");
+
+        // then
+        assertNull(cache.get(BUCKET, "testObject"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void put_OverBudget_LeastRecentlyUsedEvicted() {
+        // given
+        cache.put(BUCKET, "first", cache.version(), new byte[4], "\"1\"", "image/jpeg");
+        cache.put(BUCKET, "second", cache.version(), new byte[4], "\"2\"", "image/jpeg");
+        cache.get(BUCKET, "first");
+
+        // when
+        cache.put(BUCKET, "third", cache.version(), new byte[4], "\"3\"", "image/jpeg");
+
+        // then
+        assertNotNull(cache.get(BUCKET, "first"));
+        assertNull(cache.get(BUCKET, "second"));
+        assertNotNull(cache.get(BUCKET, "third"));
+        assertEquals(8, cache.size());
+    }
+
+    @Test
+    void put_ReadBeforeInvalidation_NotCached() {
+        // given
+        long version = cache.version();
+        cache.invalidate(BUCKET, "testObject");
+
+        // when
+        cache.put(BUCKET, "testObject", version, new byte[3], "\"etag\"", "image/jpeg");
+
+        // then
+        assertNull(cache.get(BUCKET, "testObject"));
+    }
+
+    @Test
+    void put_ReadBeforeInvalidationOfOtherObject_Cached() {
+        // given
+        long version = cache.version();
+        cache.invalidate(BUCKET, "otherObject");
+
+        // when
+        cache.put(BUCKET, "testObject", version, new byte[3], "\"etag\"", "image/jpeg");
+
+        // then
+        assertNotNull(cache.get(BUCKET, "testObject"));
+    }
+
+    @Test
+    void put_ReadBeforeInvalidationOfFolder_NotCached() {
+        // given
+        long version = cache.version();
+        cache.invalidate(BUCKET, "testFolder");
+
+        // when
+        cache.put(BUCKET, "testFolder/testObject", version, new byte[3], "\"1\"", "image/jpeg");
+        cache.put(BUCKET, "testFolderSibling", version, new byte[3], "\"2\"", "image/jpeg");
+
+        // then
+        assertNull(cache.get(BUCKET, "testFolder/testObject"));
+        assertNotNull(cache.get(BUCKET, "testFolderSibling"));
+    }
+
+    @Test
+    void invalidate_Folder_ChildrenForgotten() {
+        // given
+        cache.put(BUCKET, "testFolder/testObject", cache.version(), new byte[3], "\"1\"", "image/jpeg");
+        cache.put(BUCKET, "testFolderSibling", cache.version(), new byte[3], "\"2\"", "image/jpeg");
+
+        // when
+        cache.invalidate(BUCKET, "testFolder");
+
+        // then
+        assertNull(cache.get(BUCKET, "testFolder/testObject"));
+        assertNotNull(cache.get(BUCKET, "testFolderSibling"));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void getFresh_DueForRevalidation_NotServed() {
+        // given
+        cache = new ContentCache(10, 4, Duration.ZERO, false);
+        cache.put(BUCKET, "testObject", cache.version(), new byte[3], "\"etag\"", "image/jpeg");
+
+        // when
+        ContentCache.Entry entry = cache.getFresh(BUCKET, "testObject");
+
+        // then
+        assertNull(entry);
+        assertNotNull(cache.get(BUCKET, "testObject"));
+        assertEquals(1, cache.missCount());
+    }
+}
@@ -1,5 +1,6 @@
 package org.heig.team04.dataobject;
 
+import org.heig.team04.dataobject.service.PublishResult;
 import org.heig.team04.dataobject.service.ServiceAwsImpl;
 import org.heig.team04.dataobject.service.ServiceInterface;
 import org.heig.team04.dataobject.service.exceptions.*;
@@ -12,6 +13,11 @@ import org.junit.jupiter.api.function.Executable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -110,6 +116,20 @@ class DataObjectServiceTests {
         assertFalse(exists);
     }
 
+    @Test
+    void exists_ObjectIsPrefixOfExistingObject_DoesntExist() throws ExternalServiceException {
+        // given
+        assertTrue(SERVICE.exists(ROOT_OBJECT));
+        assertFalse(SERVICE.exists(ROOT_OBJECT + "/" + OBJECT));
+        assertDoesNotThrow(() -> SERVICE.create(ROOT_OBJECT + "/" + OBJECT, carImageBytes));
+
+        // when
+        boolean exists = SERVICE.exists(ROOT_OBJECT + "/" + OBJECT.substring(0, OBJECT.length() - 3));
+
+        // then
+        assertFalse(exists);
+    }
+
     @Test
     void create_FromUrl_RootObjectExistsNewObject_Uploaded() throws ExternalServiceException {
         // given
@@ -182,6 +202,30 @@ class DataObjectServiceTests {
         assertThrows(AlreadyExistsException.class, executable);
     }
 
+    @Test
+    void create_FromBytes_ConcurrentCreates_OnlyOneCreated() throws ExternalServiceException {
+        // given
+        assertTrue(SERVICE.exists(ROOT_OBJECT));
+        assertFalse(SERVICE.exists(ROOT_OBJECT + "/" + OBJECT));
+
+        // when
+        List<CompletableFuture<Boolean>> creations = List.of(carImageBytes, treeImageBytes).stream()
+                .map(content -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return SERVICE.create(ROOT_OBJECT + "/" + OBJECT, content);
+                    } catch (AlreadyExistsException e) {
+                        return false;
+                    } catch (ExternalServiceException e) {
+                        throw new CompletionException(e);
+                    }
+                }))
+                .toList();
+
+        // then
+        assertEquals(1, creations.stream().filter(CompletableFuture::join).count());
+        assertTrue(SERVICE.exists(ROOT_OBJECT + "/" + OBJECT));
+    }
+
     @Disabled("This test is disabled because it creates a new root object and we don't want to do that")
     @Test
     void create_FromBytes_RootObjectDoesntExist_Uploaded() throws ExternalServiceException {
@@ -297,6 +341,20 @@ class DataObjectServiceTests {
         assertNotNull(bytes);
     }
 
+    @Test
+    void read_RangeOfObject_RangeDownloaded() throws ExternalServiceException, NotAnObjectException, NotFoundException {
+        // given
+        assertTrue(SERVICE.exists(ROOT_OBJECT));
+        assertFalse(SERVICE.exists(ROOT_OBJECT + "/" + OBJECT));
+        assertDoesNotThrow(() -> SERVICE.create(ROOT_OBJECT + "/" + OBJECT, carImageBytes));
+
+        // when
+        byte[] bytes = SERVICE.read(ROOT_OBJECT + "/" + OBJECT, 10, 19);
+
+        // then
+        assertArrayEquals(Arrays.copyOfRange(carImageBytes, 10, 20), bytes);
+    }
+
     @Test
     void read_ObjectDoesntExist_ThrowException() throws ExternalServiceException {
         // given
@@ -338,6 +396,27 @@ class DataObjectServiceTests {
         assertThrows(NotFoundException.class, executable);
     }
 
+    @Test
+    void publish_ManyObjectsSomeDontExist_PublishedOrFailedPerObject() throws ExternalServiceException {
+        // given
+        assertTrue(SERVICE.exists(ROOT_OBJECT));
+        assertFalse(SERVICE.exists(ROOT_OBJECT + "/" + FOLDER));
+        assertDoesNotThrow(() -> SERVICE.create(ROOT_OBJECT + "/" + FOLDER + "/" + OBJECT, carImageBytes));
+        String existingUri = ROOT_OBJECT + "/" + FOLDER + "/" + OBJECT;
+        String missingUri = ROOT_OBJECT + "/" + FOLDER + "/bs" + OBJECT;
+
+        // when
+        Map<String, PublishResult> results = SERVICE.publish(List.of(existingUri, missingUri, ROOT_OBJECT + "/" + FOLDER), 10);
+
+        // then
+        assertEquals(3, results.size());
+        assertNotNull(results.get(existingUri).link());
+        assertNull(results.get(existingUri).error());
+        assertNull(results.get(missingUri).link());
+        assertNotNull(results.get(missingUri).error());
+        assertNotNull(results.get(ROOT_OBJECT + "/" + FOLDER).error());
+    }
+
     @Test
     void delete_SingleObjectExists_Removed() throws ExternalServiceException {
         // given
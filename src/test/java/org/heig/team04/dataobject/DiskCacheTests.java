@@ -0,0 +1,167 @@
+package org.heig.team04.dataobject;
+
+import org.heig.team04.dataobject.service.cache.DiskCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the DiskCache.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see DiskCache
+ */
+class DiskCacheTests {
+    private static final String BUCKET = "amt.team04.diduno.education";
+    private static final byte[] CONTENT = {1, 2, 3, 4, 5, 6};
+    @TempDir
+    Path directory;
+    private DiskCache cache;
+
+    @BeforeEach
+    public void setup() {
+        cache = new DiskCache(directory, 10, 2, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    void tee_FullyRead_Cached() throws IOException {
+        // given
+        InputStream content = cache.tee(BUCKET, "testObject", cache.version(), new ByteArrayInputStream(CONTENT), CONTENT.length, "\"etag\"", "video/mp4");
+
+        // when
+        try (content) {
+            content.readAllBytes();
+        }
+
+        // then
+        DiskCache.Entry entry = cache.getFresh(BUCKET, "testObject");
+        assertNotNull(entry);
+        assertArrayEquals(CONTENT, entry.readAll());
+        assertEquals(CONTENT.length, cache.size());
+    }
+
+    @Test
+    void tee_PartiallyRead_NothingLeft() throws IOException {
+        // given
+        InputStream content = cache.tee(BUCKET, "testObject", cache.version(), new ByteArrayInputStream(CONTENT), CONTENT.length, "\"etag\"", "video/mp4");
+
+        // when
+        try (content) {
+            content.read(new byte[3]);
+        }
+
+        // then
+        assertNull(cache.get(BUCKET, "testObject"));
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    void tee_InvalidatedDuringDownload_NotCached() throws IOException {
+        // given
+        InputStream content = cache.tee(BUCKET, "testObject", cache.version(), new ByteArrayInputStream(CONTENT), CONTENT.length, "\"etag\"", "video/mp4");
+        content.readAllBytes();
+
+        // when
+        cache.invalidate(BUCKET, "testObject");
+        content.close();
+
+        // then
+        assertNull(cache.get(BUCKET, "testObject"));
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    void tee_OtherObjectInvalidatedDuringDownload_Cached() throws IOException {
+        // given
+        InputStream content = cache.tee(BUCKET, "testFolder/testObject", cache.version(), new ByteArrayInputStream(CONTENT), CONTENT.length, "\"etag\"", "video/mp4");
+        content.readAllBytes();
+
+        // when
+        cache.invalidate(BUCKET, "testFolderSibling");
+        content.close();
+
+        // then
+        assertNotNull(cache.get(BUCKET, "testFolder/testObject"));
+    }
+
+    @Test
+    void invalidate_Folder_ChildFilesDeleted() {
+        // given
+        cache.put(BUCKET, "testFolder/testObject", cache.version(), new byte[4], "\"1\"", "video/mp4");
+        cache.put(BUCKET, "testFolderSibling", cache.version(), new byte[4], "\"2\"", "video/mp4");
+
+        // when
+        cache.invalidate(BUCKET, "testFolder");
+
+        // then
+        assertNull(cache.get(BUCKET, "testFolder/testObject"));
+        assertNotNull(cache.get(BUCKET, "testFolderSibling"));
+        assertEquals(4, cache.size());
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    void put_OverBudget_LeastRecentlyUsedFileDeleted() {
+        // given
+        cache.put(BUCKET, "first", cache.version(), CONTENT, "\"1\"", "video/mp4");
+
+        // when
+        cache.put(BUCKET, "second", cache.version(), CONTENT, "\"2\"", "video/mp4");
+
+        // then
+        assertNull(cache.get(BUCKET, "first"));
+        assertNotNull(cache.get(BUCKET, "second"));
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    void put_SmallObject_LeftToMemoryCache() {
+        // when
+        cache.put(BUCKET, "testObject", cache.version(), new byte[2], "\"etag\"", "video/mp4");
+
+        // then
+        assertNull(cache.get(BUCKET, "testObject"));
+    }
+
+    @Test
+    void open_Region_TransfersOnlyRegion() throws IOException {
+        // given
+        cache.put(BUCKET, "testObject", cache.version(), CONTENT, "\"etag\"", "video/mp4");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        try (InputStream region = cache.get(BUCKET, "testObject").open(2, 3)) {
+            region.transferTo(out);
+        }
+
+        // then
+        assertArrayEquals(new byte[]{3, 4, 5}, out.toByteArray());
+    }
+
+    private long countFiles() {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).count();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package org.heig.team04.dataobject;
+
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.CreateBucketResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.DeleteBucketRequest;
+import software.amazon.awssdk.services.s3.model.DeleteBucketResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.DeletedObject;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.HeadBucketResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in of the S3 service, implementing the requests the data object service sends.
+ * It answers without any network round trip and counts the requests it receives,
+ * so that the benchmarks measure the cost of the service itself and its number of S3 calls per operation,
+ * and the tests check the S3 implementation of the service without an AWS account.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ */
+public class InMemoryS3Client implements S3Client {
+    private final Map<String, NavigableMap<String, StoredObject>> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+
+    private record StoredObject(byte[] content, String eTag, Instant lastModified, String contentEncoding, Map<String, String> metadata) {
+    }
+
+    /**
+     * @return the number of requests received since the last call, which resets the count
+     */
+    public long takeCalls() {
+        return calls.getAndSet(0);
+    }
+
+    @Override
+    public String serviceName() {
+        return "s3";
+    }
+
+    @Override
+    public void close() {
+        buckets.clear();
+        uploads.clear();
+    }
+
+    @Override
+    public HeadBucketResponse headBucket(HeadBucketRequest request) {
+        bucket(request.bucket());
+        return HeadBucketResponse.builder().build();
+    }
+
+    @Override
+    public CreateBucketResponse createBucket(CreateBucketRequest request) {
+        calls.incrementAndGet();
+        buckets.putIfAbsent(request.bucket(), new ConcurrentSkipListMap<>());
+        return CreateBucketResponse.builder().build();
+    }
+
+    @Override
+    public DeleteBucketResponse deleteBucket(DeleteBucketRequest request) {
+        bucket(request.bucket());
+        buckets.remove(request.bucket());
+        return DeleteBucketResponse.builder().build();
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest request) {
+        StoredObject object = object(request.bucket(), request.key());
+        if (request.ifMatch() != null && !object.eTag.equals(request.ifMatch())) {
+            throw error(412, "PreconditionFailed");
+        }
+        return HeadObjectResponse.builder()
+                .contentLength((long) object.content.length)
+                .eTag(object.eTag)
+                .lastModified(object.lastModified)
+                .contentEncoding(object.contentEncoding)
+                .metadata(object.metadata)
+                .build();
+    }
+
+    @Override
+    public <T> T getObject(GetObjectRequest request, ResponseTransformer<GetObjectResponse, T> transformer) {
+        StoredObject object = object(request.bucket(), request.key());
+        if (object.eTag.equals(request.ifNoneMatch())) {
+            throw error(304, "Not Modified");
+        }
+
+        int start = 0;
+        int end = object.content.length - 1;
+        if (request.range() != null) {
+            String[] bounds = request.range().substring("bytes=".length()).split("-");
+            start = Integer.parseInt(bounds[0]);
+            end = Math.min(end, Integer.parseInt(bounds[1]));
+        }
+
+        GetObjectResponse response = GetObjectResponse.builder()
+                .contentLength((long) end - start + 1)
+                .contentType("binary/octet-stream")
+                .eTag(object.eTag)
+                .lastModified(object.lastModified)
+                .contentEncoding(object.contentEncoding)
+                .metadata(object.metadata)
+                .build();
+        try {
+            ByteArrayInputStream content = new ByteArrayInputStream(object.content, start, end - start + 1);
+            return transformer.transform(response, AbortableInputStream.create(content));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request) {
+        return getObject(request, ResponseTransformer.toInputStream());
+    }
+
+    @Override
+    public PutObjectResponse putObject(PutObjectRequest request, RequestBody body) {
+        byte[] content;
+        try (var stream = body.contentStreamProvider().newStream()) {
+            content = stream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return PutObjectResponse.builder().eTag(store(request, request.bucket(), request.key(), content, request.contentEncoding(), request.metadata())).build();
+    }
+
+    @Override
+    public CopyObjectResponse copyObject(CopyObjectRequest request) {
+        StoredObject source = object(request.sourceBucket(), request.sourceKey());
+        if (request.copySourceIfMatch() != null && !source.eTag.equals(request.copySourceIfMatch())) {
+            throw error(412, "PreconditionFailed");
+        }
+        String eTag = store(request, request.destinationBucket(), request.destinationKey(), source.content, source.contentEncoding, source.metadata);
+        return CopyObjectResponse.builder().copyObjectResult(result -> result.eTag(eTag)).build();
+    }
+
+    @Override
+    public DeleteObjectResponse deleteObject(DeleteObjectRequest request) {
+        bucket(request.bucket()).remove(request.key());
+        return DeleteObjectResponse.builder().build();
+    }
+
+    @Override
+    public DeleteObjectsResponse deleteObjects(DeleteObjectsRequest request) {
+        NavigableMap<String, StoredObject> objects = bucket(request.bucket());
+        List<DeletedObject> deleted = new ArrayList<>();
+        for (ObjectIdentifier object : request.delete().objects()) {
+            objects.remove(object.key());
+            deleted.add(DeletedObject.builder().key(object.key()).build());
+        }
+        return DeleteObjectsResponse.builder().deleted(deleted).build();
+    }
+
+    @Override
+    public ListObjectsV2Iterable listObjectsV2Paginator(ListObjectsV2Request request) {
+        return new ListObjectsV2Iterable(this, request);
+    }
+
+    @Override
+    public ListObjectsV2Response listObjectsV2(ListObjectsV2Request request) {
+        NavigableMap<String, StoredObject> objects = bucket(request.bucket());
+        String prefix = request.prefix() != null ? request.prefix() : "";
+        String delimiter = request.delimiter();
+        int maxKeys = request.maxKeys() != null ? request.maxKeys() : 1000;
+        String after = request.continuationToken() != null ? request.continuationToken() : request.startAfter();
+
+        List<S3Object> contents = new ArrayList<>();
+        List<CommonPrefix> commonPrefixes = new ArrayList<>();
+        String lastPrefix = after != null && delimiter != null && after.endsWith(delimiter) ? after : null;
+        String last = null;
+        boolean truncated = false;
+
+        NavigableMap<String, StoredObject> listed = after != null && after.compareTo(prefix) >= 0
+                ? objects.tailMap(after, false)
+                : objects.tailMap(prefix, true);
+        for (Map.Entry<String, StoredObject> entry : listed.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            if (lastPrefix != null && key.startsWith(lastPrefix)) {
+                continue;
+            }
+            if (contents.size() + commonPrefixes.size() == maxKeys) {
+                truncated = true;
+                break;
+            }
+
+            int split = delimiter != null ? key.indexOf(delimiter, prefix.length()) : -1;
+            if (split >= 0) {
+                lastPrefix = key.substring(0, split + delimiter.length());
+                commonPrefixes.add(CommonPrefix.builder().prefix(lastPrefix).build());
+                last = lastPrefix;
+            } else {
+                StoredObject object = entry.getValue();
+                contents.add(S3Object.builder()
+                        .key(key)
+                        .size((long) object.content.length)
+                        .eTag(object.eTag)
+                        .lastModified(object.lastModified)
+                        .build());
+                last = key;
+            }
+        }
+
+        return ListObjectsV2Response.builder()
+                .contents(contents)
+                .commonPrefixes(commonPrefixes)
+                .keyCount(contents.size() + commonPrefixes.size())
+                .isTruncated(truncated)
+                .nextContinuationToken(truncated ? last : null)
+                .build();
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+        bucket(request.bucket());
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new ConcurrentHashMap<>());
+        return CreateMultipartUploadResponse.builder().uploadId(uploadId).build();
+    }
+
+    @Override
+    public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody body) {
+        calls.incrementAndGet();
+        try (var stream = body.contentStreamProvider().newStream()) {
+            byte[] part = stream.readAllBytes();
+            uploads.get(request.uploadId()).put(request.partNumber(), part);
+            return UploadPartResponse.builder().eTag(eTagOf(part)).build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        Map<Integer, byte[]> parts = uploads.remove(request.uploadId());
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        ByteArrayOutputStream partDigests = new ByteArrayOutputStream();
+        for (CompletedPart part : request.multipartUpload().parts()) {
+            content.writeBytes(parts.get(part.partNumber()));
+            partDigests.writeBytes(md5(parts.get(part.partNumber())));
+        }
+
+        // Like S3, the ETag of the object is the MD5 of the MD5s of its parts followed by their count
+        String eTag = "\"" + HexFormat.of().formatHex(md5(partDigests.toByteArray())) + "-" + request.multipartUpload().parts().size() + "\"";
+        return CompleteMultipartUploadResponse.builder()
+                .eTag(store(request, request.bucket(), request.key(), content.toByteArray(), eTag, null, Map.of()))
+                .build();
+    }
+
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+        calls.incrementAndGet();
+        uploads.remove(request.uploadId());
+        return AbortMultipartUploadResponse.builder().build();
+    }
+
+    /**
+     * Store an object, honouring the If-None-Match and If-Match headers of the request.
+     */
+    private String store(AwsRequest request, String bucketName, String key, byte[] content, String contentEncoding, Map<String, String> metadata) {
+        return store(request, bucketName, key, content, eTagOf(content), contentEncoding, metadata);
+    }
+
+    private String store(AwsRequest request, String bucketName, String key, byte[] content, String eTag, String contentEncoding, Map<String, String> metadata) {
+        NavigableMap<String, StoredObject> objects = bucket(bucketName);
+        Map<String, List<String>> headers = request.overrideConfiguration()
+                .map(configuration -> configuration.headers())
+                .orElse(Map.of());
+        StoredObject stored = new StoredObject(content, eTag, Instant.now(), contentEncoding, metadata);
+
+        if (headers.containsKey("If-None-Match")) {
+            if (objects.putIfAbsent(key, stored) != null) {
+                throw error(412, "PreconditionFailed");
+            }
+        } else if (headers.containsKey("If-Match")) {
+            StoredObject current = objects.get(key);
+            if (current == null) {
+                throw NoSuchKeyException.builder().statusCode(404).message("NoSuchKey").build();
+            }
+            if (!current.eTag.equals(headers.get("If-Match").get(0)) || !objects.replace(key, current, stored)) {
+                throw error(412, "PreconditionFailed");
+            }
+        } else {
+            objects.put(key, stored);
+        }
+        return stored.eTag;
+    }
+
+    private NavigableMap<String, StoredObject> bucket(String bucketName) {
+        calls.incrementAndGet();
+        NavigableMap<String, StoredObject> objects = buckets.get(bucketName);
+        if (objects == null) {
+            throw NoSuchBucketException.builder().statusCode(404).message("NoSuchBucket").build();
+        }
+        return objects;
+    }
+
+    private StoredObject object(String bucketName, String key) {
+        StoredObject object = bucket(bucketName).get(key);
+        if (object == null) {
+            throw NoSuchKeyException.builder().statusCode(404).message("NoSuchKey").build();
+        }
+        return object;
+    }
+
+    private static AwsServiceException error(int statusCode, String message) {
+        return S3Exception.builder().statusCode(statusCode).message(message).build();
+    }
+
+    private static String eTagOf(byte[] content) {
+        return "\"" + HexFormat.of().formatHex(md5(content)) + "\"";
+    }
+
+    private static byte[] md5(byte[] content) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
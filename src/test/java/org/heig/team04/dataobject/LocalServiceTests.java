@@ -0,0 +1,205 @@
+package org.heig.team04.dataobject;
+
+import org.heig.team04.dataobject.config.DataObjectProperties;
+import org.heig.team04.dataobject.service.ListEntry;
+import org.heig.team04.dataobject.service.ObjectStream;
+import org.heig.team04.dataobject.service.ResourceType;
+import org.heig.team04.dataobject.service.ServiceFileSystemImpl;
+import org.heig.team04.dataobject.service.ServiceInterface;
+import org.heig.team04.dataobject.service.ServiceMemoryImpl;
+import org.heig.team04.dataobject.service.exceptions.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the in-memory and local filesystem implementations of the service,
+ * which must behave like the S3 implementation.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see ServiceMemoryImpl
+ * @see ServiceFileSystemImpl
+ */
+class LocalServiceTests {
+    private static final String BUCKET = "amt.team04.diduno.education";
+    private static final String FOLDER = BUCKET + "/testFolder";
+    private static final String OBJECT = FOLDER + "/testObject";
+    private static final byte[] CONTENT = {1, 2, 3, 4, 5, 6};
+    @TempDir
+    static Path directory;
+
+    static Stream<ServiceInterface> services() {
+        DataObjectProperties properties = new DataObjectProperties();
+        properties.getLocal().setRootDirectory(directory.resolve(String.valueOf(System.nanoTime())));
+        return Stream.of(new ServiceMemoryImpl(properties), new ServiceFileSystemImpl(properties));
+    }
+
+    @ParameterizedTest
+    @MethodSource("services")
+    void create_NewObject_BucketAndFolderCreated(ServiceInterface service) throws ServiceException {
+        // when
+        service.create(OBJECT, CONTENT);
+
+        // then
+        assertArrayEquals(CONTENT, service.read(OBJECT));
+        assertTrue(service.exists(BUCKET));
+        assertTrue(service.exists(FOLDER));
+        assertThrows(NotAnObjectException.class, () -> service.read(FOLDER));
+    }
+
+    @ParameterizedTest
+    @MethodSource("services")
+    void create_ExistingObjectOrFolder_AlreadyExists(ServiceInterface service) throws ServiceException {
+        // given
+        service.create(OBJECT, CONTENT);
+
+        // then
+        assertThrows(AlreadyExistsException.class, () -> service.create(OBJECT, CONTENT));
+        assertThrows(AlreadyExistsException.class, () -> service.create(FOLDER, new ByteArrayInputStream(CONTENT)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("services")
+    void readStream_Range_OnlyRangeRead(ServiceInterface service) throws ServiceException, IOException {
+        // given
+        service.create(OBJECT, new ByteArrayInputStream(CONTENT));
+
+        // when
+        byte[] range;
+        try (ObjectStream stream = service.readStream(OBJECT, 2, 10)) {
+            range = stream.content().readAllBytes();
+        }
+
+        // then
+        assertArrayEquals(new byte[]{3, 4, 5, 6}, range);
+        assertEquals(CONTENT.length, service.stat(OBJECT).size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("services")
+    void update_ExistingObject_ContentAndETagChanged(ServiceInterface service) throws ServiceException {
+        // given
+        service.create(OBJECT, CONTENT);
+        String eTag = service.stat(OBJECT).eTag();
+
+        // when
+        service.update(OBJECT, new ByteArrayInputStream(new byte[]{7}));
+
+        // then
+        assertArrayEquals(new byte[]{7}, service.read(OBJECT));
+        assertNotEquals(eTag, service.stat(OBJECT).eTag());
+        assertThrows(NotFoundException.class, () -> service.update(BUCKET + "/missing", CONTENT));
+    }
+
+    @ParameterizedTest
+    @MethodSource("services")
+    void delete_LastObjectOfFolder_FolderGoneBucketKept(ServiceInterface service) throws ServiceException {
+        // given
+        service.create(OBJECT, CONTENT);
+
+        // when
+        service.delete(OBJECT, false);
+
+        // then
+        assertFalse(service.exists(OBJECT));
+        assertFalse(service.exists(FOLDER));
+        assertTrue(service.exists(BUCKET));
+    }
+
+    @ParameterizedTest
+    @MethodSource("services")
+    void delete_FolderRecursive_AllObjectsDeleted(ServiceInterface service) throws ServiceException {
+        // given
+        service.create(OBJECT, CONTENT);
+        service.create(FOLDER + "/sub/testObject", CONTENT);
+        service.create(FOLDER + "Sibling", CONTENT);
+
+        // when
+        assertThrows(DeleteCollectionNoRecursiveException.class, () -> service.delete(FOLDER, false));
+        service.delete(FOLDER, true);
+
+        // then
+        assertFalse(service.exists(FOLDER + "/sub/testObject"));
+        assertFalse(service.exists(FOLDER));
+        assertTrue(service.exists(FOLDER + "Sibling"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("services")
+    void exists_KeyLeavingItsBucket_Missing(ServiceInterface service) throws ServiceException {
+        // given
+        service.create(OBJECT, CONTENT);
+
+        // then
+        assertFalse(service.exists("other/../" + OBJECT.substring(BUCKET.length() + 1)));
+        assertFalse(service.exists(BUCKET + "/testFolder/../testFolder/testObject"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("services")
+    void list_Folder_SortedChildrenAndResumable(ServiceInterface service) throws ServiceException {
+        // given
+        service.create(FOLDER + "/b", CONTENT);
+        service.create(FOLDER + "/a/one", CONTENT);
+        service.create(FOLDER + "/a/two", CONTENT);
+        service.create(FOLDER + "/a.txt", CONTENT);
+        service.create(FOLDER + "Sibling", CONTENT);
+
+        // when
+        List<ListEntry> children;
+        List<ListEntry> all;
+        List<ListEntry> afterFolder;
+        try (Stream<ListEntry> entries = service.list(FOLDER, false, null)) {
+            children = entries.toList();
+        }
+        try (Stream<ListEntry> entries = service.list(FOLDER, true, null)) {
+            all = entries.toList();
+        }
+        try (Stream<ListEntry> entries = service.list(FOLDER, false, children.get(1).position())) {
+            afterFolder = entries.toList();
+        }
+
+        // then
+        assertEquals(List.of(FOLDER + "/a.txt", FOLDER + "/a", FOLDER + "/b"), children.stream().map(ListEntry::uri).toList());
+        assertEquals(ResourceType.FOLDER, children.get(1).type());
+        assertEquals(CONTENT.length, children.get(0).size());
+        assertEquals(List.of(FOLDER + "/a.txt", FOLDER + "/a/one", FOLDER + "/a/two", FOLDER + "/b"), all.stream().map(ListEntry::uri).toList());
+        assertEquals(List.of(FOLDER + "/b"), afterFolder.stream().map(ListEntry::uri).toList());
+        assertThrows(NotACollectionException.class, () -> service.list(FOLDER + "/b", false, null));
+        assertThrows(NotFoundException.class, () -> service.list(BUCKET + "/missing", false, null));
+    }
+
+    @ParameterizedTest
+    @MethodSource("services")
+    void copyAndMove_Folder_ObjectsAtNewLocation(ServiceInterface service) throws ServiceException {
+        // given
+        service.create(FOLDER + "/a/one", CONTENT);
+        service.create(FOLDER + "/two", CONTENT);
+
+        // when
+        service.copy(FOLDER, BUCKET + "/copy", true);
+        service.move(FOLDER, BUCKET + "/moved", true);
+        service.move(BUCKET + "/moved/two", BUCKET + "/three", false);
+
+        // then
+        assertArrayEquals(CONTENT, service.read(BUCKET + "/copy/a/one"));
+        assertArrayEquals(CONTENT, service.read(BUCKET + "/moved/a/one"));
+        assertArrayEquals(CONTENT, service.read(BUCKET + "/three"));
+        assertFalse(service.exists(FOLDER));
+        assertFalse(service.exists(BUCKET + "/moved/two"));
+        assertThrows(CopyCollectionNoRecursiveException.class, () -> service.copy(BUCKET + "/copy", BUCKET + "/other", false));
+        assertThrows(AlreadyExistsException.class, () -> service.copy(BUCKET + "/three", BUCKET + "/copy/a/one", false));
+        assertThrows(CopyIntoItselfException.class, () -> service.copy(BUCKET + "/copy", BUCKET + "/copy/a/inner", true));
+        assertThrows(NotFoundException.class, () -> service.move(FOLDER, BUCKET + "/other", true));
+    }
+}
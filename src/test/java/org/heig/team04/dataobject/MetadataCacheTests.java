@@ -0,0 +1,111 @@
+package org.heig.team04.dataobject;
+
+import org.heig.team04.dataobject.service.ResourceInfo;
+import org.heig.team04.dataobject.service.ResourceType;
+import org.heig.team04.dataobject.service.cache.MetadataCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the MetadataCache.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see MetadataCache
+ */
+class MetadataCacheTests {
+    private static final String BUCKET = "amt.team04.diduno.education";
+    private MetadataCache cache;
+
+    @BeforeEach
+    public void setup() {
+        cache = new MetadataCache(3, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void get_UnknownResource_MissCounted() {
+        // when
+        ResourceInfo info = cache.get(BUCKET, "testObject");
+
+        // then
+        assertNull(info);
+        assertEquals(0, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    void objectWritten_NestedObject_ParentsAreFolders() {
+        // when
+        cache.objectWritten(BUCKET, "testFolder/sub/testObject", 42, "\"etag\"");
+
+        // then
+        assertEquals(Boolean.TRUE, cache.getBucket(BUCKET));
+        assertEquals(ResourceType.FOLDER, cache.get(BUCKET, "testFolder").type());
+        assertEquals(ResourceType.FOLDER, cache.get(BUCKET, "testFolder/sub").type());
+        assertEquals(ResourceInfo.object(42, "\"etag\""), cache.get(BUCKET, "testFolder/sub/testObject"));
+        assertEquals(4, cache.hitCount());
+    }
+
+    @Test
+    void deleted_Folder_MissingAndChildrenAndParentsForgotten() {
+        // given
+        cache = new MetadataCache(10, Duration.ofMinutes(1));
+        cache.objectWritten(BUCKET, "testFolder/sub/testObject", 42, "\"etag\"");
+        cache.put(BUCKET, "testFolderBis", ResourceInfo.object(1, "\"etag\""));
+
+        // when
+        cache.deleted(BUCKET, "testFolder/sub");
+
+        // then
+        assertNull(cache.get(BUCKET, "testFolder"));
+        assertEquals(ResourceInfo.missing(), cache.get(BUCKET, "testFolder/sub"));
+        assertNull(cache.get(BUCKET, "testFolder/sub/testObject"));
+        assertEquals(ResourceType.OBJECT, cache.get(BUCKET, "testFolderBis").type());
+    }
+
+    @Test
+    void put_MoreThanMaxEntries_EldestEvicted() {
+        // when
+        cache.put(BUCKET, "a", ResourceInfo.object(1, "\"etag\""));
+        cache.put(BUCKET, "b", ResourceInfo.object(1, "\"etag\""));
+        cache.put(BUCKET, "c", ResourceInfo.object(1, "\"etag\""));
+        cache.put(BUCKET, "d", ResourceInfo.object(1, "\"etag\""));
+
+        // then
+        assertNull(cache.get(BUCKET, "a"));
+        assertEquals(ResourceType.OBJECT, cache.get(BUCKET, "d").type());
+    }
+
+    @Test
+    void get_ExpiredEntry_Missing() {
+        // given
+        cache = new MetadataCache(10, Duration.ZERO);
+        cache.put(BUCKET, "testObject", ResourceInfo.object(1, "\"etag\""));
+
+        // when
+        ResourceInfo info = cache.get(BUCKET, "testObject");
+
+        // then
+        assertNull(info);
+    }
+
+    @Test
+    void deleted_ListenerRegistered_ListenerNotified() {
+        // given
+        List<String> changes = new ArrayList<>();
+        cache.addChangeListener((bucketName, key) -> changes.add(bucketName + "/" + key));
+
+        // when
+        cache.deleted(BUCKET, "testFolder");
+
+        // then
+        assertEquals(List.of(BUCKET + "/testFolder"), changes);
+    }
+}
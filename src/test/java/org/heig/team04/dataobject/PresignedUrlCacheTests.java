@@ -0,0 +1,71 @@
+package org.heig.team04.dataobject;
+
+import org.heig.team04.dataobject.service.cache.PresignedUrlCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the PresignedUrlCache.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see PresignedUrlCache
+ */
+class PresignedUrlCacheTests {
+    private static final String BUCKET = "amt.team04.diduno.education";
+    private PresignedUrlCache cache;
+
+    @BeforeEach
+    public void setup() {
+        cache = new PresignedUrlCache(10, 0.5);
+    }
+
+    @Test
+    void invalidate_Object_AllTtlsForgotten() {
+        // given
+        cache.put(BUCKET, "testObject", 60, "https://link/60");
+        cache.put(BUCKET, "testObject", 3600, "https://link/3600");
+        cache.put(BUCKET, "testObjectSibling", 60, "https://sibling");
+
+        // when
+        cache.invalidate(BUCKET, "testObject");
+
+        // then
+        assertNull(cache.get(BUCKET, "testObject", 60));
+        assertNull(cache.get(BUCKET, "testObject", 3600));
+        assertEquals("https://sibling", cache.get(BUCKET, "testObjectSibling", 60));
+    }
+
+    @Test
+    void invalidate_Folder_ChildrenForgotten() {
+        // given
+        cache.put(BUCKET, "testFolder/testObject", 60, "https://child");
+        cache.put(BUCKET, "testFolderSibling", 60, "https://sibling");
+        cache.put("other.bucket", "testFolder/testObject", 60, "https://other");
+
+        // when
+        cache.invalidate(BUCKET, "testFolder");
+
+        // then
+        assertNull(cache.get(BUCKET, "testFolder/testObject", 60));
+        assertEquals("https://sibling", cache.get(BUCKET, "testFolderSibling", 60));
+        assertEquals("https://other", cache.get("other.bucket", "testFolder/testObject", 60));
+    }
+
+    @Test
+    void invalidate_Bucket_AllUrlsOfBucketForgotten() {
+        // given
+        cache.put(BUCKET, "testFolder/testObject", 60, "https://child");
+        cache.put(BUCKET + ".other", "testObject", 60, "https://other");
+
+        // when
+        cache.invalidate(BUCKET, null);
+
+        // then
+        assertNull(cache.get(BUCKET, "testFolder/testObject", 60));
+        assertEquals("https://other", cache.get(BUCKET + ".other", "testObject", 60));
+    }
+}
@@ -0,0 +1,375 @@
+package org.heig.team04.dataobject;
+
+import org.heig.team04.dataobject.config.DataObjectProperties;
+import org.heig.team04.dataobject.service.ObjectStream;
+import org.heig.team04.dataobject.service.ResourceInfo;
+import org.heig.team04.dataobject.service.ServiceAwsImpl;
+import org.heig.team04.dataobject.service.cache.MetadataCache;
+import org.heig.team04.dataobject.service.exceptions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the S3 implementation of the service against an in-process S3 service,
+ * for the behaviours that depend on how the S3 service answers the requests.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see ServiceAwsImpl
+ * @see InMemoryS3Client
+ */
+class ServiceAwsTests {
+    private static final String BUCKET = "amt.team04.diduno.education";
+    private static final String OBJECT = BUCKET + "/testObject";
+    private static final String TARGET = BUCKET + "/testTarget";
+    private static final byte[] CONTENT = {1, 2, 3, 4, 5, 6};
+    private static final String INDEX_BUCKET = "amt.team04.diduno.education.index";
+    private static final byte[] TEXT = "testContent ".repeat(1000).getBytes(StandardCharsets.UTF_8);
+    private ServiceAwsImpl service;
+
+    private void start(InMemoryS3Client s3, DataObjectProperties properties) {
+        properties.getCache().setDiskMaxSize(DataSize.ofBytes(0));
+        // Signing is done locally, the credentials are never sent anywhere
+        S3Presigner presigner = S3Presigner.builder()
+                .region(Region.EU_WEST_2)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+                .build();
+        service = new ServiceAwsImpl(properties,
+                new MetadataCache(properties.getCache().getMetadataMaxEntries(), properties.getCache().getMetadataTtl()),
+                s3, presigner);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void copy_TargetCreatedConcurrently_AlreadyExists() throws ServiceException {
+        // given
+        byte[] otherContent = {6, 5, 4};
+        InMemoryS3Client s3 = new InMemoryS3Client() {
+            @Override
+            public CopyObjectResponse copyObject(CopyObjectRequest request) {
+                // Another client creates the target between the checks of the copy and its request
+                putObject(builder -> builder.bucket(BUCKET).key("testTarget"), RequestBody.fromBytes(otherContent));
+                return super.copyObject(request);
+            }
+        };
+        start(s3, new DataObjectProperties());
+        service.create(OBJECT, CONTENT);
+
+        // when
+        Executable executable = () -> service.copy(OBJECT, TARGET, false);
+
+        // then
+        assertThrows(AlreadyExistsException.class, executable);
+        assertArrayEquals(otherContent, service.read(TARGET));
+    }
+
+    @Test
+    void create_CompressedPrefix_StoredCompressedAndReadDecompressed() throws ServiceException, IOException {
+        // given
+        InMemoryS3Client s3 = new InMemoryS3Client();
+        start(s3, compressing());
+
+        // when
+        service.create(OBJECT, TEXT);
+
+        // then
+        HeadObjectResponse head = s3.headObject(builder -> builder.bucket(BUCKET).key("testObject"));
+        assertEquals("gzip", head.contentEncoding());
+        assertTrue(head.contentLength() < TEXT.length);
+        assertArrayEquals(TEXT, service.read(OBJECT));
+        try (ObjectStream stream = service.readStream(OBJECT)) {
+            assertNull(stream.contentEncoding());
+            assertArrayEquals(TEXT, stream.content().readAllBytes());
+        }
+        try (ObjectStream stream = service.readEncoded(OBJECT)) {
+            assertEquals("gzip", stream.contentEncoding());
+            assertEquals(head.contentLength(), stream.contentLength());
+            assertArrayEquals(TEXT, new GZIPInputStream(stream.content()).readAllBytes());
+        }
+    }
+
+    @Test
+    void read_RangeOfCompressedObject_DecompressedBytes() throws ServiceException {
+        // given
+        InMemoryS3Client s3 = new InMemoryS3Client();
+        start(s3, compressing());
+        service.create(OBJECT, TEXT);
+
+        // when
+        byte[] range = service.read(OBJECT, 12, 22);
+
+        // then
+        assertArrayEquals("testContent".getBytes(StandardCharsets.UTF_8), range);
+        assertArrayEquals(new byte[]{TEXT[TEXT.length - 1]}, service.read(OBJECT, TEXT.length - 1, TEXT.length + 100));
+    }
+
+    @Test
+    void read_RangeOfCompressedObjectListed_DecompressedBytes() throws ServiceException {
+        // given
+        InMemoryS3Client s3 = new InMemoryS3Client();
+        start(s3, compressing());
+        service.create(OBJECT, TEXT);
+        service.create(TARGET, CONTENT);
+        // Resolved together with its sibling by a listing, which does not tell the uncompressed length of the object
+        service.publish(List.of(OBJECT, TARGET), 60);
+
+        // when
+        byte[] range = service.read(OBJECT, 0, 10);
+
+        // then
+        assertArrayEquals("testContent".getBytes(StandardCharsets.UTF_8), range);
+    }
+
+    @Test
+    void stat_CompressedObject_StoredSizeAndContentLength() throws ServiceException {
+        // given
+        InMemoryS3Client s3 = new InMemoryS3Client();
+        start(s3, compressing());
+        service.create(OBJECT, TEXT);
+        long storedSize = s3.headObject(builder -> builder.bucket(BUCKET).key("testObject")).contentLength();
+
+        // when
+        ResourceInfo written = service.stat(OBJECT);
+        service.shutdown();
+        start(s3, compressing());
+        ResourceInfo resolved = service.stat(OBJECT);
+
+        // then
+        for (ResourceInfo info : List.of(written, resolved)) {
+            assertEquals(storedSize, info.size());
+            assertEquals(TEXT.length, info.contentLength());
+            assertTrue(info.isCompressed());
+        }
+    }
+
+    @Test
+    void create_IncompressibleContent_StoredAsIs() throws ServiceException {
+        // given
+        InMemoryS3Client s3 = new InMemoryS3Client();
+        start(s3, compressing());
+        byte[] content = new byte[TEXT.length];
+        new Random(42).nextBytes(content);
+
+        // when
+        service.create(OBJECT, content);
+
+        // then
+        assertNull(s3.headObject(builder -> builder.bucket(BUCKET).key("testObject")).contentEncoding());
+        assertArrayEquals(content, service.read(OBJECT));
+        assertFalse(service.stat(OBJECT).isCompressed());
+    }
+
+    @Test
+    void create_ContentAlreadyStored_Copied() throws ServiceException {
+        // given
+        CopyCountingS3Client s3 = new CopyCountingS3Client();
+        start(s3, deduplicating());
+        service.create(OBJECT, CONTENT);
+
+        // when
+        service.create(TARGET, CONTENT);
+
+        // then
+        assertEquals(1, s3.copies.get());
+        assertArrayEquals(CONTENT, service.read(TARGET));
+    }
+
+    @Test
+    void create_IndexEntryOutdated_ContentSent() throws ServiceException {
+        // given
+        byte[] otherContent = {6, 5, 4};
+        CopyCountingS3Client s3 = new CopyCountingS3Client();
+        start(s3, deduplicating());
+        service.create(OBJECT, CONTENT);
+        service.update(OBJECT, otherContent);
+
+        // when
+        service.create(TARGET, CONTENT);
+
+        // then
+        assertEquals(0, s3.copies.get());
+        assertArrayEquals(CONTENT, service.read(TARGET));
+        assertArrayEquals(otherContent, service.read(OBJECT));
+    }
+
+    @Test
+    void create_IndexEntryNamesSameObject_NotCopiedOverItself() throws ServiceException {
+        // given
+        CopyCountingS3Client s3 = new CopyCountingS3Client();
+        start(s3, deduplicating());
+        service.create(OBJECT, CONTENT);
+        service.delete(OBJECT, false);
+
+        // when
+        service.create(OBJECT, CONTENT);
+
+        // then
+        assertEquals(0, s3.requestedCopies.get());
+        assertArrayEquals(CONTENT, service.read(OBJECT));
+    }
+
+    @Test
+    void create_IndexBucketMissing_ContentSentAndIndexCreated() throws ServiceException {
+        // given
+        CopyCountingS3Client s3 = new CopyCountingS3Client();
+        start(s3, deduplicating());
+
+        // when
+        service.create(OBJECT, CONTENT);
+
+        // then
+        assertEquals(0, s3.requestedCopies.get());
+        assertArrayEquals(CONTENT, service.read(OBJECT));
+        assertDoesNotThrow(() -> s3.headBucket(builder -> builder.bucket(INDEX_BUCKET)));
+    }
+
+    @Test
+    void update_SameContent_ObjectUnchanged() throws ServiceException {
+        // given
+        UploadCountingS3Client s3 = new UploadCountingS3Client();
+        start(s3, new DataObjectProperties());
+        service.create(OBJECT, CONTENT);
+        String eTag = service.stat(OBJECT).eTag();
+        s3.puts.set(0);
+
+        // when
+        boolean updated = service.update(OBJECT, new ByteArrayInputStream(CONTENT));
+
+        // then
+        assertFalse(updated);
+        assertEquals(0, s3.puts.get());
+        assertEquals(eTag, service.stat(OBJECT).eTag());
+    }
+
+    @Test
+    void update_SameContentBiggerThanPart_UploadAborted() throws ServiceException {
+        // given
+        UploadCountingS3Client s3 = new UploadCountingS3Client();
+        start(s3, streamingParts());
+        service.create(OBJECT, new ByteArrayInputStream(TEXT));
+        String eTag = service.stat(OBJECT).eTag();
+        s3.completedUploads.set(0);
+
+        // when
+        boolean updated = service.update(OBJECT, new ByteArrayInputStream(TEXT));
+
+        // then
+        assertFalse(updated);
+        assertEquals(0, s3.completedUploads.get());
+        assertEquals(1, s3.abortedUploads.get());
+        assertEquals(eTag, service.stat(OBJECT).eTag());
+    }
+
+    @Test
+    void update_OtherContentBiggerThanPart_Written() throws ServiceException {
+        // given
+        UploadCountingS3Client s3 = new UploadCountingS3Client();
+        start(s3, streamingParts());
+        service.create(OBJECT, new ByteArrayInputStream(TEXT));
+        byte[] otherContent = "otherContent ".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        s3.completedUploads.set(0);
+
+        // when
+        boolean updated = service.update(OBJECT, new ByteArrayInputStream(otherContent));
+
+        // then
+        assertTrue(updated);
+        assertEquals(1, s3.completedUploads.get());
+        assertEquals(0, s3.abortedUploads.get());
+        assertArrayEquals(otherContent, service.read(OBJECT));
+    }
+
+    private static DataObjectProperties compressing() {
+        DataObjectProperties properties = new DataObjectProperties();
+        properties.getCompression().setPrefixes(List.of(BUCKET));
+        return properties;
+    }
+
+    private static DataObjectProperties deduplicating() {
+        DataObjectProperties properties = new DataObjectProperties();
+        properties.getDedup().setPrefixes(List.of(BUCKET));
+        properties.getDedup().setIndexBucket(INDEX_BUCKET);
+        return properties;
+    }
+
+    private static DataObjectProperties streamingParts() {
+        DataObjectProperties properties = new DataObjectProperties();
+        // Far below the minimum of S3, so that a small content is streamed in several parts
+        properties.getUpload().setPartSize(DataSize.ofKilobytes(4));
+        return properties;
+    }
+
+    /**
+     * In-process S3 service counting the uploads of the service.
+     */
+    private static final class UploadCountingS3Client extends InMemoryS3Client {
+        private final AtomicInteger puts = new AtomicInteger();
+        private final AtomicInteger completedUploads = new AtomicInteger();
+        private final AtomicInteger abortedUploads = new AtomicInteger();
+
+        @Override
+        public PutObjectResponse putObject(PutObjectRequest request, RequestBody body) {
+            puts.incrementAndGet();
+            return super.putObject(request, body);
+        }
+
+        @Override
+        public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+            completedUploads.incrementAndGet();
+            return super.completeMultipartUpload(request);
+        }
+
+        @Override
+        public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+            abortedUploads.incrementAndGet();
+            return super.abortMultipartUpload(request);
+        }
+    }
+
+    /**
+     * In-process S3 service counting the copies requested by the service, and those made.
+     */
+    private static final class CopyCountingS3Client extends InMemoryS3Client {
+        private final AtomicInteger requestedCopies = new AtomicInteger();
+        private final AtomicInteger copies = new AtomicInteger();
+
+        @Override
+        public CopyObjectResponse copyObject(CopyObjectRequest request) {
+            requestedCopies.incrementAndGet();
+            CopyObjectResponse response = super.copyObject(request);
+            copies.incrementAndGet();
+            return response;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.heig.team04.dataobject;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.heig.team04.dataobject.config.DataObjectProperties;
+import org.heig.team04.dataobject.metrics.OperationScope;
+import org.heig.team04.dataobject.metrics.S3CostFilter;
+import org.heig.team04.dataobject.metrics.ServiceMetrics;
+import org.heig.team04.dataobject.service.ServiceInterface;
+import org.heig.team04.dataobject.service.ServiceMemoryImpl;
+import org.heig.team04.dataobject.service.exceptions.NotFoundException;
+import org.heig.team04.dataobject.service.exceptions.ServiceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the metrics of the service operations.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see ServiceMetrics
+ * @see OperationScope
+ * @see S3CostFilter
+ */
+class ServiceMetricsTests {
+    private static final String OBJECT = "amt.team04.diduno.education/testObject";
+    private MeterRegistry registry;
+    private ServiceInterface service;
+
+    @BeforeEach
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        AspectJProxyFactory factory = new AspectJProxyFactory(new ServiceMemoryImpl(new DataObjectProperties()));
+        factory.addAspect(new ServiceMetrics(registry));
+        service = factory.getProxy();
+    }
+
+    @Test
+    void read_Succeeded_TimedWithoutError() throws ServiceException {
+        // given
+        service.create(OBJECT, new byte[]{1, 2, 3});
+
+        // when
+        service.read(OBJECT);
+
+        // then
+        assertEquals(1, registry.get("data-object.operation").tag("operation", "read").tag("exception", "none").timer().count());
+        assertEquals(1, registry.get("data-object.operation.s3.requests").tag("operation", "read").summary().count());
+        assertTrue(registry.find("data-object.errors").counters().isEmpty());
+    }
+
+    @Test
+    void read_Missing_ErrorCountedByException() {
+        // when
+        assertThrows(NotFoundException.class, () -> service.read(OBJECT));
+
+        // then
+        assertEquals(1, registry.get("data-object.errors").tag("operation", "read").tag("exception", "NotFoundException").counter().count());
+        assertEquals(1, registry.get("data-object.operation").tag("exception", "NotFoundException").timer().count());
+    }
+
+    @Test
+    void propagating_TaskSubmitted_RunsInOperationOfSubmitter() throws ExecutionException, InterruptedException {
+        // given
+        ExecutorService executor = OperationScope.propagating(Executors.newSingleThreadExecutor());
+
+        // when
+        OperationScope inTask;
+        try (OperationScope scope = OperationScope.open("publish")) {
+            inTask = executor.submit(OperationScope::current).get();
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        assertNotNull(inTask);
+        assertEquals("publish", inTask.operation());
+        assertNull(OperationScope.current());
+    }
+
+    @Test
+    void filter_S3RequestsDuringRequest_SentInHeaders() throws ServletException, IOException {
+        // given
+        S3CostFilter filter = new S3CostFilter(new DataObjectProperties());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // when
+        filter.doFilter(new MockHttpServletRequest("GET", "/data-object/content"), response, (request, body) -> {
+            try (OperationScope operation = OperationScope.open("read")) {
+                operation.recordS3Request("HeadObject", "200", 3_000_000, 0, 0);
+                operation.recordS3Request("GetObject", "200", 5_000_000, 0, 42);
+            }
+            body.getOutputStream().write(1);
+        });
+
+        // then
+        assertEquals("2", response.getHeader("X-S3-Calls"));
+        assertEquals("8", response.getHeader("X-S3-Time"));
+        assertEquals("42", response.getHeader("X-S3-Bytes-Received"));
+    }
+}
@@ -0,0 +1,69 @@
+package org.heig.team04.dataobject.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the permits of the non-blocking service.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see AsyncPermits
+ */
+class AsyncPermitsTests {
+    private AsyncPermits permits;
+
+    @BeforeEach
+    public void setup() {
+        permits = new AsyncPermits(2);
+    }
+
+    @Test
+    void acquire_PermitsAvailable_AcquiredAtOnce() {
+        // when
+        CompletableFuture<Void> first = permits.acquire();
+        CompletableFuture<Void> second = permits.acquire();
+
+        // then
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+    }
+
+    @Test
+    void acquire_NoPermitLeft_AcquiredOnRelease() {
+        // given
+        permits.acquire();
+        permits.acquire();
+
+        // when
+        CompletableFuture<Void> third = permits.acquire();
+        CompletableFuture<Void> fourth = permits.acquire();
+
+        // then
+        assertFalse(third.isDone());
+        permits.release();
+        assertTrue(third.isDone());
+        assertFalse(fourth.isDone());
+        permits.release();
+        assertTrue(fourth.isDone());
+    }
+
+    @Test
+    void release_NobodyWaiting_PermitAvailableAgain() {
+        // given
+        permits.acquire();
+        permits.acquire();
+
+        // when
+        permits.release();
+
+        // then
+        assertTrue(permits.acquire().isDone());
+        assertFalse(permits.acquire().isDone());
+    }
+}
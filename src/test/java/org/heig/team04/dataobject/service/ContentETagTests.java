@@ -0,0 +1,78 @@
+package org.heig.team04.dataobject.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the ETags computed for the contents, against the ones documented for the S3 service.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see ContentETag
+ */
+class ContentETagTests {
+    private static final byte[] CONTENT = "testContent".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void of_Content_QuotedMd5() {
+        // given
+        byte[] empty = new byte[0];
+
+        // when
+        String eTag = ContentETag.of(empty);
+
+        // then
+        assertEquals("\"d41d8cd98f00b204e9800998ecf8427e\"", eTag);
+    }
+
+    @Test
+    void ofParts_PartETags_Md5OfMd5sAndCount() {
+        // given
+        String part = ContentETag.of(new byte[0]);
+
+        // when
+        String eTag = ContentETag.ofParts(List.of(part, part));
+
+        // then
+        assertEquals("\"5873dd45edd01f09c1ef2e7819369e8e-2\"", eTag);
+    }
+
+    @Test
+    void ofParts_UnquotedPartETags_SameETag() {
+        // given
+        String part = ContentETag.of(CONTENT);
+
+        // when
+        String eTag = ContentETag.ofParts(List.of(part.substring(1, part.length() - 1)));
+
+        // then
+        assertEquals(ContentETag.ofParts(List.of(part)), eTag);
+    }
+
+    @Test
+    void ofParts_PartETagNotMd5_Null() {
+        // when
+        String eTag = ContentETag.ofParts(List.of(ContentETag.of(CONTENT), "\"not-an-md5\""));
+
+        // then
+        assertNull(eTag);
+    }
+
+    @Test
+    void matches_QuotedOrNot_IgnoringCase() {
+        // given
+        String eTag = ContentETag.of(CONTENT);
+        String unquoted = eTag.substring(1, eTag.length() - 1).toUpperCase();
+
+        // then
+        assertTrue(ContentETag.matches(eTag, unquoted));
+        assertFalse(ContentETag.matches(eTag, ContentETag.of(new byte[0])));
+        assertFalse(ContentETag.matches(null, eTag));
+        assertFalse(ContentETag.matches(eTag, null));
+    }
+}
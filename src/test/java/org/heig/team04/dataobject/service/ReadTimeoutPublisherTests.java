@@ -0,0 +1,112 @@
+package org.heig.team04.dataobject.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the read timeout of the bodies of the source URLs of the non-blocking service.
+ *
+ * @author Ivan Vecerina, Yanik Lange
+ * @version 1.0
+ *
+ * @see ReadTimeoutPublisher
+ */
+class ReadTimeoutPublisherTests {
+    private static final Duration TIMEOUT = Duration.ofMillis(100);
+
+    @Test
+    void subscribe_BodyStalledWhileRequested_FailedAndCancelled() throws Exception {
+        // given
+        StalledBody body = new StalledBody();
+        RecordingSubscriber subscriber = new RecordingSubscriber(true);
+
+        // when
+        new ReadTimeoutPublisher(body, TIMEOUT).subscribe(subscriber);
+
+        // then
+        Throwable error = subscriber.error.get(5, TimeUnit.SECONDS);
+        assertInstanceOf(HttpTimeoutException.class, error);
+        assertTrue(body.cancelled.get());
+    }
+
+    @Test
+    void subscribe_NothingRequested_NotFailed() {
+        // given
+        StalledBody body = new StalledBody();
+        RecordingSubscriber subscriber = new RecordingSubscriber(false);
+
+        // when
+        new ReadTimeoutPublisher(body, TIMEOUT).subscribe(subscriber);
+
+        // then
+        assertThrows(TimeoutException.class, () -> subscriber.error.get(TIMEOUT.toMillis() * 3, TimeUnit.MILLISECONDS));
+        assertFalse(body.cancelled.get());
+    }
+
+    /**
+     * Body whose content never arrives.
+     */
+    private static final class StalledBody implements Flow.Publisher<List<ByteBuffer>> {
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super List<ByteBuffer>> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    // Nothing is ever sent
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled.set(true);
+                }
+            });
+        }
+    }
+
+    /**
+     * Subscriber recording the error of the body, requesting its first part or nothing.
+     */
+    private static final class RecordingSubscriber implements Flow.Subscriber<List<ByteBuffer>> {
+        private final boolean requests;
+        private final CompletableFuture<Throwable> error = new CompletableFuture<>();
+
+        private RecordingSubscriber(boolean requests) {
+            this.requests = requests;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (requests) {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            // Never sent
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.complete(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            error.complete(null);
+        }
+    }
+}